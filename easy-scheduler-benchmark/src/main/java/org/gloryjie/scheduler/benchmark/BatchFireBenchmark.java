@@ -0,0 +1,57 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.api.DagResult;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.SingleExcutorSelector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a 3x4 layered graph for 256 contexts, by calling fire for every context
+ * or by one fireBatch, which runs every node as one task over a chunk of contexts.
+ * <pre>
+ * java -jar easy-scheduler-benchmark/target/benchmarks.jar BatchFireBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchFireBenchmark {
+
+    private ConcurrentDagEngine dagEngine;
+
+    private DagGraph dagGraph;
+
+    private List<Integer> contexts;
+
+    @Setup
+    public void setup() {
+        dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(Runtime.getRuntime().availableProcessors()));
+        dagGraph = BenchmarkGraphs.layered(3, 4, (dagNode, dagContext) -> dagContext.getContext());
+        contexts = new ArrayList<>();
+        for (int i = 0; i < 256; i++) {
+            contexts.add(i);
+        }
+    }
+
+    @Benchmark
+    public List<DagResult> fireLoop() {
+        List<DagResult> results = new ArrayList<>(contexts.size());
+        for (Integer context : contexts) {
+            results.add(dagEngine.fire(dagGraph, context));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<DagResult> fireBatch() {
+        return dagEngine.fireBatch(dagGraph, contexts);
+    }
+}
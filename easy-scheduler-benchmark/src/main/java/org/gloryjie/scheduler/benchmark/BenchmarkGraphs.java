@@ -0,0 +1,164 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.api.DagNode;
+import org.gloryjie.scheduler.api.NodeHandler;
+import org.gloryjie.scheduler.core.DagGraphBuilder;
+import org.gloryjie.scheduler.core.DefaultDagNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic graphs used by the benchmarks
+ */
+public final class BenchmarkGraphs {
+
+    private BenchmarkGraphs() {
+    }
+
+    /**
+     * Layered graph, every node depends on two nodes of the previous layer.
+     *
+     * @param layers  the number of layers
+     * @param width   the number of nodes in each layer
+     * @param handler the handler of every node
+     * @return the dag graph
+     */
+    public static DagGraph layered(int layers, int width, NodeHandler<Object> handler) {
+        List<DagNode<?>> nodes = new ArrayList<>();
+        for (int layer = 0; layer < layers; layer++) {
+            for (int i = 0; i < width; i++) {
+                DefaultDagNode.Builder<Object> builder = DefaultDagNode.builder()
+                        .nodeName(nodeName(layer, i))
+                        .handler(handler);
+                if (layer > 0) {
+                    builder.dependOn(nodeName(layer - 1, i), nodeName(layer - 1, (i + 1) % width));
+                }
+                nodes.add(builder.build());
+            }
+        }
+        return new DagGraphBuilder()
+                .graphName("layered-" + layers + "x" + width)
+                .addNodes(nodes.toArray(new DagNode[0]))
+                .build();
+    }
+
+    /**
+     * Chain graph, every node depends on the previous one.
+     *
+     * @param length     the number of nodes
+     * @param handler    the handler of every node
+     * @param attributes the attributes of every node
+     * @return the dag graph
+     */
+    public static DagGraph chain(int length, NodeHandler<Object> handler, Map<String, Object> attributes) {
+        List<DagNode<?>> nodes = new ArrayList<>();
+        for (int i = 0; i < length; i++) {
+            DefaultDagNode.Builder<Object> builder = DefaultDagNode.builder()
+                    .nodeName(nodeName(0, i))
+                    .handler(handler);
+            if (i > 0) {
+                builder.dependOn(nodeName(0, i - 1));
+            }
+            attributes.forEach(builder::attribute);
+            nodes.add(builder.build());
+        }
+        return new DagGraphBuilder()
+                .graphName("chain-" + length)
+                .addNodes(nodes.toArray(new DagNode[0]))
+                .build();
+    }
+
+    /**
+     * Fan-out/fan-in graph, one source node, the parallel nodes depending on the source and one sink node
+     * depending on all the parallel nodes.
+     *
+     * @param nodes   the total number of nodes, at least 3
+     * @param handler the handler of every node
+     * @return the dag graph
+     */
+    public static DagGraph fanOutFanIn(int nodes, NodeHandler<Object> handler) {
+        int width = Math.max(nodes - 2, 1);
+        List<DagNode<?>> dagNodes = new ArrayList<>(width + 2);
+        dagNodes.add(DefaultDagNode.builder().nodeName("source").handler(handler).build());
+        DefaultDagNode.Builder<Object> sink = DefaultDagNode.builder().nodeName("sink").handler(handler);
+        for (int i = 0; i < width; i++) {
+            String nodeName = nodeName(1, i);
+            dagNodes.add(DefaultDagNode.builder().nodeName(nodeName).handler(handler).dependOn("source").build());
+            sink.dependOn(nodeName);
+        }
+        dagNodes.add(sink.build());
+        return new DagGraphBuilder()
+                .graphName("fan-" + nodes)
+                .addNodes(dagNodes.toArray(new DagNode[0]))
+                .build();
+    }
+
+    /**
+     * Square lattice, every node depends on its left and upper neighbours,
+     * so the ready nodes form a diamond growing and shrinking along the anti-diagonals.
+     *
+     * @param nodes   the approximate number of nodes, rounded to a square
+     * @param handler the handler of every node
+     * @return the dag graph
+     */
+    public static DagGraph diamondLattice(int nodes, NodeHandler<Object> handler) {
+        int side = Math.max((int) Math.round(Math.sqrt(nodes)), 1);
+        List<DagNode<?>> dagNodes = new ArrayList<>(side * side);
+        for (int row = 0; row < side; row++) {
+            for (int column = 0; column < side; column++) {
+                DefaultDagNode.Builder<Object> builder = DefaultDagNode.builder()
+                        .nodeName(nodeName(row, column))
+                        .handler(handler);
+                if (row > 0) {
+                    builder.dependOn(nodeName(row - 1, column));
+                }
+                if (column > 0) {
+                    builder.dependOn(nodeName(row, column - 1));
+                }
+                dagNodes.add(builder.build());
+            }
+        }
+        return new DagGraphBuilder()
+                .graphName("lattice-" + side + "x" + side)
+                .addNodes(dagNodes.toArray(new DagNode[0]))
+                .build();
+    }
+
+    /**
+     * Random graph, every node depends on up to the given number of nodes created before it,
+     * the same seed always gives the same graph.
+     *
+     * @param nodes           the number of nodes
+     * @param maxDependencies the max number of dependencies of a node
+     * @param seed            the seed of the random generator
+     * @param handler         the handler of every node
+     * @return the dag graph
+     */
+    public static DagGraph random(int nodes, int maxDependencies, long seed, NodeHandler<Object> handler) {
+        Random random = new Random(seed);
+        List<DagNode<?>> dagNodes = new ArrayList<>(nodes);
+        for (int i = 0; i < nodes; i++) {
+            DefaultDagNode.Builder<Object> builder = DefaultDagNode.builder()
+                    .nodeName(nodeName(0, i))
+                    .handler(handler);
+            int dependencies = i == 0 ? 0 : random.nextInt(Math.min(i, maxDependencies) + 1);
+            for (int d = 0; d < dependencies; d++) {
+                builder.dependOn(nodeName(0, random.nextInt(i)));
+            }
+            dagNodes.add(builder.build());
+        }
+        return new DagGraphBuilder()
+                .graphName("random-" + nodes + "-" + seed)
+                .addNodes(dagNodes.toArray(new DagNode[0]))
+                .build();
+    }
+
+    private static String nodeName(int layer, int index) {
+        return "L" + layer + "N" + index;
+    }
+
+}
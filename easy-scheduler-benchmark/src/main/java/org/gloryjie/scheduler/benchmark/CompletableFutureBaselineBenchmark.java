@@ -0,0 +1,126 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.core.DagExecutionPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the graphs of {@link EngineOverheadBenchmark} as hand-written CompletableFuture compositions,
+ * the difference between the two scores is the overhead of the framework.
+ * <p>
+ * SINGLE_THREAD composes completed futures on the calling thread like {@code SingleThreadDagEngine},
+ * CONCURRENT runs every node with the async methods on a pool of the same size as the engine.
+ * The virtual start and end nodes of the plan are not run.
+ * <pre>
+ * java -jar easy-scheduler-benchmark/target/benchmarks.jar CompletableFutureBaselineBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompletableFutureBaselineBenchmark {
+
+    @Param({"CHAIN", "FAN", "LATTICE", "RANDOM"})
+    private GraphShape shape;
+
+    @Param({"10", "100", "1000"})
+    private int nodes;
+
+    @Param({"NOOP", "SPIN"})
+    private NodeWork work;
+
+    @Param({"SINGLE_THREAD", "CONCURRENT"})
+    private EngineOverheadBenchmark.EngineType engine;
+
+    private ExecutorService executorService;
+
+    /**
+     * Node -> its predecessors, the nodes are in topological order
+     */
+    private int[][] predecessors;
+
+    @Setup
+    public void setup() {
+        if (engine == EngineOverheadBenchmark.EngineType.CONCURRENT) {
+            executorService = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        DagExecutionPlan plan = DagExecutionPlan.of(shape.build(nodes, work.handler()));
+        List<List<Integer>> predecessorLists = new ArrayList<>(plan.size());
+        for (int i = 0; i < plan.size(); i++) {
+            predecessorLists.add(new ArrayList<>());
+        }
+        for (int i = 0; i < plan.size(); i++) {
+            for (int edge = plan.successorStart(i); edge < plan.successorEnd(i); edge++) {
+                predecessorLists.get(plan.successor(edge)).add(i);
+            }
+        }
+        // drop the start and end nodes, they are always the first and the last
+        predecessors = new int[plan.size() - 2][];
+        for (int i = 1; i < plan.size() - 1; i++) {
+            predecessors[i - 1] = predecessorLists.get(i).stream()
+                    .mapToInt(Integer::intValue)
+                    .filter(index -> index != plan.startIndex())
+                    .map(index -> index - 1)
+                    .toArray();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public Object compose() {
+        CompletableFuture<Object>[] futures = new CompletableFuture[predecessors.length];
+        for (int i = 0; i < predecessors.length; i++) {
+            futures[i] = executorService == null ? composeSync(futures, predecessors[i]) : composeAsync(futures, predecessors[i]);
+        }
+        return CompletableFuture.allOf(futures).join();
+    }
+
+    private CompletableFuture<Object> composeSync(CompletableFuture<Object>[] futures, int[] dependencies) {
+        if (dependencies.length == 0) {
+            return CompletableFuture.completedFuture(work.run());
+        }
+        if (dependencies.length == 1) {
+            return futures[dependencies[0]].thenApply(value -> work.run());
+        }
+        return CompletableFuture.allOf(dependencyFutures(futures, dependencies)).thenApply(value -> work.run());
+    }
+
+    private CompletableFuture<Object> composeAsync(CompletableFuture<Object>[] futures, int[] dependencies) {
+        if (dependencies.length == 0) {
+            return CompletableFuture.supplyAsync(work::run, executorService);
+        }
+        if (dependencies.length == 1) {
+            return futures[dependencies[0]].thenApplyAsync(value -> work.run(), executorService);
+        }
+        return CompletableFuture.allOf(dependencyFutures(futures, dependencies))
+                .thenApplyAsync(value -> work.run(), executorService);
+    }
+
+    private static CompletableFuture<?>[] dependencyFutures(CompletableFuture<Object>[] futures, int[] dependencies) {
+        CompletableFuture<?>[] dependencyFutures = new CompletableFuture[dependencies.length];
+        for (int i = 0; i < dependencies.length; i++) {
+            dependencyFutures[i] = futures[dependencies[i]];
+        }
+        return dependencyFutures;
+    }
+}
@@ -0,0 +1,111 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.ContextKey;
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.api.NodeResult;
+import org.gloryjie.scheduler.api.NodeState;
+import org.gloryjie.scheduler.core.ConcurrentDagContext;
+import org.gloryjie.scheduler.core.DagExecutionPlan;
+import org.gloryjie.scheduler.core.SlotDagContext;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the context of a dag run: the String keyed ConcurrentDagContext
+ * and the SlotDagContext indexed by the slots of the execution plan.
+ * <p>
+ * Every invocation creates the context of one run over a 30-node graph, puts the result of every node,
+ * reads the results of its predecessors and a typed key, like conditions and handlers do, then reads the map.
+ * <pre>
+ * java -jar easy-scheduler-benchmark/target/benchmarks.jar DagContextBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DagContextBenchmark {
+
+    private static final ContextKey<Integer> USER_ID = ContextKey.of("benchmark.userId", Integer.class);
+
+    private DagExecutionPlan plan;
+
+    private String[] nodeNames;
+
+    private NodeResult<?>[] results;
+
+    @Setup
+    public void setup() {
+        // 5 layers of 6 nodes, with the start node and the end node
+        plan = DagExecutionPlan.compile(BenchmarkGraphs.layered(5, 6, (dagNode, dagContext) -> null),
+                Collections.singletonList(USER_ID));
+        nodeNames = new String[plan.size()];
+        results = new NodeResult<?>[plan.size()];
+        for (int i = 0; i < plan.size(); i++) {
+            nodeNames[i] = plan.node(i).getNodeName();
+            results[i] = new FixedNodeResult(nodeNames[i]);
+        }
+    }
+
+    @Benchmark
+    public void concurrentDagContext(Blackhole blackhole) {
+        run(new ConcurrentDagContext("user"), blackhole);
+    }
+
+    @Benchmark
+    public void slotDagContext(Blackhole blackhole) {
+        run(new SlotDagContext(plan, "user"), blackhole);
+    }
+
+    private void run(DagContext dagContext, Blackhole blackhole) {
+        dagContext.put(USER_ID, 42);
+        for (int i = 0; i < plan.size(); i++) {
+            blackhole.consume(dagContext.get(USER_ID));
+            dagContext.putNodeResult(nodeNames[i], results[i]);
+            for (int edge = plan.successorStart(i); edge < plan.successorEnd(i); edge++) {
+                blackhole.consume(dagContext.getNodeResult(nodeNames[i]));
+            }
+        }
+        blackhole.consume(dagContext.asMap().size());
+    }
+
+
+    private static final class FixedNodeResult implements NodeResult<Object> {
+
+        private final String nodeName;
+
+        FixedNodeResult(String nodeName) {
+            this.nodeName = nodeName;
+        }
+
+        @Override
+        public String getNodeName() {
+            return nodeName;
+        }
+
+        @Override
+        public Object getResult() {
+            return null;
+        }
+
+        @Override
+        public NodeState getState() {
+            return NodeState.SUCCEEDED;
+        }
+
+        @Override
+        public Throwable getThrowable() {
+            return null;
+        }
+
+        @Override
+        public Long getCostTime() {
+            return 0L;
+        }
+    }
+}
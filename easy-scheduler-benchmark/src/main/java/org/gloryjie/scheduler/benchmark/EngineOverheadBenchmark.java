@@ -0,0 +1,98 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.DagEngine;
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.api.DagResult;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.SingleExcutorSelector;
+import org.gloryjie.scheduler.core.SingleThreadDagEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of one fire across graph shapes and sizes, node work, number of filters and engines.
+ * <p>
+ * Divide the score by the number of nodes for the overhead per node, and compare with
+ * {@link CompletableFutureBaselineBenchmark} running the same graphs without the framework.
+ * The main method adds the GC profiler, {@code gc.alloc.rate.norm} is the allocation per fire.
+ * <pre>
+ * java -cp easy-scheduler-benchmark/target/benchmarks.jar org.gloryjie.scheduler.benchmark.EngineOverheadBenchmark
+ * java -jar easy-scheduler-benchmark/target/benchmarks.jar EngineOverheadBenchmark -p shape=CHAIN -p nodes=100 -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineOverheadBenchmark {
+
+    public enum EngineType {
+        SINGLE_THREAD,
+        CONCURRENT
+    }
+
+    @Param({"CHAIN", "FAN", "LATTICE", "RANDOM"})
+    private GraphShape shape;
+
+    @Param({"10", "100", "1000"})
+    private int nodes;
+
+    @Param({"NOOP", "SPIN"})
+    private NodeWork work;
+
+    @Param({"0", "1", "5"})
+    private int filters;
+
+    @Param({"SINGLE_THREAD", "CONCURRENT"})
+    private EngineType engine;
+
+    private DagEngine dagEngine;
+
+    private ExecutorService executorService;
+
+    private DagGraph dagGraph;
+
+    @Setup
+    public void setup() {
+        if (engine == EngineType.SINGLE_THREAD) {
+            dagEngine = new SingleThreadDagEngine();
+        } else {
+            SingleExcutorSelector selector = new SingleExcutorSelector(Runtime.getRuntime().availableProcessors());
+            executorService = selector.select(null);
+            dagEngine = new ConcurrentDagEngine(selector);
+        }
+        for (int i = 0; i < filters; i++) {
+            // pass-through filters, only the cost of the invoker chain is measured
+            dagEngine.registerFilter((invoker, dagNode, dagContext) -> invoker.invoke(dagNode, dagContext));
+        }
+        dagGraph = shape.build(nodes, work.handler());
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public DagResult fire() {
+        return dagEngine.fire(dagGraph, null);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(EngineOverheadBenchmark.class.getSimpleName())
+                .include(CompletableFutureBaselineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
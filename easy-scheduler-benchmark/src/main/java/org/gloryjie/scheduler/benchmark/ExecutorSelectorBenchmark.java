@@ -0,0 +1,51 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.api.DagResult;
+import org.gloryjie.scheduler.api.ExecutorSelector;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.ForkJoinExecutorSelector;
+import org.gloryjie.scheduler.core.SingleExcutorSelector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires a wide graph from several caller threads at the same time, with the nodes run by
+ * the shared ThreadPoolExecutor queue or by the work-stealing ForkJoinPool.
+ * <pre>
+ * java -jar easy-scheduler-benchmark/target/benchmarks.jar ExecutorSelectorBenchmark -t 16
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class ExecutorSelectorBenchmark {
+
+    @Param({"threadPool", "forkJoin"})
+    private String selector;
+
+    private ConcurrentDagEngine dagEngine;
+
+    private DagGraph dagGraph;
+
+    @Setup
+    public void setup() {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        ExecutorSelector executorSelector = "forkJoin".equals(selector)
+                ? new ForkJoinExecutorSelector(parallelism)
+                : new SingleExcutorSelector(parallelism);
+        dagEngine = new ConcurrentDagEngine(executorSelector);
+        // 4 layers of 16 cheap nodes
+        dagGraph = BenchmarkGraphs.layered(4, 16, (dagNode, dagContext) -> dagNode.getNodeName().hashCode());
+    }
+
+    @Benchmark
+    public DagResult fireWideGraph() {
+        return dagEngine.fire(dagGraph, null);
+    }
+}
@@ -0,0 +1,111 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.core.MapDagContext;
+import org.gloryjie.scheduler.expr.ExprGraphFactory;
+import org.gloryjie.scheduler.spel.SpelGraphFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.expression.spel.SpelCompilerMode;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Compares the evaluation of a node condition by SpEL, interpreted and compiled to bytecode,
+ * and by the compiled closures of easy-scheduler-expr.
+ * <p>
+ * The condition reads the user context, a context variable and navigates a collection null-safely,
+ * like the conditions of the config graphs.
+ * <pre>
+ * java -jar easy-scheduler-benchmark/target/benchmarks.jar ExpressionBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    private static final String CONDITION =
+            "#{ context?.uid != null && context.age > 18 && #course == 'java' && context?.courses?.size() > 1 }";
+
+    public enum Evaluator {
+        SPEL, SPEL_COMPILED, EXPR
+    }
+
+    @Param({"SPEL", "SPEL_COMPILED", "EXPR"})
+    private Evaluator evaluator;
+
+    private Predicate<DagContext> condition;
+
+    private DagContext dagContext;
+
+    @Setup
+    public void setup() {
+        switch (evaluator) {
+            case SPEL:
+                condition = new SpelGraphFactory().createCondition(CONDITION);
+                break;
+            case SPEL_COMPILED:
+                SpelGraphFactory factory = new SpelGraphFactory();
+                factory.setCompilerMode(SpelCompilerMode.IMMEDIATE);
+                condition = factory.createCondition(CONDITION);
+                break;
+            default:
+                condition = new ExprGraphFactory().createCondition(CONDITION);
+                break;
+        }
+        Student student = new Student();
+        student.setUid(123);
+        student.setAge(22);
+        student.setCourses(Arrays.asList("Math", "Java"));
+        dagContext = new MapDagContext(student);
+        dagContext.put("course", "java");
+        if (!condition.test(dagContext)) {
+            throw new IllegalStateException("condition must be true");
+        }
+    }
+
+    @Benchmark
+    public boolean condition() {
+        return condition.test(dagContext);
+    }
+
+
+    public static class Student {
+
+        private Integer uid;
+
+        private int age;
+
+        private List<String> courses;
+
+        public Integer getUid() {
+            return uid;
+        }
+
+        public void setUid(Integer uid) {
+            this.uid = uid;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public List<String> getCourses() {
+            return courses;
+        }
+
+        public void setCourses(List<String> courses) {
+            this.courses = courses;
+        }
+    }
+}
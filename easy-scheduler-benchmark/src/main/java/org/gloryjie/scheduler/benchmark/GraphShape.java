@@ -0,0 +1,45 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.api.NodeHandler;
+
+import java.util.Collections;
+
+/**
+ * Shapes of the synthetic graphs of the overhead benchmarks
+ */
+public enum GraphShape {
+
+    /**
+     * Every node depends on the previous one, no parallelism at all
+     */
+    CHAIN,
+
+    /**
+     * One source, all the other nodes in parallel, one sink
+     */
+    FAN,
+
+    /**
+     * Square lattice, the parallelism grows and shrinks along the anti-diagonals
+     */
+    LATTICE,
+
+    /**
+     * Random dependencies, up to 3 for every node, with a fixed seed
+     */
+    RANDOM;
+
+    public DagGraph build(int nodes, NodeHandler<Object> handler) {
+        switch (this) {
+            case CHAIN:
+                return BenchmarkGraphs.chain(nodes, handler, Collections.emptyMap());
+            case FAN:
+                return BenchmarkGraphs.fanOutFanIn(nodes, handler);
+            case LATTICE:
+                return BenchmarkGraphs.diamondLattice(nodes, handler);
+            default:
+                return BenchmarkGraphs.random(nodes, 3, 42, handler);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.api.DagResult;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.NodeExecutionMode;
+import org.gloryjie.scheduler.core.SingleExcutorSelector;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires a chain of 20 sub-microsecond nodes, every node is either submitted to the executor
+ * or run inline on the thread which completes its predecessor.
+ * <pre>
+ * java -jar easy-scheduler-benchmark/target/benchmarks.jar InlineExecutionBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InlineExecutionBenchmark {
+
+    @Param({"ASYNC", "INLINE"})
+    private NodeExecutionMode mode;
+
+    private ConcurrentDagEngine dagEngine;
+
+    private DagGraph dagGraph;
+
+    @Setup
+    public void setup() {
+        dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        dagGraph = BenchmarkGraphs.chain(20, (dagNode, dagContext) -> dagNode.getNodeName(),
+                Collections.singletonMap(ConcurrentDagEngine.EXECUTION_MODE_ATTRIBUTE, mode));
+    }
+
+    @Benchmark
+    public DagResult fireChain() {
+        return dagEngine.fire(dagGraph, null);
+    }
+}
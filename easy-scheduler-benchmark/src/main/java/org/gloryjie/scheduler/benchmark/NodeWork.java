@@ -0,0 +1,33 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.NodeHandler;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Work done by every node of the overhead benchmarks
+ */
+public enum NodeWork {
+
+    /**
+     * Returns at once, the measured time is the scheduling overhead only
+     */
+    NOOP,
+
+    /**
+     * Burns a fixed amount of CPU, about a microsecond, like a cheap computation
+     */
+    SPIN;
+
+    private static final long SPIN_TOKENS = 256;
+
+    public Object run() {
+        if (this == SPIN) {
+            Blackhole.consumeCPU(SPIN_TOKENS);
+        }
+        return null;
+    }
+
+    public NodeHandler<Object> handler() {
+        return (dagNode, dagContext) -> run();
+    }
+}
@@ -0,0 +1,110 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.api.DagNode;
+import org.gloryjie.scheduler.api.NodeState;
+import org.gloryjie.scheduler.core.DagExecutionPlan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Compares the per-run state of a dag run: the String keyed ConcurrentHashMaps used before,
+ * and the atomic arrays indexed by the node index of the execution plan.
+ * <p>
+ * Every invocation initialises the state of one run over a 30-node graph,
+ * walks all node transitions in topological order and reads one node state back,
+ * which is the bookkeeping the engine does for every fire.
+ * <pre>
+ * java -jar easy-scheduler-benchmark/target/benchmarks.jar RunStateBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RunStateBenchmark {
+
+    private DagGraph dagGraph;
+
+    private DagExecutionPlan plan;
+
+    private String[] nodeNames;
+
+    private String lastNodeName;
+
+    @Setup
+    public void setup() {
+        // 5 layers of 6 nodes, with the start node and the end node
+        dagGraph = BenchmarkGraphs.layered(5, 6, (dagNode, dagContext) -> null);
+        plan = DagExecutionPlan.of(dagGraph);
+        nodeNames = new String[plan.size()];
+        for (int i = 0; i < plan.size(); i++) {
+            nodeNames[i] = plan.node(i).getNodeName();
+        }
+        lastNodeName = nodeNames[plan.size() - 2];
+    }
+
+    @Benchmark
+    public NodeState stringKeyedMaps() {
+        // init, same as the engine did before
+        Map<String, AtomicInteger> nodeInDegreeInfo = new ConcurrentHashMap<>();
+        dagGraph.getNodeInDegree().forEach((nodeName, inDegree) ->
+                nodeInDegreeInfo.put(nodeName, new AtomicInteger(inDegree)));
+        ConcurrentHashMap<String, NodeState> nodeStateMap = new ConcurrentHashMap<>();
+        for (DagNode<?> node : dagGraph.nodes()) {
+            nodeStateMap.put(node.getNodeName(), NodeState.WAITING);
+        }
+
+        // transitions
+        for (int i = 0; i < plan.size(); i++) {
+            String nodeName = nodeNames[i];
+            nodeStateMap.put(nodeName, NodeState.RUNNING);
+            nodeStateMap.put(nodeName, NodeState.SUCCEEDED);
+            for (int edge = plan.successorStart(i); edge < plan.successorEnd(i); edge++) {
+                String successorName = nodeNames[plan.successor(edge)];
+                if (nodeStateMap.get(successorName) == NodeState.WAITING) {
+                    nodeInDegreeInfo.get(successorName).decrementAndGet();
+                }
+            }
+        }
+
+        // result
+        return new HashMap<>(nodeStateMap).get(lastNodeName);
+    }
+
+    @Benchmark
+    public NodeState indexedArrays() {
+        // init
+        AtomicIntegerArray nodeInDegrees = new AtomicIntegerArray(plan.size());
+        AtomicReferenceArray<NodeState> nodeStates = new AtomicReferenceArray<>(plan.size());
+        for (int i = 0; i < plan.size(); i++) {
+            nodeInDegrees.set(i, plan.inDegree(i));
+            nodeStates.set(i, NodeState.WAITING);
+        }
+
+        // transitions
+        for (int i = 0; i < plan.size(); i++) {
+            nodeStates.compareAndSet(i, NodeState.WAITING, NodeState.RUNNING);
+            nodeStates.set(i, NodeState.SUCCEEDED);
+            for (int edge = plan.successorStart(i); edge < plan.successorEnd(i); edge++) {
+                int successor = plan.successor(edge);
+                if (nodeStates.get(successor) == NodeState.WAITING) {
+                    nodeInDegrees.decrementAndGet(successor);
+                }
+            }
+        }
+
+        // result, read through the node index like the state map view
+        return nodeStates.get(plan.indexOf(lastNodeName));
+    }
+
+}
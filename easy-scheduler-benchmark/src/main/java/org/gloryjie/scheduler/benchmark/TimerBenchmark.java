@@ -0,0 +1,131 @@
+package org.gloryjie.scheduler.benchmark;
+
+import org.gloryjie.scheduler.core.timer.HashedWheelDagTimer;
+import org.gloryjie.scheduler.core.timer.ScheduledExecutorDagTimer;
+import org.gloryjie.scheduler.core.timer.Timeout;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the timers enforcing node timeouts, every invocation schedules the timeout of one node
+ * and completes the node right away, which is the common case where nodes finish in time.
+ * <ul>
+ *     <li>scheduledNoCancel: ScheduledThreadPoolExecutor without cancel, what the engine did before</li>
+ *     <li>scheduledCancel: ScheduledThreadPoolExecutor with remove on cancel</li>
+ *     <li>hashedWheel: HashedWheelDagTimer, cancelled on completion</li>
+ * </ul>
+ * The number of tasks still held by the timer at the end of each iteration is reported as the
+ * pendingTimerTasks counter, every one of them retains the node result until the timeout expires.
+ * <pre>
+ * java -jar easy-scheduler-benchmark/target/benchmarks.jar TimerBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class TimerBenchmark {
+
+    /**
+     * Node timeout in milliseconds
+     */
+    private static final long NODE_TIMEOUT = 1000;
+
+    @Param({"scheduledNoCancel", "scheduledCancel", "hashedWheel"})
+    private String timerType;
+
+    private ScheduledThreadPoolExecutor scheduledExecutor;
+
+    private ScheduledExecutorDagTimer scheduledExecutorDagTimer;
+
+    private HashedWheelDagTimer hashedWheelDagTimer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        switch (timerType) {
+            case "scheduledNoCancel":
+                scheduledExecutor = new ScheduledThreadPoolExecutor(1);
+                break;
+            case "scheduledCancel":
+                scheduledExecutorDagTimer = new ScheduledExecutorDagTimer();
+                break;
+            default:
+                hashedWheelDagTimer = new HashedWheelDagTimer();
+        }
+    }
+
+    long pendingTasks() {
+        if (scheduledExecutor != null) {
+            return scheduledExecutor.getQueue().size();
+        }
+        if (scheduledExecutorDagTimer != null) {
+            return scheduledExecutorDagTimer.pendingTimeouts();
+        }
+        return hashedWheelDagTimer.pendingTimeouts();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (scheduledExecutor != null) {
+            scheduledExecutor.shutdownNow();
+        }
+        if (scheduledExecutorDagTimer != null) {
+            scheduledExecutorDagTimer.stop();
+        }
+        if (hashedWheelDagTimer != null) {
+            hashedWheelDagTimer.stop();
+        }
+    }
+
+    @Benchmark
+    public Object scheduleAndComplete(PendingTimerTasks pendingTimerTasks) {
+        NodeRun nodeRun = new NodeRun();
+        if (scheduledExecutor != null) {
+            return scheduledExecutor.schedule(nodeRun::expire, NODE_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        Timeout timeout;
+        if (scheduledExecutorDagTimer != null) {
+            timeout = scheduledExecutorDagTimer.newTimeout(nodeRun::expire, NODE_TIMEOUT, TimeUnit.MILLISECONDS);
+        } else {
+            timeout = hashedWheelDagTimer.newTimeout(nodeRun::expire, NODE_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+        // the node completes in time
+        timeout.cancel();
+        return timeout;
+    }
+
+
+    /**
+     * Reports the tasks held by the timer at the end of the iteration
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PendingTimerTasks {
+
+        public long pendingTimerTasks;
+
+        @TearDown(Level.Iteration)
+        public void count(TimerBenchmark benchmark) {
+            pendingTimerTasks = benchmark.pendingTasks();
+        }
+    }
+
+
+    /**
+     * Stands for the node result and the run state captured by a node timeout task
+     */
+    private static class NodeRun {
+
+        private final long[] state = new long[16];
+
+        private volatile boolean expired;
+
+        void expire() {
+            expired = state.length > 0;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.gloryjie.scheduler.api;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * NodeHandler whose result is completed later, e.g. by an async client or by a batched call.
+ * <p>
+ * The engine does not hold a thread while the stage is pending, the node is completed
+ * by the thread which completes the stage. Engines running nodes on the calling thread wait for the stage.
+ * Filters see the stage as the result of the node.
+ *
+ * @param <R> the type of the result
+ */
+public interface AsyncNodeHandler<R> extends NodeHandler<R> {
+
+    /**
+     * Starts the execution of the node.
+     *
+     * @param dagNode    the node
+     * @param dagContext the context
+     * @return the stage completed with the result of the node
+     */
+    CompletionStage<R> executeAsync(DagNode<Object> dagNode, DagContext dagContext);
+
+    /**
+     * Executes the node and waits for the result.
+     */
+    @Override
+    default R execute(DagNode<Object> dagNode, DagContext dagContext) {
+        try {
+            return executeAsync(dagNode, dagContext).toCompletableFuture().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+}
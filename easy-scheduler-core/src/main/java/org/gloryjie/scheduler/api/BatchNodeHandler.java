@@ -0,0 +1,28 @@
+package org.gloryjie.scheduler.api;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * NodeHandler which could execute a node for many contexts at once,
+ * used when the graph is fired for a batch of contexts.
+ *
+ * @param <R> the type of the result
+ */
+public interface BatchNodeHandler<R> extends NodeHandler<R> {
+
+    /**
+     * Executes the node for the contexts of a batch, only the contexts evaluated to true are passed.
+     *
+     * @param dagNode     the node
+     * @param dagContexts the contexts
+     * @return the results, one for each context in the same order
+     */
+    List<R> executeBatch(DagNode<Object> dagNode, List<DagContext> dagContexts);
+
+    @Override
+    default R execute(DagNode<Object> dagNode, DagContext dagContext) {
+        return executeBatch(dagNode, Collections.singletonList(dagContext)).get(0);
+    }
+
+}
@@ -0,0 +1,35 @@
+package org.gloryjie.scheduler.api;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation of a dag run, read by handlers through {@link DagContext#getCancellationToken()}.
+ * A long running handler should check it between steps and give up once the run is done,
+ * nobody reads its result any more.
+ */
+public interface CancellationToken {
+
+    /**
+     * Token of a run which is never cancelled
+     */
+    CancellationToken NONE = () -> false;
+
+    /**
+     * Checks if the run is done, e.g. failed or timed out, so the result of the node is not needed.
+     *
+     * @return true if the run is cancelled
+     */
+    boolean isCancelled();
+
+    /**
+     * Throws if the run is cancelled.
+     *
+     * @throws CancellationException if the run is cancelled
+     */
+    default void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException("dag run is cancelled");
+        }
+    }
+
+}
@@ -0,0 +1,91 @@
+package org.gloryjie.scheduler.api;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Typed key of a value in the {@link DagContext}.
+ * <p>
+ * Keys are interned by name, the same name always gives the same key, and the value is stored under the name,
+ * so the typed and the String accessors see the same values.
+ * A key declared to the graph is resolved to a slot of the context when the graph is compiled,
+ * its values are then read and written by index without hashing.
+ *
+ * @param <T> the type of the value
+ */
+public final class ContextKey<T> {
+
+    private static final ConcurrentMap<String, ContextKey<?>> KEYS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger ID_GENERATOR = new AtomicInteger();
+
+    private final String name;
+
+    private final Class<T> type;
+
+    private final int id;
+
+    private ContextKey(String name, Class<T> type, int id) {
+        this.name = name;
+        this.type = type;
+        this.id = id;
+    }
+
+    /**
+     * Returns the key of the name, it is created on first use.
+     *
+     * @param name the name of the key
+     * @param type the type of the value
+     * @return the key
+     * @throws IllegalArgumentException if the key exists with another type
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ContextKey<T> of(String name, Class<T> type) {
+        Objects.requireNonNull(name, "name must not be null");
+        Objects.requireNonNull(type, "type must not be null");
+        ContextKey<?> key = KEYS.get(name);
+        if (key == null) {
+            key = KEYS.computeIfAbsent(name, k -> new ContextKey<>(k, type, ID_GENERATOR.getAndIncrement()));
+        }
+        if (key.type != type) {
+            throw new IllegalArgumentException("context key[" + name + "] is already defined with type "
+                    + key.type.getName());
+        }
+        return (ContextKey<T>) key;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Returns the id of the key, the keys are numbered from 0 in order of creation.
+     *
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Casts a value of the context to the type of the key.
+     *
+     * @param value the value
+     * @return the value, or null
+     * @throws ClassCastException if the value is not of the type of the key
+     */
+    public T cast(Object value) {
+        return type.cast(value);
+    }
+
+    @Override
+    public String toString() {
+        return "ContextKey(" + name + ", " + type.getSimpleName() + ")";
+    }
+}
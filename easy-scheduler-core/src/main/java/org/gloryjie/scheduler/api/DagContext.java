@@ -12,6 +12,8 @@ public interface DagContext {
 
     String USER_CONTEXT = "#USER_CONTEXT#";
 
+    String CANCELLATION_TOKEN = "#CANCELLATION_TOKEN#";
+
     /**
      * Retrieves the result of a node from the context.
      *
@@ -45,6 +47,38 @@ public interface DagContext {
         return this.get(USER_CONTEXT);
     }
 
+
+    /**
+     * Returns the cancellation token of the dag run.
+     *
+     * @return the token, never cancelled if the engine does not set one
+     */
+    default CancellationToken getCancellationToken() {
+        Object token = this.get(CANCELLATION_TOKEN);
+        return token instanceof CancellationToken ? (CancellationToken) token : CancellationToken.NONE;
+    }
+
+    /**
+     * Retrieves the value of a typed key.
+     *
+     * @param key the key
+     * @return the value, or null if the key is not found
+     */
+    @Nullable
+    default <T> T get(ContextKey<T> key) {
+        return key.cast(this.get(key.getName()));
+    }
+
+    /**
+     * Puts the value of a typed key.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    default <T> void put(ContextKey<T> key, T value) {
+        this.put(key.getName(), value);
+    }
+
     /**
      * Puts a key-value pair into the object.
      *
@@ -1,5 +1,9 @@
 package org.gloryjie.scheduler.api;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 public interface DagEngine {
 
     /**
@@ -25,6 +29,64 @@ public interface DagEngine {
     DagResult fire(DagGraph dagGraph, Object context, Long timeout);
 
 
+    /**
+     * Asynchronously schedules the DAG node, the calling thread is not blocked.
+     *
+     * @param dagGraph The DAG graph containing the node.
+     * @param context  The execution context for the graph.
+     * @return a future completed with the result once the dag is done
+     */
+    default CompletableFuture<DagResult> fireAsync(DagGraph dagGraph, Object context) {
+        return fireAsync(dagGraph, context, dagGraph.timeout());
+    }
+
+
+    /**
+     * Asynchronously schedules the DAG node with a timeout.
+     * The returned future is completed by the thread that finishes the dag,
+     * or by the timer when the dag is not completed in time.
+     * Engines which could not run asynchronously complete the future on the calling thread.
+     *
+     * @param dagGraph the DAG graph to schedule
+     * @param context  the context object
+     * @param timeout  the timeout in milliseconds
+     * @return a future completed with the result once the dag is done
+     */
+    default CompletableFuture<DagResult> fireAsync(DagGraph dagGraph, Object context, Long timeout) {
+        return CompletableFuture.completedFuture(fire(dagGraph, context, timeout));
+    }
+
+
+    /**
+     * Synchronously schedules the DAG for every context of the batch.
+     *
+     * @param dagGraph the DAG graph to schedule
+     * @param contexts the context objects, the graph runs once for each of them
+     * @return the results, one for each context in the same order
+     */
+    default List<DagResult> fireBatch(DagGraph dagGraph, List<?> contexts) {
+        return fireBatch(dagGraph, contexts, dagGraph.timeout());
+    }
+
+
+    /**
+     * Synchronously schedules the DAG for every context of the batch with a timeout.
+     * Engines which could not batch just fire the graph for every context one by one.
+     *
+     * @param dagGraph the DAG graph to schedule
+     * @param contexts the context objects, the graph runs once for each of them
+     * @param timeout  the timeout in milliseconds of the whole batch
+     * @return the results, one for each context in the same order
+     */
+    default List<DagResult> fireBatch(DagGraph dagGraph, List<?> contexts, Long timeout) {
+        List<DagResult> results = new ArrayList<>(contexts.size());
+        for (Object context : contexts) {
+            results.add(fire(dagGraph, context, timeout));
+        }
+        return results;
+    }
+
+
     void registerFilter(DagNodeFilter filter);
 
 }
@@ -0,0 +1,66 @@
+package org.gloryjie.scheduler.api;
+
+/**
+ * Lifecycle event of a dag run or of one of its nodes, delivered to the {@link DagExecutionListener}s.
+ * <p>
+ * The event object is reused once the listeners return, so it must not be kept by a listener,
+ * copy the needed fields instead.
+ */
+public interface DagExecutionEvent {
+
+    enum Type {
+
+        DAG_STARTED,
+
+        NODE_SUBMITTED,
+
+        NODE_STARTED,
+
+        NODE_COMPLETED,
+
+        NODE_TIMED_OUT,
+
+        DAG_COMPLETED
+
+    }
+
+    Type getType();
+
+    /**
+     * Returns the id of the run, unique in the JVM, so the events of concurrent runs could be told apart.
+     *
+     * @return the run id
+     */
+    long getRunId();
+
+    String getGraphName();
+
+    /**
+     * @return the node name, null for the dag events
+     */
+    String getNodeName();
+
+    /**
+     * @return the final state of the run for {@link Type#DAG_COMPLETED}, otherwise null
+     */
+    DagState getDagState();
+
+    /**
+     * @return the final state of the node for {@link Type#NODE_COMPLETED} and {@link Type#NODE_TIMED_OUT},
+     * otherwise null
+     */
+    NodeState getNodeState();
+
+    /**
+     * @return the failure of the node or of the run, null if it succeeded
+     */
+    Throwable getThrowable();
+
+    /**
+     * Returns the time the event happened, from {@link System#nanoTime()}.
+     *
+     * @return the time in nanoseconds
+     */
+    long getNanoTime();
+
+}
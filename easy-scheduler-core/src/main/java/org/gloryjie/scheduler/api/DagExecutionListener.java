@@ -0,0 +1,30 @@
+package org.gloryjie.scheduler.api;
+
+/**
+ * Listener of the lifecycle of the dag runs.
+ * <p>
+ * Unlike a {@link DagNodeFilter} it does not run inside the node execution: the engine publishes the events
+ * into a ring buffer and the listeners are called later on a dispatcher thread, one event at a time in the order
+ * they are published, so a slow listener delays the other listeners but never the dag runs.
+ */
+public interface DagExecutionListener {
+
+    default void onDagStarted(DagExecutionEvent event) {
+    }
+
+    default void onNodeSubmitted(DagExecutionEvent event) {
+    }
+
+    default void onNodeStarted(DagExecutionEvent event) {
+    }
+
+    default void onNodeCompleted(DagExecutionEvent event) {
+    }
+
+    default void onNodeTimedOut(DagExecutionEvent event) {
+    }
+
+    default void onDagCompleted(DagExecutionEvent event) {
+    }
+
+}
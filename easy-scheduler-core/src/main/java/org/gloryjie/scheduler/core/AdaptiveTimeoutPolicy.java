@@ -0,0 +1,178 @@
+package org.gloryjie.scheduler.core;
+
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Derives the timeout of a node from its observed latency instead of a static number.
+ * <p>
+ * The effective timeout is a percentile of the latency recorded in the {@link LatencyHistogram} of the node,
+ * times a multiplier, clamped between the min and max timeout. The max timeout defaults to the timeout
+ * configured on the node, so the adaptive timeout only tightens it. Until a node has enough samples
+ * the configured timeout is used. The histogram is halved once it holds a window of samples,
+ * so the timeout follows the recent latency of the backend.
+ */
+@ToString
+public class AdaptiveTimeoutPolicy {
+
+    private final double percentile;
+
+    private final double multiplier;
+
+    private final long minTimeout;
+
+    private final long maxTimeout;
+
+    private final long minSamples;
+
+    private final long windowSamples;
+
+    private final long refreshIntervalNanos;
+
+    private AdaptiveTimeoutPolicy(Builder builder) {
+        this.percentile = builder.percentile;
+        this.multiplier = builder.multiplier;
+        this.minTimeout = builder.minTimeout;
+        this.maxTimeout = builder.maxTimeout;
+        this.minSamples = builder.minSamples;
+        this.windowSamples = builder.windowSamples;
+        this.refreshIntervalNanos = builder.refreshIntervalNanos;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the effective timeout of the node.
+     *
+     * @param plan              the execution plan of the graph
+     * @param index             the index of the node
+     * @param configuredTimeout the timeout configured on the node in milliseconds, null or 0 if none
+     * @return the timeout in milliseconds, null or 0 if the node has no timeout
+     */
+    public Long timeout(DagExecutionPlan plan, int index, Long configuredTimeout) {
+        LatencyHistogram histogram = plan.latencyHistogram(index);
+        long count = histogram.count();
+        if (count < minSamples) {
+            return configuredTimeout;
+        }
+        if (count > windowSamples) {
+            histogram.decay();
+        }
+
+        long percentileNanos = histogram.percentile(percentile, refreshIntervalNanos);
+        long timeout = (long) Math.ceil(percentileNanos * multiplier / TimeUnit.MILLISECONDS.toNanos(1));
+        long upperBound = maxTimeout > 0 ? maxTimeout
+                : configuredTimeout != null && configuredTimeout > 0 ? configuredTimeout : Long.MAX_VALUE;
+        return Math.min(Math.max(timeout, minTimeout), upperBound);
+    }
+
+
+    public static class Builder {
+
+        private double percentile = 99;
+
+        private double multiplier = 2;
+
+        private long minTimeout = 1;
+
+        private long maxTimeout;
+
+        private long minSamples = 100;
+
+        private long windowSamples = 10000;
+
+        private long refreshIntervalNanos = TimeUnit.MILLISECONDS.toNanos(100);
+
+        Builder() {
+
+        }
+
+        /**
+         * @param percentile the latency percentile in (0, 100], 99 by default
+         */
+        public Builder percentile(double percentile) {
+            if (percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be in (0, 100]: " + percentile);
+            }
+            this.percentile = percentile;
+            return this;
+        }
+
+        /**
+         * @param multiplier the multiplier of the percentile, 2 by default
+         */
+        public Builder multiplier(double multiplier) {
+            if (multiplier <= 0) {
+                throw new IllegalArgumentException("multiplier must be greater than 0: " + multiplier);
+            }
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * @param minTimeout the min timeout in milliseconds, 1 by default
+         */
+        public Builder minTimeout(long minTimeout) {
+            if (minTimeout <= 0) {
+                throw new IllegalArgumentException("minTimeout must be greater than 0: " + minTimeout);
+            }
+            this.minTimeout = minTimeout;
+            return this;
+        }
+
+        /**
+         * @param maxTimeout the max timeout in milliseconds, 0 to use the timeout configured on the node
+         */
+        public Builder maxTimeout(long maxTimeout) {
+            if (maxTimeout < 0) {
+                throw new IllegalArgumentException("maxTimeout must not be negative: " + maxTimeout);
+            }
+            this.maxTimeout = maxTimeout;
+            return this;
+        }
+
+        /**
+         * @param minSamples the number of samples needed before the adaptive timeout applies, 100 by default
+         */
+        public Builder minSamples(long minSamples) {
+            if (minSamples <= 0) {
+                throw new IllegalArgumentException("minSamples must be greater than 0: " + minSamples);
+            }
+            this.minSamples = minSamples;
+            return this;
+        }
+
+        /**
+         * @param windowSamples the number of samples after which the histogram is halved, 10000 by default
+         */
+        public Builder windowSamples(long windowSamples) {
+            if (windowSamples <= 0) {
+                throw new IllegalArgumentException("windowSamples must be greater than 0: " + windowSamples);
+            }
+            this.windowSamples = windowSamples;
+            return this;
+        }
+
+        /**
+         * @param refreshInterval the max age of the computed percentile, 100ms by default
+         * @param unit            the unit of the interval
+         */
+        public Builder refreshInterval(long refreshInterval, TimeUnit unit) {
+            if (refreshInterval < 0) {
+                throw new IllegalArgumentException("refreshInterval must not be negative: " + refreshInterval);
+            }
+            this.refreshIntervalNanos = unit.toNanos(refreshInterval);
+            return this;
+        }
+
+        public AdaptiveTimeoutPolicy build() {
+            if (minSamples > windowSamples) {
+                throw new IllegalArgumentException("minSamples must not be greater than windowSamples");
+            }
+            return new AdaptiveTimeoutPolicy(this);
+        }
+    }
+}
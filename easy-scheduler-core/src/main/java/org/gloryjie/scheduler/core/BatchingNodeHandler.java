@@ -0,0 +1,185 @@
+package org.gloryjie.scheduler.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gloryjie.scheduler.api.AsyncNodeHandler;
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.api.DagNode;
+import org.gloryjie.scheduler.core.timer.DagTimer;
+import org.gloryjie.scheduler.core.timer.HashedWheelDagTimer;
+import org.gloryjie.scheduler.core.timer.Timeout;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * NodeHandler coalescing the requests of concurrent dag runs into one batched call, like a DataLoader.
+ * <p>
+ * Every node execution contributes a key to the current batch, the batch is loaded when the window
+ * elapses since its first key or when it reaches the max batch size, whichever comes first.
+ * The same key requested by several runs in one batch is loaded only once.
+ * The nodes waiting for the batch do not hold any thread of the engine, they are completed
+ * by the thread completing the stage returned by {@link #loadBatch(List)}.
+ * <p>
+ * {@link #loadBatch(List)} is called on the timer thread or on the thread adding the last key of a full batch,
+ * so it must not block, return a stage completed by an async client or by another executor instead.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+@Slf4j
+public abstract class BatchingNodeHandler<K, V> implements AsyncNodeHandler<V> {
+
+    private static volatile DagTimer defaultTimer;
+
+    private final long windowNanos;
+
+    private final int maxBatchSize;
+
+    private final DagTimer timer;
+
+    private final Object lock = new Object();
+
+    private Batch currentBatch;
+
+
+    protected BatchingNodeHandler(long window, TimeUnit unit, int maxBatchSize) {
+        this(window, unit, maxBatchSize, null);
+    }
+
+    /**
+     * Creates a batching handler.
+     *
+     * @param window       the max time a key waits for other keys before the batch is loaded
+     * @param unit         the unit of the window
+     * @param maxBatchSize the max number of distinct keys in a batch
+     * @param timer        the timer of the window, null to use the shared one
+     */
+    protected BatchingNodeHandler(long window, TimeUnit unit, int maxBatchSize, DagTimer timer) {
+        if (window < 0) {
+            throw new IllegalArgumentException("window must not be negative: " + window);
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize must be greater than 0: " + maxBatchSize);
+        }
+        this.windowNanos = unit.toNanos(window);
+        this.maxBatchSize = maxBatchSize;
+        this.timer = timer;
+    }
+
+    /**
+     * Returns the key requested by the node in this run.
+     *
+     * @param dagNode    the node
+     * @param dagContext the context of the run
+     * @return the key to load
+     */
+    protected abstract K getKey(DagNode<Object> dagNode, DagContext dagContext);
+
+    /**
+     * Loads the values of all the keys of a batch, must not block.
+     * Keys missing from the map get a null value.
+     *
+     * @param keys the distinct keys of the batch
+     * @return the stage completed with the values of the keys
+     */
+    protected abstract CompletionStage<Map<K, V>> loadBatch(List<K> keys);
+
+
+    @Override
+    public CompletionStage<V> executeAsync(DagNode<Object> dagNode, DagContext dagContext) {
+        K key = getKey(dagNode, dagContext);
+        CompletableFuture<V> future = new CompletableFuture<>();
+        Batch fullBatch = null;
+        synchronized (lock) {
+            Batch batch = currentBatch;
+            if (batch == null) {
+                batch = new Batch();
+                currentBatch = batch;
+                // the batch is not visible to the timer before this thread leaves the lock
+                batch.timeout = timer().newTimeout(batch::dispatch, windowNanos, TimeUnit.NANOSECONDS);
+            }
+            batch.waiters.computeIfAbsent(key, k -> new ArrayList<>(1)).add(future);
+            if (batch.waiters.size() >= maxBatchSize) {
+                currentBatch = null;
+                fullBatch = batch;
+            }
+        }
+        if (fullBatch != null) {
+            fullBatch.timeout.cancel();
+            fullBatch.dispatch();
+        }
+        return future;
+    }
+
+    private DagTimer timer() {
+        if (timer != null) {
+            return timer;
+        }
+        DagTimer dagTimer = defaultTimer;
+        if (dagTimer == null) {
+            synchronized (BatchingNodeHandler.class) {
+                dagTimer = defaultTimer;
+                if (dagTimer == null) {
+                    // windows are a few milliseconds, so the ticks are finer than the node timeout timer
+                    dagTimer = new HashedWheelDagTimer(1, TimeUnit.MILLISECONDS, 512, "easy-scheduler-batching-timer");
+                    defaultTimer = dagTimer;
+                }
+            }
+        }
+        return dagTimer;
+    }
+
+
+    private final class Batch {
+
+        private final Map<K, List<CompletableFuture<V>>> waiters = new LinkedHashMap<>();
+
+        private final AtomicBoolean dispatched = new AtomicBoolean();
+
+        private Timeout timeout;
+
+        void dispatch() {
+            if (!dispatched.compareAndSet(false, true)) {
+                return;
+            }
+            synchronized (lock) {
+                // the window elapsed before the batch is full, no key could be added any more
+                if (currentBatch == this) {
+                    currentBatch = null;
+                }
+            }
+
+            List<K> keys = new ArrayList<>(waiters.keySet());
+            CompletionStage<Map<K, V>> stage;
+            try {
+                stage = loadBatch(keys);
+            } catch (Throwable t) {
+                stage = failedStage(t);
+            }
+            if (stage == null) {
+                stage = failedStage(new NullPointerException("loadBatch returned null stage"));
+            }
+            stage.whenComplete((values, throwable) -> {
+                if (throwable != null) {
+                    log.debug("load batch of {} keys failed", keys.size(), throwable);
+                    waiters.values().forEach(futures -> futures.forEach(f -> f.completeExceptionally(throwable)));
+                    return;
+                }
+                waiters.forEach((key, futures) -> {
+                    V value = values == null ? null : values.get(key);
+                    futures.forEach(f -> f.complete(value));
+                });
+            });
+        }
+
+        private CompletionStage<Map<K, V>> failedStage(Throwable t) {
+            CompletableFuture<Map<K, V>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(t);
+            return failed;
+        }
+    }
+
+}
@@ -4,29 +4,76 @@ import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.collections4.CollectionUtils;
 import org.gloryjie.scheduler.api.*;
-
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import org.gloryjie.scheduler.core.cache.NodeResultCache;
+import org.gloryjie.scheduler.core.event.DagEventDispatcher;
+import org.gloryjie.scheduler.core.metrics.DagMetricsRecorder;
+import org.gloryjie.scheduler.core.timer.DagTimer;
+import org.gloryjie.scheduler.core.timer.HashedWheelDagTimer;
+import org.gloryjie.scheduler.core.timer.Timeout;
+import org.gloryjie.scheduler.core.trace.DagTrace;
+import org.gloryjie.scheduler.core.trace.DagTraceRecorder;
+import org.gloryjie.scheduler.core.trace.NodeSpan;
+
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
-import java.util.function.Supplier;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @Slf4j
 public class ConcurrentDagEngine implements DagEngine {
 
-    private final ScheduledExecutorService scheduledExecutorService = new ScheduledThreadPoolExecutor(1,
-            runnable -> {
-                Thread thread = new Thread(runnable);
-                thread.setName("ConcurrentDagEngineScheduled");
-                thread.setDaemon(true);
-                return thread;
-            });
+    /**
+     * Node attribute of the {@link NodeExecutionMode}, the value could be the enum or its name
+     */
+    public static final String EXECUTION_MODE_ATTRIBUTE = "#EXECUTION_MODE#";
+
+    /**
+     * Node attribute marking a node which blocks, e.g. on I/O, the value could be true or "true".
+     * A blocking node runs as a {@link ForkJoinPool.ManagedBlocker}, so a ForkJoinPool compensates the blocked worker.
+     */
+    public static final String BLOCKING_ATTRIBUTE = "#BLOCKING#";
+
+    /**
+     * Node attribute enabling hedged execution of an idempotent node: a second attempt is launched
+     * if the first one is still running after a delay, and the first successful attempt completes the node.
+     * The value is the delay in milliseconds, or true / "true" to use the observed p95 latency of the node.
+     */
+    public static final String HEDGE_ATTRIBUTE = "#HEDGE#";
+
+    /**
+     * Number of executions observed before a node hedged after its p95 latency is hedged
+     */
+    private static final int HEDGE_MIN_SAMPLES = 20;
+
+    private static final double HEDGE_PERCENTILE = 95;
+
+    private static final long HEDGE_PERCENTILE_MAX_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Number of executions observed before a node in AUTO mode could run inline
+     */
+    private static final int INLINE_MIN_SAMPLES = 8;
+
+    /**
+     * Run states of a node task, so a task is interrupted only while it runs the node
+     */
+    private static final int RUN_IDLE = 0;
+    private static final int RUN_RUNNING = 1;
+    private static final int RUN_INTERRUPTING = 2;
+    private static final int RUN_DONE = 3;
+
+    private static final AtomicIntegerFieldUpdater<DagExecutor.NodeTask> RUN_STATE_UPDATER =
+            AtomicIntegerFieldUpdater.newUpdater(DagExecutor.NodeTask.class, "runState");
+
+    private static final AtomicLong RUN_ID_GENERATOR = new AtomicLong();
+
+    private final DagTimer dagTimer;
+
     private final ExecutorSelector executorSelector;
 
     private final List<DagNodeFilter> dagNodeFilters = new CopyOnWriteArrayList<>();
@@ -35,13 +82,40 @@ public class ConcurrentDagEngine implements DagEngine {
 
     private DagNodeInvoker rawDagNodeInvoker;
 
+    private volatile long inlineLatencyThresholdNanos;
+
+    private volatile int batchChunkSize = 64;
+
+    private volatile AdaptiveTimeoutPolicy adaptiveTimeoutPolicy;
+
+    private volatile HedgeBudget hedgeBudget = new HedgeBudget(0.05);
+
+    private volatile boolean interruptOnCancel;
+
+    private volatile DagMetricsRecorder metricsRecorder;
+
+    private volatile DagEventDispatcher eventDispatcher;
+
+    private volatile DagTraceRecorder traceRecorder;
+
+    private volatile Executor completionExecutor = DefaultCompletionExecutorHolder.EXECUTOR;
+
 
     public ConcurrentDagEngine() {
         this(new SingleExcutorSelector(Runtime.getRuntime().availableProcessors()));
     }
 
     public ConcurrentDagEngine(ExecutorSelector executorSelector) {
+        this(executorSelector, DefaultTimerHolder.TIMER);
+    }
+
+    /**
+     * @param executorSelector the selector of the executor running the nodes, null means running on the calling thread
+     * @param dagTimer         the timer enforcing the node and graph timeouts
+     */
+    public ConcurrentDagEngine(ExecutorSelector executorSelector, DagTimer dagTimer) {
         this.executorSelector = executorSelector;
+        this.dagTimer = Objects.requireNonNull(dagTimer, "dagTimer must not be null");
         this.rawDagNodeInvoker = new RawDagNodeInvoker();
         this.dagNodeInvoker = rawDagNodeInvoker;
     }
@@ -49,16 +123,206 @@ public class ConcurrentDagEngine implements DagEngine {
 
     @Override
     public DagResult fire(DagGraph dagGraph, Object context, Long timeout) {
-        ExecutorService executorService = null;
-        if (executorSelector != null) {
-            executorService = executorSelector.select(dagGraph.getGraphName());
-        }
-        ConcurrentDagContext dagContext = new ConcurrentDagContext(context);
-        DagExecutor dagExecutor = new DagExecutor(executorService, dagGraph, dagContext, timeout);
+        DagExecutor dagExecutor = createDagExecutor(dagGraph, context, timeout);
         dagExecutor.start();
+        // Wait for the DAG execution to complete
+        dagExecutor.await();
         return dagExecutor;
     }
 
+    @Override
+    public CompletableFuture<DagResult> fireAsync(DagGraph dagGraph, Object context, Long timeout) {
+        DagExecutor dagExecutor = createDagExecutor(dagGraph, context, timeout);
+        dagExecutor.start();
+        return dagExecutor.resultFuture;
+    }
+
+    /**
+     * Fires the graph for a batch of contexts in one scheduling pass: the contexts are split into chunks
+     * of {@link #setBatchChunkSize(int)}, and every node runs as one task over a chunk,
+     * a {@link BatchNodeHandler} receives all the contexts of the chunk at once, unless filters are registered
+     * or the node has a {@link NodeResultCache}, then the node runs once per context through them.
+     * Every context still has its own dag state, a failed context does not affect the others.
+     * The timeout applies to every chunk, the node timeouts and the inline execution are not applied in batch mode.
+     */
+    @Override
+    public List<DagResult> fireBatch(DagGraph dagGraph, List<?> contexts, Long timeout) {
+        List<DagResult> results = new ArrayList<>(contexts.size());
+        if (contexts.isEmpty()) {
+            return results;
+        }
+        ExecutorService executorService = selectExecutor(dagGraph);
+        DagExecutionPlan plan = DagExecutionPlan.of(dagGraph);
+        int chunkSize = batchChunkSize;
+
+        List<BatchExecutor> batchExecutors = new ArrayList<>((contexts.size() + chunkSize - 1) / chunkSize);
+        for (int from = 0; from < contexts.size(); from += chunkSize) {
+            BatchItem[] items = new BatchItem[Math.min(chunkSize, contexts.size() - from)];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = new BatchItem(plan, new SlotDagContext(plan, contexts.get(from + i)));
+                results.add(items[i]);
+            }
+            batchExecutors.add(new BatchExecutor(executorService, dagGraph, plan, items, timeout));
+        }
+
+        try {
+            for (BatchExecutor batchExecutor : batchExecutors) {
+                batchExecutor.start();
+            }
+            for (BatchExecutor batchExecutor : batchExecutors) {
+                batchExecutor.await();
+            }
+        } finally {
+            try {
+                releaseExecutor(dagGraph, executorService);
+            } catch (Exception e) {
+                log.error("Graph[{}] release executor error", dagGraph.getGraphName(), e);
+            }
+        }
+        return results;
+    }
+
+    private DagExecutor createDagExecutor(DagGraph dagGraph, Object context, Long timeout) {
+        ExecutorService executorService = selectExecutor(dagGraph);
+        SlotDagContext dagContext = new SlotDagContext(DagExecutionPlan.of(dagGraph), context);
+        return new DagExecutor(executorService, dagGraph, dagContext, timeout);
+    }
+
+    /**
+     * Returns the executor running the nodes of a dag run, it is called once for every run.
+     *
+     * @param dagGraph the graph to run
+     * @return the executor, null means running the nodes on the calling thread
+     */
+    protected ExecutorService selectExecutor(DagGraph dagGraph) {
+        return executorSelector == null ? null : executorSelector.select(dagGraph.getGraphName());
+    }
+
+    /**
+     * Called once when a dag run is done, whatever the final state is.
+     * Nodes of the run may still be running, and nodes submitted after that are ignored,
+     * so a subclass which creates an executor per run could shut it down here.
+     *
+     * @param dagGraph        the graph of the run
+     * @param executorService the executor returned by {@link #selectExecutor(DagGraph)}
+     */
+    protected void releaseExecutor(DagGraph dagGraph, ExecutorService executorService) {
+    }
+
+    /**
+     * Sets the number of contexts a node task runs over in {@link #fireBatch(DagGraph, List, Long)}, 64 by default.
+     * A smaller chunk gives more parallelism, a larger one fewer tasks.
+     *
+     * @param batchChunkSize the number of contexts of a chunk
+     */
+    public void setBatchChunkSize(int batchChunkSize) {
+        if (batchChunkSize <= 0) {
+            throw new IllegalArgumentException("batch chunk size must be greater than 0: " + batchChunkSize);
+        }
+        this.batchChunkSize = batchChunkSize;
+    }
+
+    /**
+     * Sets the latency threshold under which a node in AUTO mode runs inline on the thread which makes it ready,
+     * 0 disables the automatic inline execution, which is the default.
+     *
+     * @param threshold the average latency threshold
+     * @param unit      the unit of the threshold
+     */
+    public void setInlineLatencyThreshold(long threshold, TimeUnit unit) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("inline latency threshold must not be negative: " + threshold);
+        }
+        this.inlineLatencyThresholdNanos = unit.toNanos(threshold);
+    }
+
+    /**
+     * Sets the policy deriving the node timeouts from the observed latency, null disables it, which is the default.
+     * The latency of every node is recorded into a histogram while the policy is set.
+     *
+     * @param adaptiveTimeoutPolicy the policy
+     */
+    public void setAdaptiveTimeoutPolicy(AdaptiveTimeoutPolicy adaptiveTimeoutPolicy) {
+        this.adaptiveTimeoutPolicy = adaptiveTimeoutPolicy;
+    }
+
+    /**
+     * Sets the budget of the hedged executions of the nodes with {@link #HEDGE_ATTRIBUTE}, 5% by default,
+     * null disables hedging.
+     *
+     * @param hedgeBudget the budget shared by all the runs of the engine
+     */
+    public void setHedgeBudget(HedgeBudget hedgeBudget) {
+        this.hedgeBudget = hedgeBudget;
+    }
+
+    public HedgeBudget getHedgeBudget() {
+        return hedgeBudget;
+    }
+
+    /**
+     * Sets whether the threads running the nodes of a run are interrupted when the run is done, false by default.
+     * Without it the queued nodes are still removed and the handlers could check
+     * {@link DagContext#getCancellationToken()}. Only enable it if the handlers tolerate interrupts,
+     * e.g. an interrupted NIO channel is closed.
+     *
+     * @param interruptOnCancel true to interrupt the running nodes
+     */
+    public void setInterruptOnCancel(boolean interruptOnCancel) {
+        this.interruptOnCancel = interruptOnCancel;
+    }
+
+    /**
+     * Sets the recorder of the node and run metrics, null disables the metrics, which is the default.
+     *
+     * @param metricsRecorder the recorder shared by all the runs of the engine
+     */
+    public void setMetricsRecorder(DagMetricsRecorder metricsRecorder) {
+        this.metricsRecorder = metricsRecorder;
+    }
+
+    public DagMetricsRecorder getMetricsRecorder() {
+        return metricsRecorder;
+    }
+
+    /**
+     * Sets the dispatcher delivering the lifecycle events of the runs to its listeners,
+     * null disables the events, which is the default.
+     * The engine does not close the dispatcher, it could be shared by several engines.
+     *
+     * @param eventDispatcher the dispatcher
+     */
+    public void setEventDispatcher(DagEventDispatcher eventDispatcher) {
+        this.eventDispatcher = eventDispatcher;
+    }
+
+    public DagEventDispatcher getEventDispatcher() {
+        return eventDispatcher;
+    }
+
+    /**
+     * Sets the recorder of the timelines of the sampled runs, null disables the tracing, which is the default.
+     * The runs of {@link #fireBatch(DagGraph, List, Long)} are not traced.
+     *
+     * @param traceRecorder the recorder
+     */
+    public void setTraceRecorder(DagTraceRecorder traceRecorder) {
+        this.traceRecorder = traceRecorder;
+    }
+
+    /**
+     * Sets the executor finishing the runs and the nodes timed out by the timer, so the timer thread only
+     * marks them as timed out. The done path of such a run, including the callbacks of
+     * {@link #fireAsync(DagGraph, Object, Long)}, runs on this executor.
+     * A shared pool of at most 64 daemon threads, created when needed, with a queue of 1024 tasks is used by default.
+     * A task rejected by the executor runs on the timer thread.
+     *
+     * @param completionExecutor the executor
+     */
+    public void setCompletionExecutor(Executor completionExecutor) {
+        this.completionExecutor = Objects.requireNonNull(completionExecutor, "completionExecutor must not be null");
+    }
+
     @Override
     public synchronized void registerFilter(DagNodeFilter filter) {
         dagNodeFilters.add(filter);
@@ -73,37 +337,199 @@ public class ConcurrentDagEngine implements DagEngine {
 
 
     /**
-     * Wraps the given CompletableFuture with a timeout.
+     * Executes the node on the current thread.
+     *
+     * @param node       the node
+     * @param dagContext the context
+     * @param nodeResult the result to fill
+     * @param allowDefer whether the node of an {@link AsyncNodeHandler} could be completed later
+     * @return the pending stage of the AsyncNodeHandler, the node result is filled when it completes;
+     * or null if the node result has been filled
+     */
+    @SuppressWarnings("all")
+    private CompletionStage<?> executeNode(DagNode node, DagContext dagContext,
+                                           NodeResultImpl<Object> nodeResult, boolean allowDefer) {
+        // init node
+        nodeResult.setStartTime(System.currentTimeMillis());
+        nodeResult.setStartNanos(System.nanoTime());
+        nodeResult.setState(NodeState.RUNNING);
+
+        DagNodeInvoker invoker = dagNodeInvoker;
+        try {
+            Object result = invoker.invoke(node, dagContext);
+            if (result instanceof CompletionStage && node.getHandler() instanceof AsyncNodeHandler) {
+                // a stage already done, e.g. a shared result, completes the node right away
+                if (allowDefer && !((CompletionStage<?>) result).toCompletableFuture().isDone()) {
+                    return (CompletionStage<?>) result;
+                }
+                result = join((CompletionStage<?>) result);
+            }
+            nodeResult.setResult(result);
+            nodeResult.setState(NodeState.SUCCEEDED);
+        } catch (Exception e) {
+            nodeResult.setThrowable(e);
+            nodeResult.setState(NodeState.FAILED);
+        }
+
+        nodeResult.setEndTime(System.currentTimeMillis());
+        nodeResult.setEndNanos(System.nanoTime());
+        return null;
+    }
+
+    private static Object join(CompletionStage<?> stage) throws Exception {
+        try {
+            return stage.toCompletableFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            return throwable.getCause();
+        }
+        return throwable;
+    }
+
+    /**
+     * Handlers take the node as a DagNode of Object whatever the result type of the node
+     */
+    @SuppressWarnings("unchecked")
+    private static DagNode<Object> asObjectNode(DagNode<?> node) {
+        return (DagNode<Object>) node;
+    }
+
+    private void recordNodeMetrics(DagGraph dagGraph, DagExecutionPlan plan, int nodeIndex,
+                                   NodeResultImpl<Object> nodeResult) {
+        DagMetricsRecorder recorder = metricsRecorder;
+        if (recorder == null || nodeIndex == plan.startIndex() || nodeIndex == plan.endIndex()) {
+            return;
+        }
+        recorder.recordNode(dagGraph.getGraphName(), nodeResult.getNodeName(), nodeResult.getState(),
+                nodeResult.getStartNanos() - nodeResult.getSubmitNanos(),
+                nodeResult.getEndNanos() - nodeResult.getStartNanos());
+    }
+
+    private void recordDagMetrics(DagGraph dagGraph, DagState state, long startNanos) {
+        DagMetricsRecorder recorder = metricsRecorder;
+        if (recorder != null) {
+            recorder.recordDag(dagGraph.getGraphName(), state, System.nanoTime() - startNanos);
+        }
+    }
+
+    private void publishDagEvent(DagExecutionEvent.Type type, long runId, DagGraph dagGraph,
+                                 DagState state, Throwable throwable) {
+        DagEventDispatcher dispatcher = eventDispatcher;
+        if (dispatcher != null) {
+            dispatcher.publish(type, runId, dagGraph.getGraphName(), null, state, null, throwable);
+        }
+    }
+
+    private void publishNodeEvent(DagExecutionEvent.Type type, long runId, DagGraph dagGraph, DagExecutionPlan plan,
+                                  int nodeIndex, NodeResultImpl<Object> nodeResult) {
+        DagEventDispatcher dispatcher = eventDispatcher;
+        if (dispatcher == null || nodeIndex == plan.startIndex() || nodeIndex == plan.endIndex()) {
+            return;
+        }
+        boolean completed = type == DagExecutionEvent.Type.NODE_COMPLETED || type == DagExecutionEvent.Type.NODE_TIMED_OUT;
+        dispatcher.publish(type, runId, dagGraph.getGraphName(), nodeResult.getNodeName(), null,
+                completed ? nodeResult.getState() : null, completed ? nodeResult.getThrowable() : null);
+    }
+
+    private static DagExecutionEvent.Type completedEventType(NodeResultImpl<Object> nodeResult) {
+        return nodeResult.getState() == NodeState.TIMEOUT
+                ? DagExecutionEvent.Type.NODE_TIMED_OUT : DagExecutionEvent.Type.NODE_COMPLETED;
+    }
+
+    private static boolean isBlocking(DagNode<?> node) {
+        Object blocking = node.getAttribute(BLOCKING_ATTRIBUTE);
+        return blocking != null && Boolean.parseBoolean(blocking.toString());
+    }
+
+    /**
+     * Returns the hedge delay of the node.
      *
-     * @param dagNode    the DagNode associated with the CompletableFuture
-     * @param nodeResult the result of the DagNode
-     * @param future     the CompletableFuture to wrap with a timeout
-     * @return a CompletableFuture that completes with the result of the original CompletableFuture,
-     * or completes with nodeResult that state is TIMEOUT and throwable is TimeoutException
-     * if the original does not complete within the specified timeout period
+     * @return the delay in nanoseconds, or -1 if the node is not hedged
      */
-    protected CompletableFuture<NodeResultImpl<Object>> wrapNodeFutureWithTimeout(
-            DagNode<?> dagNode,
-            NodeResultImpl<Object> nodeResult,
-            CompletableFuture<NodeResultImpl<Object>> future
-    ) {
-        if (dagNode.timeout() == null || dagNode.timeout() <= 0 || future.isDone()) {
-            return future;
+    private static long getHedgeDelayNanos(DagExecutionPlan plan, int nodeIndex, DagNode<?> node) {
+        Object hedge = node.getAttribute(HEDGE_ATTRIBUTE);
+        if (hedge == null) {
+            return -1;
         }
+        if (hedge instanceof Number) {
+            return TimeUnit.MILLISECONDS.toNanos(((Number) hedge).longValue());
+        }
+        String value = hedge.toString().trim();
+        if (!Boolean.parseBoolean(value)) {
+            return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(value));
+        }
+        LatencyHistogram histogram = plan.latencyHistogram(nodeIndex);
+        if (histogram.count() < HEDGE_MIN_SAMPLES) {
+            return -1;
+        }
+        return histogram.percentile(HEDGE_PERCENTILE, HEDGE_PERCENTILE_MAX_AGE_NANOS);
+    }
 
-        CompletableFuture<NodeResultImpl<Object>> timeoutFuture = new CompletableFuture<>();
+    private static NodeExecutionMode getExecutionMode(DagNode<?> node) {
+        Object mode = node.getAttribute(EXECUTION_MODE_ATTRIBUTE);
+        if (mode == null) {
+            return NodeExecutionMode.AUTO;
+        }
+        if (mode instanceof NodeExecutionMode) {
+            return (NodeExecutionMode) mode;
+        }
+        return NodeExecutionMode.valueOf(mode.toString().trim().toUpperCase());
+    }
 
-        scheduledExecutorService.schedule(() -> {
-            if (!future.isDone()
-                    && (nodeResult.getState() == NodeState.WAITING || nodeResult.getState() == NodeState.RUNNING)) {
-                nodeResult.setState(NodeState.TIMEOUT);
-                String msg = "DagNode[" + dagNode.getNodeName() + "] not completed in " + dagNode.timeout() + "ms";
-                nodeResult.setThrowable(new TimeoutException(msg));
-                future.complete(nodeResult);
-            }
-        }, dagNode.timeout(), TimeUnit.MILLISECONDS);
 
-        return future.applyToEither(timeoutFuture, Function.identity());
+    /**
+     * The timer shared by all the engines created without a timer, it is created on first use
+     */
+    private static class DefaultTimerHolder {
+        private static final DagTimer TIMER = new HashedWheelDagTimer();
+    }
+
+    /**
+     * Up to {@link #MAX_THREADS} threads are created when needed and stopped when idle, so a blocking callback
+     * of a run does not delay the other runs. The tasks beyond them wait in a queue of {@link #QUEUE_CAPACITY},
+     * and a task rejected by a full queue runs on the timer thread, see {@link #runOnCompletionExecutor}.
+     */
+    private static class DefaultCompletionExecutorHolder {
+        private static final int MAX_THREADS = 64;
+        private static final int QUEUE_CAPACITY = 1024;
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+        private static final Executor EXECUTOR = newExecutor();
+
+        private static Executor newExecutor() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                thread.setName("easy-scheduler-completion-" + THREAD_COUNT.getAndIncrement());
+                thread.setUncaughtExceptionHandler((t, e) -> log.error("easy-scheduler thread error", e));
+                return thread;
+            });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
+
+    /**
+     * Runs the rest of the work of a timer task on the completion executor. If the executor rejects it,
+     * the task runs on the timer thread like a CallerRunsPolicy, so the run is still completed
+     * at the cost of delaying the other timer tasks.
+     */
+    private void runOnCompletionExecutor(String graphName, Runnable task) {
+        try {
+            completionExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.warn("Graph[{}] completion rejected, run on the timer thread", graphName, e);
+            task.run();
+        }
     }
 
 
@@ -119,6 +545,16 @@ public class ConcurrentDagEngine implements DagEngine {
         private long startTime;
         private long endTime;
         private long submitTime;
+        /**
+         * Monotonic times of the metrics, in nanoseconds
+         */
+        private long submitNanos;
+        private long startNanos;
+        private long endNanos;
+        /**
+         * Name of the executing thread, only set when the run is traced
+         */
+        private String threadName;
 
         public NodeResultImpl(String nodeName) {
             this.nodeName = nodeName;
@@ -157,10 +593,10 @@ public class ConcurrentDagEngine implements DagEngine {
 
         private final ExecutorService executorService;
         private final DagGraph dagGraph;
+        private final DagExecutionPlan plan;
         @ToString.Include
         private final DagContext dagContext;
-        @ToString.Include
-        private final Map<String, AtomicInteger> nodeInDegreeInfo;
+        private final AtomicIntegerArray nodeInDegrees;
         @ToString.Include
         private final Long timeout;
 
@@ -168,220 +604,711 @@ public class ConcurrentDagEngine implements DagEngine {
         /**
          * Fields that change at run time
          */
-        private final CountDownLatch countDownLatch;
+        private final CompletableFuture<DagResult> resultFuture;
+        private volatile Timeout graphTimeout;
         private final AtomicReference<DagState> dagStateRef = new AtomicReference<>(DagState.WAITING);
+        private final AtomicReferenceArray<NodeState> nodeStates;
+        /**
+         * The task of every fired node, cancelled when the dag is done
+         */
+        private final AtomicReferenceArray<NodeTask> nodeTasks;
         @ToString.Include
-        private final ConcurrentHashMap<String, NodeState> nodeStateMap;
+        private final NodeStateMapView nodeStateMap;
         @ToString.Include
         private volatile Throwable throwable;
         @ToString.Include
         private volatile long startTime;
         @ToString.Include
         private volatile long endTime;
+        private long startNanos;
+        private final long runId = RUN_ID_GENERATOR.incrementAndGet();
+        /**
+         * The recorder of the run if it is sampled, otherwise null
+         */
+        private final DagTraceRecorder traceRecorder;
 
         public DagExecutor(ExecutorService executorService, DagGraph dagGraph, DagContext dagContext, Long timeout) {
             this.executorService = executorService;
             this.dagGraph = dagGraph;
             this.dagContext = dagContext;
             this.timeout = timeout;
+            this.plan = DagExecutionPlan.of(dagGraph);
+
+            // init from the execution plan, run state is indexed by the node index
+            nodeInDegrees = new AtomicIntegerArray(plan.size());
+            nodeStates = new AtomicReferenceArray<>(plan.size());
+            for (int i = 0; i < plan.size(); i++) {
+                nodeInDegrees.set(i, plan.inDegree(i));
+                nodeStates.set(i, NodeState.WAITING);
+            }
+            nodeStateMap = new NodeStateMapView(plan, nodeStates);
+            nodeTasks = new AtomicReferenceArray<>(plan.size());
+            dagContext.put(DagContext.CANCELLATION_TOKEN, new DagStateCancellationToken(dagStateRef));
 
-            // init from dagGraph
-            nodeInDegreeInfo = new ConcurrentHashMap<>();
-            dagGraph.getNodeInDegree().forEach((nodeName, inDegree) ->
-                    nodeInDegreeInfo.put(nodeName, new AtomicInteger(inDegree)));
-            nodeStateMap = new ConcurrentHashMap<>();
-            dagGraph.nodes().forEach(node -> nodeStateMap.put(node.getNodeName(), NodeState.WAITING));
+            DagTraceRecorder recorder = ConcurrentDagEngine.this.traceRecorder;
+            traceRecorder = recorder != null && recorder.sample() ? recorder : null;
 
-            countDownLatch = new CountDownLatch(1);
+            resultFuture = new CompletableFuture<>();
         }
 
         public void start() {
             startTime = System.currentTimeMillis();
+            startNanos = System.nanoTime();
             dagStateRef.set(DagState.RUNNING);
             log.debug("Graph[{}] start", dagGraph.getGraphName());
+            publishDagEvent(DagExecutionEvent.Type.DAG_STARTED, runId, dagGraph, null, null);
 
-            fireNode(dagGraph.getStartNode());
+            // The graph timeout is enforced by the timer, so no thread has to wait for the dag
+            scheduleGraphTimeout();
 
-            // Wait for the DAG execution to complete
-            try {
-                if (timeout == null || timeout <= 0) {
-                    countDownLatch.await();
-                } else {
-                    boolean awaitResult = countDownLatch.await(timeout, TimeUnit.MILLISECONDS);
-                    if (!awaitResult) {
-                        String msg = String.format("Graph[%s] not completed in %s ms",
-                                dagGraph.getGraphName(), timeout);
-                        log.debug(msg);
-                        dagDone(DagState.TIMEOUT, new TimeoutException(msg));
-                    }
+            fireNode(plan.startIndex());
+        }
+
+        private void scheduleGraphTimeout() {
+            if (timeout == null || timeout <= 0) {
+                return;
+            }
+            graphTimeout = dagTimer.newTimeout(() -> {
+                String msg = String.format("Graph[%s] not completed in %s ms", dagGraph.getGraphName(), timeout);
+                // only the state is changed on the timer thread
+                if (markDone(DagState.TIMEOUT, new TimeoutException(msg))) {
+                    log.debug(msg);
+                    runOnCompletionExecutor(dagGraph.getGraphName(), () -> {
+                        releaseRun();
+                        completeRun();
+                    });
                 }
+            }, timeout, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Blocks the calling thread until the dag is done
+         */
+        public void await() {
+            try {
+                resultFuture.get();
             } catch (InterruptedException e) {
                 log.debug("Graph[{}] interrupted", dagGraph.getGraphName());
+                // the dag is done either way, the result future is completed by the one which marked it done
                 dagDone(DagState.INTERRUPTED, e);
+            } catch (ExecutionException e) {
+                // the result future is never completed exceptionally, just in case
+                dagDone(DagState.FAILED, e.getCause());
             }
         }
 
-        private void fireNextNode(DagNode<?> curNode, NodeResultImpl<Object> curNodeResult) {
+        /**
+         * Fires the successor nodes of the completed node.
+         *
+         * @param nodeIndex     the index of the completed node
+         * @param curNodeResult the result of the completed node
+         * @param allowInline   whether one ready successor could be kept to run on the current thread
+         * @return the index of the successor kept to run inline, or -1 if all the ready successors are fired
+         */
+        private int fireNextNode(int nodeIndex, NodeResultImpl<Object> curNodeResult, boolean allowInline) {
             if (dagStateRef.get() != DagState.RUNNING) {
-                return;
+                return -1;
             }
 
             // Mark the entire graph as failed if the node execution was not successful and there are strong dependencies
-            if (curNodeResult.getState() != NodeState.SUCCEEDED) {
-                Map<String, DependencyType> successorNodeTypes =
-                        dagGraph.getSuccessorNodeTypes(curNode.getNodeName());
-                boolean hadStrongDepend = successorNodeTypes.values().stream()
-                        .anyMatch(type -> type == DependencyType.STRONG);
-                // If there are strong dependencies, mark the DAG as failed
-                if (hadStrongDepend) {
-                    dagDone(DagState.FAILED, curNodeResult.getThrowable());
-                    return;
-                }
+            if (curNodeResult.getState() != NodeState.SUCCEEDED && plan.hasStrongSuccessor(nodeIndex)) {
+                dagDone(DagState.FAILED, curNodeResult.getThrowable());
+                return -1;
             }
 
-            List<DagNode<?>> successorNodes = dagGraph.getSuccessorNodes(curNode.getNodeName());
             // If the current node is the end node or there are no successor nodes, mark the DAG as succeeded
-            if (curNode == dagGraph.getEndNode() || CollectionUtils.isEmpty(successorNodes)) {
+            if (nodeIndex == plan.endIndex() || !plan.hasSuccessor(nodeIndex)) {
                 dagDone(DagState.SUCCEED, null);
-            } else {
-                // Decrement the in-degree of successor nodes and fire them
-                decrementIndegreeAndFireSuccessorNodes(successorNodes);
+                return -1;
             }
+            // Decrement the in-degree of successor nodes and fire them
+            return decrementIndegreeAndFireSuccessorNodes(nodeIndex, allowInline);
         }
 
-        private void decrementIndegreeAndFireSuccessorNodes(List<DagNode<?>> successorNodes) {
+        private int decrementIndegreeAndFireSuccessorNodes(int nodeIndex, boolean allowInline) {
             if (dagStateRef.get() != DagState.RUNNING) {
-                return;
+                return -1;
             }
 
-            for (DagNode<?> successorNode : successorNodes) {
-                String nodeName = successorNode.getNodeName();
-                NodeState nodeState = nodeStateMap.get(nodeName);
-                // Check if the node is in the wai ting state and the in-degree is 0
-                if (nodeState == NodeState.WAITING) {
-                    int inDegree = nodeInDegreeInfo.get(successorNode.getNodeName()).decrementAndGet();
+            int inlineIndex = -1;
+            for (int edge = plan.successorStart(nodeIndex); edge < plan.successorEnd(nodeIndex); edge++) {
+                int successorIndex = plan.successor(edge);
+                // Check if the node is in the waiting state and the in-degree is 0
+                if (nodeStates.get(successorIndex) == NodeState.WAITING) {
+                    int inDegree = nodeInDegrees.decrementAndGet(successorIndex);
                     if (inDegree == 0) {
-                        fireNode(successorNode);
+                        // Keep the first cheap one to run on this thread, submit the others
+                        if (allowInline && inlineIndex < 0 && shouldRunInline(successorIndex)) {
+                            inlineIndex = successorIndex;
+                        } else {
+                            fireNode(successorIndex);
+                        }
                     } else if (inDegree < 0) {
                         // safe check
                         dagDone(DagState.FAILED, new DagEngineException("inDegree could not be less than 0"));
                     }
                 }
             }
+            return inlineIndex;
         }
 
-        private void dagDone(DagState state, Throwable throwable) {
-            // Update the state, throwable, and endTime only if the current state is RUNNING
-            if (this.dagStateRef.compareAndSet(DagState.RUNNING, state)) {
-                this.throwable = throwable;
-                this.endTime = System.currentTimeMillis();
+        private boolean shouldRunInline(int nodeIndex) {
+            DagNode<?> node = plan.node(nodeIndex);
+            if (node.getHandler() == null) {
+                // nodes without handler always run on the calling thread
+                return false;
+            }
+            switch (getExecutionMode(node)) {
+                case INLINE:
+                    return true;
+                case ASYNC:
+                    return false;
+                default:
+                    long threshold = inlineLatencyThresholdNanos;
+                    NodeLatencyStats latencyStats = plan.latencyStats();
+                    return threshold > 0
+                            && latencyStats.samples(nodeIndex) >= INLINE_MIN_SAMPLES
+                            && latencyStats.averageNanos(nodeIndex) <= threshold;
             }
-
-            // Ignore the result of compareAndSet and wake up the invoking thread
-            this.countDownLatch.countDown();
         }
 
-        private void fireNode(DagNode<?> node) {
-
-            CompletableFuture<NodeResultImpl<Object>> nodeFuture = getNodeExecuteFuture(node);
-
-            nodeFuture.thenAccept(curResult -> {
-                        // Check the DAG and node state before executing
-                        if (curResult == null
-                                || dagStateRef.get() != DagState.RUNNING
-                                || nodeStateMap.get(curResult.getNodeName()) != NodeState.RUNNING) {
-                            return;
-                        }
-                        // handle cur node execute result
-                        handleNodeExecuteResult(node, curResult);
-
-                        // check timeout
-                        checkGraphExecuteTimeout();
-
-                        // fire successor nodes
-                        fireNextNode(node, curResult);
-                    })
-                    .exceptionally(e -> {
-                        // Throw a DagEngineException if an unknown exception occurs during execution
-                        log.error("Graph[{}] node[{}] execute encounter unknown exception ",
-                                dagGraph.getGraphName(), node.getNodeName(), e);
-                        dagDone(DagState.FAILED, new DagEngineException("unknown exception happened: " + e.getMessage(), e));
-                        return null;
-                    });
+        /**
+         * Finishes the dag if it is still running. Only the caller which marks it as done releases the run
+         * and completes the result future, so the future never completes before the run is released.
+         */
+        private void dagDone(DagState state, Throwable throwable) {
+            if (markDone(state, throwable)) {
+                releaseRun();
+                completeRun();
+            }
         }
 
-        private void checkGraphExecuteTimeout() {
-            long now = System.currentTimeMillis();
-            if (timeout != null && timeout > 0 && (timeout < now - startTime)) {
-                TimeoutException timeoutException = new TimeoutException(
-                        String.format("Dag[graphName=%s] timeout expected: %s ms, cost: %s ms",
-                                dagGraph.getGraphName(), timeout, now - startTime));
-                dagDone(DagState.TIMEOUT, timeoutException);
+        /**
+         * Updates the state, throwable, and endTime only if the current state is RUNNING
+         *
+         * @return true if the dag is done by this call
+         */
+        private boolean markDone(DagState state, Throwable throwable) {
+            if (!this.dagStateRef.compareAndSet(DagState.RUNNING, state)) {
+                return false;
             }
+            this.throwable = throwable;
+            this.endTime = System.currentTimeMillis();
+            return true;
         }
 
+        /**
+         * Frees the nodes and the executor of the run and reports it, once the dag is marked as done
+         */
+        private void releaseRun() {
+            DagState state = dagStateRef.get();
+            cancelNodeTasks();
+            recordDagMetrics(dagGraph, state, startNanos);
+            publishDagEvent(DagExecutionEvent.Type.DAG_COMPLETED, runId, dagGraph, state, throwable);
+            if (traceRecorder != null) {
+                traceRecorder.record(buildTrace(state));
+            }
+            try {
+                releaseExecutor(dagGraph, executorService);
+            } catch (Exception e) {
+                log.error("Graph[{}] release executor error", dagGraph.getGraphName(), e);
+            }
+        }
 
-        private CompletableFuture<NodeResultImpl<Object>> getNodeExecuteFuture(DagNode node) {
-            CompletableFuture<NodeResultImpl<Object>> nodeFuture = null;
-
-            NodeResultImpl<Object> nodeResult = new NodeResultImpl<>(node.getNodeName());
-            nodeResult.setSubmitTime(System.currentTimeMillis());
-
-            Supplier<NodeResultImpl<Object>> supplier = nodeExecuteResultSupplier(node, nodeResult);
-
-            // Execute the node
-            if (node.getHandler() == null || executorService == null) {
-                nodeFuture = CompletableFuture.completedFuture(supplier.get());
-            } else {
-                nodeFuture = CompletableFuture.supplyAsync(supplier, executorService);
-                // Submit the node timeout future
-                nodeFuture = wrapNodeFutureWithTimeout(node, nodeResult, nodeFuture);
+        private void completeRun() {
+            // Release the graph timeout task, it is useless once the dag is done
+            Timeout timeoutTask = this.graphTimeout;
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
             }
-            return nodeFuture;
+            this.resultFuture.complete(this);
         }
 
-        @SuppressWarnings("all")
-        private Supplier<NodeResultImpl<Object>> nodeExecuteResultSupplier(DagNode node, NodeResultImpl nodeResult) {
-            return () -> {
-                // Check the DAG and node state before executing
-                if (dagStateRef.get() != DagState.RUNNING
-                        || nodeStateMap.get(node.getNodeName()) != NodeState.WAITING) {
-                    return null;
+        private DagTrace buildTrace(DagState state) {
+            long costNanos = System.nanoTime() - startNanos;
+            List<NodeSpan> spans = new ArrayList<>(plan.size());
+            for (int i = 0; i < plan.size(); i++) {
+                DagNode<?> node = plan.node(i);
+                NodeResult<?> result = dagContext.getNodeResult(node.getNodeName());
+                if (i == plan.startIndex() || i == plan.endIndex() || !(result instanceof NodeResultImpl)) {
+                    continue;
                 }
-                nodeStateMap.put(node.getNodeName(), NodeState.RUNNING);
-
-                executeNode(node, nodeResult);
+                NodeResultImpl<?> nodeResult = (NodeResultImpl<?>) result;
+                Set<String> dependencies = new LinkedHashSet<>(node.dependNodeNames());
+                dependencies.remove(DagGraph.START_NODE_NAME);
+                spans.add(new NodeSpan(node.getNodeName(), nodeResult.getState(), nodeResult.getThreadName(),
+                        nodeResult.getSubmitNanos() - startNanos, nodeResult.getStartNanos() - startNanos,
+                        nodeResult.getEndNanos() - startNanos, dependencies));
+            }
+            return new DagTrace(dagGraph.getGraphName(), runId, state, startTime, costNanos, spans);
+        }
 
-                return nodeResult;
-            };
+        /**
+         * Frees the resources held by the nodes nobody waits for any more: the queued nodes are removed from
+         * the executor, the pending async nodes are cancelled and the running nodes are interrupted if enabled.
+         */
+        private void cancelNodeTasks() {
+            if (executorService == null) {
+                return;
+            }
+            boolean interrupt = interruptOnCancel;
+            for (int i = 0; i < nodeTasks.length(); i++) {
+                NodeTask nodeTask = nodeTasks.get(i);
+                if (nodeTask != null) {
+                    nodeTask.cancel(interrupt);
+                }
+            }
         }
 
-        public void handleNodeExecuteResult(DagNode<?> node, NodeResultImpl<Object> nodeResult) {
-            log.debug("Graph[{}] node[{}] execute state: {} result: {}",
-                    dagGraph.getGraphName(), node.getNodeName(), nodeResult.getState(), nodeResult);
+        private void fireNode(int nodeIndex) {
+            DagNode<?> node = plan.node(nodeIndex);
+            NodeTask nodeTask = newNodeTask(nodeIndex);
 
-            dagContext.putNodeResult(nodeResult.getNodeName(), nodeResult);
-            nodeStateMap.put(node.getNodeName(), nodeResult.getState());
+            // Execute the node on the calling thread
+            if (node.getHandler() == null || executorService == null) {
+                nodeTask.execute(false);
+                return;
+            }
+
+            try {
+                if (ForkJoinTask.getPool() == executorService) {
+                    // on a worker of the pool, push to the local deque of the worker, idle workers steal from it
+                    ForkJoinTask.adapt(nodeTask).fork();
+                } else {
+                    executorService.execute(nodeTask);
+                }
+            } catch (RejectedExecutionException e) {
+                nodeTask.cancelTimeout();
+                // the executor of the run may have been released once the dag is done
+                if (dagStateRef.get() == DagState.RUNNING) {
+                    // fail fast instead of waiting for the graph timeout, the executor is overloaded
+                    log.warn("Graph[{}] node[{}] rejected by the executor", dagGraph.getGraphName(), node.getNodeName());
+                    dagDone(DagState.FAILED, new DagEngineException(
+                            "DagNode[" + node.getNodeName() + "] rejected by the executor", e));
+                }
+            }
+        }
+
+        private NodeTask newNodeTask(int nodeIndex) {
+            DagNode<?> node = plan.node(nodeIndex);
+            NodeResultImpl<Object> nodeResult = new NodeResultImpl<>(node.getNodeName());
+            nodeResult.setSubmitTime(System.currentTimeMillis());
+            nodeResult.setSubmitNanos(System.nanoTime());
+            NodeTask nodeTask = new NodeTask(nodeIndex, node, nodeResult);
+            nodeTasks.set(nodeIndex, nodeTask);
+            publishNodeEvent(DagExecutionEvent.Type.NODE_SUBMITTED, runId, dagGraph, plan, nodeIndex, nodeResult);
+
+            // Schedule the timeout before running, so the node could always cancel it when completed
+            if (node.getHandler() != null && executorService != null) {
+                Long nodeTimeout = node.timeout();
+                AdaptiveTimeoutPolicy timeoutPolicy = adaptiveTimeoutPolicy;
+                if (timeoutPolicy != null) {
+                    nodeTimeout = timeoutPolicy.timeout(plan, nodeIndex, nodeTimeout);
+                }
+                if (nodeTimeout != null && nodeTimeout > 0) {
+                    nodeTask.timeoutMillis = nodeTimeout;
+                    nodeTask.timeout = dagTimer.newTimeout(nodeTask::expire, nodeTimeout, TimeUnit.MILLISECONDS);
+                }
+            }
+            return nodeTask;
         }
 
+        /**
+         * Completes the node with the result, the node executing thread and the timer race to complete
+         * a node, only the first one changes the node state and fires the successor nodes.
+         *
+         * @param nodeIndex   the index of the node
+         * @param nodeResult  the result of the node
+         * @param allowInline whether one ready successor could be kept to run on the current thread
+         * @return the index of the successor kept to run inline, or -1 if all the ready successors are fired
+         */
+        private int completeNode(int nodeIndex, NodeResultImpl<Object> nodeResult, boolean allowInline) {
+            return claimNode(nodeIndex, nodeResult) ? completeClaimedNode(nodeIndex, nodeResult, allowInline) : -1;
+        }
 
-        @SuppressWarnings("all")
-        public void executeNode(DagNode node, NodeResultImpl<Object> nodeResult) {
-            // init node
-            nodeResult.setStartTime(System.currentTimeMillis());
-            nodeResult.setState(NodeState.RUNNING);
+        /**
+         * Moves the node to the state of its result, only the first result of a node is claimed
+         *
+         * @return true if the result is claimed
+         */
+        private boolean claimNode(int nodeIndex, NodeResultImpl<Object> nodeResult) {
+            // The node states are not changed any more once the dag is done
+            if (dagStateRef.get() != DagState.RUNNING) {
+                return false;
+            }
+            NodeState state;
+            do {
+                state = nodeStates.get(nodeIndex);
+                if (state != NodeState.WAITING && state != NodeState.RUNNING) {
+                    return false;
+                }
+            } while (!nodeStates.compareAndSet(nodeIndex, state, nodeResult.getState()));
+            return true;
+        }
 
-            DagNodeInvoker invoker = dagNodeInvoker;
+        private int completeClaimedNode(int nodeIndex, NodeResultImpl<Object> nodeResult, boolean allowInline) {
             try {
-                Object result = invoker.invoke(node, dagContext);
-                nodeResult.setResult(result);
-                nodeResult.setState(NodeState.SUCCEEDED);
+                if (dagStateRef.get() != DagState.RUNNING) {
+                    return -1;
+                }
+                recordNodeMetrics(dagGraph, plan, nodeIndex, nodeResult);
+                publishNodeEvent(completedEventType(nodeResult), runId, dagGraph, plan, nodeIndex, nodeResult);
+
+                // handle cur node execute result
+                handleNodeExecuteResult(nodeResult);
+
+                // check timeout
+                checkGraphExecuteTimeout();
+
+                // fire successor nodes
+                return fireNextNode(nodeIndex, nodeResult, allowInline);
             } catch (Exception e) {
-                nodeResult.setThrowable(e);
-                nodeResult.setState(NodeState.FAILED);
+                failOnUnknownException(plan.node(nodeIndex), e);
+                return -1;
+            }
+        }
+
+        private void failOnUnknownException(DagNode<?> node, Exception e) {
+            // Throw a DagEngineException if an unknown exception occurs during execution
+            log.error("Graph[{}] node[{}] execute encounter unknown exception ",
+                    dagGraph.getGraphName(), node.getNodeName(), e);
+            dagDone(DagState.FAILED, new DagEngineException("unknown exception happened: " + e.getMessage(), e));
+        }
+
+        private void checkGraphExecuteTimeout() {
+            long now = System.currentTimeMillis();
+            if (timeout != null && timeout > 0 && (timeout < now - startTime)) {
+                TimeoutException timeoutException = new TimeoutException(
+                        String.format("Dag[graphName=%s] timeout expected: %s ms, cost: %s ms",
+                                dagGraph.getGraphName(), timeout, now - startTime));
+                dagDone(DagState.TIMEOUT, timeoutException);
             }
+        }
+
 
-            nodeResult.setEndTime(System.currentTimeMillis());
+        public void handleNodeExecuteResult(NodeResultImpl<Object> nodeResult) {
+            log.debug("Graph[{}] node[{}] execute state: {} result: {}",
+                    dagGraph.getGraphName(), nodeResult.getNodeName(), nodeResult.getState(), nodeResult);
+
+            dagContext.putNodeResult(nodeResult.getNodeName(), nodeResult);
+        }
+
+
+        public CompletionStage<?> executeNode(DagNode<?> node, NodeResultImpl<Object> nodeResult) {
+            if (traceRecorder != null) {
+                nodeResult.setThreadName(Thread.currentThread().getName());
+            }
+            // nodes running on the calling thread wait for the async result
+            return ConcurrentDagEngine.this.executeNode(node, dagContext, nodeResult, executorService != null);
+        }
+
+
+        /**
+         * Task running a node, it also holds the node timeout so the timeout is cancelled
+         * as soon as the node completes
+         */
+        private class NodeTask implements PrioritizedTask {
+
+            private final int nodeIndex;
+            private final DagNode<?> node;
+            private final NodeResultImpl<Object> nodeResult;
+            private Timeout timeout;
+            private long timeoutMillis;
+
+            /**
+             * Attempts not completed yet, only set when the node is hedged
+             */
+            private volatile AtomicInteger attempts;
+            private volatile Timeout hedgeTimeout;
+
+            /**
+             * Updated by {@link #RUN_STATE_UPDATER}
+             */
+            volatile int runState = RUN_IDLE;
+            private volatile Thread runner;
+            private volatile CompletionStage<?> pending;
+
+            NodeTask(int nodeIndex, DagNode<?> node, NodeResultImpl<Object> nodeResult) {
+                this.nodeIndex = nodeIndex;
+                this.node = node;
+                this.nodeResult = nodeResult;
+            }
+
+            /**
+             * Nodes on the longest remaining path of the dag run first in a priority pool
+             */
+            @Override
+            public long priority() {
+                return plan.criticalPath(nodeIndex);
+            }
+
+            @Override
+            public void run() {
+                // Runs on an executor thread, the successors kept inline run one after another instead of recursively
+                NodeTask nodeTask = this;
+                while (nodeTask != null) {
+                    nodeTask = nodeTask.execute(true);
+                }
+            }
+
+            /**
+             * Executes the node and completes it.
+             *
+             * @param allowInline whether one ready successor could be kept to run on the current thread
+             * @return the task of the successor to run inline, or null
+             */
+            NodeTask execute(boolean allowInline) {
+                // Check the DAG and node state before executing, the node may have timed out in the queue
+                if (dagStateRef.get() != DagState.RUNNING
+                        || !nodeStates.compareAndSet(nodeIndex, NodeState.WAITING, NodeState.RUNNING)) {
+                    cancelTimeout();
+                    return null;
+                }
+
+                runner = Thread.currentThread();
+                if (!RUN_STATE_UPDATER.compareAndSet(this, RUN_IDLE, RUN_RUNNING)) {
+                    // cancelled in the meantime
+                    runner = null;
+                    return null;
+                }
+                publishNodeEvent(DagExecutionEvent.Type.NODE_STARTED, runId, dagGraph, plan, nodeIndex, nodeResult);
+
+                long begin = System.nanoTime();
+                CompletionStage<?> pending;
+                try {
+                    if (node.getHandler() != null && executorService != null) {
+                        scheduleHedge();
+                    }
+                    pending = isBlocking(node) ? executeBlockingNode() : executeNode(node, nodeResult);
+                } finally {
+                    finishRun();
+                }
+                if (pending != null) {
+                    this.pending = pending;
+                    if (dagStateRef.get() != DagState.RUNNING) {
+                        // the dag is done before the stage is published, nobody cancels it any more
+                        pending.toCompletableFuture().cancel(false);
+                    }
+                    // the node waits without holding the thread, the thread completing the stage completes the node
+                    pending.whenComplete((result, throwable) -> completeAsync(begin, result, throwable));
+                    return null;
+                }
+                long cost = System.nanoTime() - begin;
+                if (node.getHandler() != null) {
+                    recordLatency(cost);
+                }
+                if (!completesNode(nodeResult)) {
+                    return null;
+                }
+                cancelTimeout();
+
+                int inlineIndex = completeNode(nodeIndex, nodeResult, allowInline);
+                return inlineIndex < 0 ? null : newNodeTask(inlineIndex);
+            }
+
+            private void finishRun() {
+                runner = null;
+                if (!RUN_STATE_UPDATER.compareAndSet(this, RUN_RUNNING, RUN_DONE)) {
+                    // being interrupted, wait for the interrupt and clear it, so it does not leak to the next task
+                    while (runState == RUN_INTERRUPTING) {
+                        Thread.yield();
+                    }
+                    Thread.interrupted();
+                }
+            }
+
+            /**
+             * Cancels the task when the dag is done.
+             *
+             * @param interrupt whether to interrupt the thread running the node
+             */
+            void cancel(boolean interrupt) {
+                if (RUN_STATE_UPDATER.compareAndSet(this, RUN_IDLE, RUN_DONE)) {
+                    cancelTimeout();
+                    if (executorService instanceof ThreadPoolExecutor) {
+                        ((ThreadPoolExecutor) executorService).remove(this);
+                    }
+                    return;
+                }
+                CompletionStage<?> stage = pending;
+                if (stage != null) {
+                    stage.toCompletableFuture().cancel(false);
+                }
+                if (interrupt && RUN_STATE_UPDATER.compareAndSet(this, RUN_RUNNING, RUN_INTERRUPTING)) {
+                    try {
+                        Thread thread = runner;
+                        if (thread != null) {
+                            thread.interrupt();
+                        }
+                    } finally {
+                        runState = RUN_DONE;
+                    }
+                }
+            }
+
+            /**
+             * Checks if the attempt completes the node, a failed attempt does not while another one is running.
+             */
+            private boolean completesNode(NodeResultImpl<Object> attemptResult) {
+                AtomicInteger running = attempts;
+                return running == null || attemptResult.getState() == NodeState.SUCCEEDED
+                        || running.decrementAndGet() == 0;
+            }
+
+            private void scheduleHedge() {
+                HedgeBudget budget = hedgeBudget;
+                if (budget == null) {
+                    return;
+                }
+                long delayNanos = getHedgeDelayNanos(plan, nodeIndex, node);
+                if (delayNanos < 0) {
+                    return;
+                }
+                budget.recordExecution();
+                attempts = new AtomicInteger(1);
+                hedgeTimeout = dagTimer.newTimeout(() -> hedge(budget), delayNanos, TimeUnit.NANOSECONDS);
+            }
+
+            /**
+             * Runs on the timer thread when the first attempt is still running after the hedge delay
+             */
+            private void hedge(HedgeBudget budget) {
+                if (dagStateRef.get() != DagState.RUNNING || nodeStates.get(nodeIndex) != NodeState.RUNNING
+                        || !budget.tryAcquire()) {
+                    return;
+                }
+                attempts.incrementAndGet();
+                try {
+                    executorService.execute(this::runHedge);
+                } catch (RejectedExecutionException e) {
+                    log.debug("Graph[{}] hedge of node[{}] rejected", dagGraph.getGraphName(), node.getNodeName());
+                    attempts.decrementAndGet();
+                }
+            }
+
+            private void runHedge() {
+                if (nodeStates.get(nodeIndex) != NodeState.RUNNING) {
+                    return;
+                }
+                NodeResultImpl<Object> hedgeResult = new NodeResultImpl<>(node.getNodeName());
+                hedgeResult.setSubmitTime(nodeResult.getSubmitTime());
+                hedgeResult.setSubmitNanos(nodeResult.getSubmitNanos());
+                CompletionStage<?> pending = executeNode(node, hedgeResult);
+                if (pending == null) {
+                    completeHedge(hedgeResult);
+                    return;
+                }
+                pending.whenComplete((result, throwable) -> {
+                    fillResult(hedgeResult, result, throwable);
+                    completeHedge(hedgeResult);
+                });
+            }
+
+            private void completeHedge(NodeResultImpl<Object> hedgeResult) {
+                log.debug("Graph[{}] hedge of node[{}] done: {}",
+                        dagGraph.getGraphName(), node.getNodeName(), hedgeResult.getState());
+                if (completesNode(hedgeResult)) {
+                    cancelTimeout();
+                    // the loser is ignored, only the first result is published to the context
+                    completeNode(nodeIndex, hedgeResult, false);
+                }
+            }
+
+            private void completeAsync(long begin, Object result, Throwable throwable) {
+                fillResult(nodeResult, result, throwable);
+                recordLatency(System.nanoTime() - begin);
+                if (!completesNode(nodeResult)) {
+                    return;
+                }
+                cancelTimeout();
+
+                // never run a successor inline on the thread of the async handler
+                completeNode(nodeIndex, nodeResult, false);
+            }
+
+            private void fillResult(NodeResultImpl<Object> result, Object value, Throwable throwable) {
+                if (throwable != null) {
+                    result.setThrowable(unwrap(throwable));
+                    result.setState(NodeState.FAILED);
+                } else {
+                    result.setResult(value);
+                    result.setState(NodeState.SUCCEEDED);
+                }
+                result.setEndTime(System.currentTimeMillis());
+                result.setEndNanos(System.nanoTime());
+            }
+
+            private void recordLatency(long nanos) {
+                plan.latencyStats().record(nodeIndex, nanos);
+                if (adaptiveTimeoutPolicy != null || node.getAttribute(HEDGE_ATTRIBUTE) != null) {
+                    plan.latencyHistogram(nodeIndex).record(nanos);
+                }
+            }
+
+            private CompletionStage<?> executeBlockingNode() {
+                class NodeBlocker implements ForkJoinPool.ManagedBlocker {
+                    private boolean done;
+                    private CompletionStage<?> pending;
+
+                    @Override
+                    public boolean block() {
+                        pending = executeNode(node, nodeResult);
+                        done = true;
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return done;
+                    }
+                }
+                NodeBlocker blocker = new NodeBlocker();
+                try {
+                    ForkJoinPool.managedBlock(blocker);
+                } catch (InterruptedException e) {
+                    // never thrown by the blocker, keep the interrupt status anyway
+                    Thread.currentThread().interrupt();
+                }
+                return blocker.pending;
+            }
+
+            /**
+             * Runs on the timer thread when the node is not completed in time,
+             * the successors are fired on the completion executor
+             */
+            void expire() {
+                NodeResultImpl<Object> timeoutResult = new NodeResultImpl<>(node.getNodeName());
+                timeoutResult.setSubmitTime(nodeResult.getSubmitTime());
+                long nodeStartTime = nodeResult.getStartTime();
+                timeoutResult.setStartTime(nodeStartTime > 0 ? nodeStartTime : nodeResult.getSubmitTime());
+                timeoutResult.setEndTime(System.currentTimeMillis());
+                timeoutResult.setSubmitNanos(nodeResult.getSubmitNanos());
+                timeoutResult.setEndNanos(System.nanoTime());
+                // a node never started waited in the queue the whole time
+                timeoutResult.setStartNanos(nodeStartTime > 0 ? nodeResult.getStartNanos() : timeoutResult.getEndNanos());
+                timeoutResult.setState(NodeState.TIMEOUT);
+                String msg = "DagNode[" + node.getNodeName() + "] not completed in " + timeoutMillis + "ms";
+                timeoutResult.setThrowable(new TimeoutException(msg));
+                if (adaptiveTimeoutPolicy != null) {
+                    // the latency is at least the timeout, so too tight timeouts raise the percentile
+                    plan.latencyHistogram(nodeIndex).record(TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+                }
+
+                if (claimNode(nodeIndex, timeoutResult)) {
+                    runOnCompletionExecutor(dagGraph.getGraphName(),
+                            () -> completeClaimedNode(nodeIndex, timeoutResult, false));
+                }
+            }
+
+            void cancelTimeout() {
+                if (timeout != null) {
+                    timeout.cancel();
+                }
+                Timeout hedge = hedgeTimeout;
+                if (hedge != null) {
+                    hedge.cancel();
+                }
+            }
         }
 
 
@@ -392,7 +1319,7 @@ public class ConcurrentDagEngine implements DagEngine {
 
         @Override
         public Map<String, NodeState> getNodeStateMap() {
-            return new HashMap<>(nodeStateMap);
+            return nodeStateMap;
         }
 
         @Override
@@ -407,17 +1334,420 @@ public class ConcurrentDagEngine implements DagEngine {
     }
 
 
-    @SuppressWarnings({"all"})
+    /**
+     * Cancellation token of a run, cancelled once the run is done
+     */
+    private static final class DagStateCancellationToken implements CancellationToken {
+
+        private final AtomicReference<DagState> dagStateRef;
+
+        DagStateCancellationToken(AtomicReference<DagState> dagStateRef) {
+            this.dagStateRef = dagStateRef;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return DagState.isDoneState(dagStateRef.get());
+        }
+
+        @Override
+        public String toString() {
+            return "CancellationToken(cancelled=" + isCancelled() + ")";
+        }
+    }
+
+
+    /**
+     * Result of one context of a batch
+     */
+    @ToString(onlyExplicitlyIncluded = true)
+    private static class BatchItem implements DagResult {
+
+        @ToString.Include
+        private final DagContext dagContext;
+        private final AtomicReference<DagState> dagStateRef = new AtomicReference<>(DagState.WAITING);
+        private final AtomicReferenceArray<NodeState> nodeStates;
+        @ToString.Include
+        private final NodeStateMapView nodeStateMap;
+        @ToString.Include
+        private volatile Throwable throwable;
+        @ToString.Include
+        private volatile long startTime;
+        @ToString.Include
+        private volatile long endTime;
+        private final long runId = RUN_ID_GENERATOR.incrementAndGet();
+
+        BatchItem(DagExecutionPlan plan, DagContext dagContext) {
+            this.dagContext = dagContext;
+            this.nodeStates = new AtomicReferenceArray<>(plan.size());
+            for (int i = 0; i < plan.size(); i++) {
+                nodeStates.set(i, NodeState.WAITING);
+            }
+            this.nodeStateMap = new NodeStateMapView(plan, nodeStates);
+            dagContext.put(DagContext.CANCELLATION_TOKEN, new DagStateCancellationToken(dagStateRef));
+        }
+
+        boolean isRunning() {
+            return dagStateRef.get() == DagState.RUNNING;
+        }
+
+        boolean done(DagState state, Throwable throwable) {
+            if (dagStateRef.compareAndSet(DagState.RUNNING, state)) {
+                this.throwable = throwable;
+                this.endTime = System.currentTimeMillis();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public DagState getState() {
+            return dagStateRef.get();
+        }
+
+        @Override
+        public Map<String, NodeState> getNodeStateMap() {
+            return nodeStateMap;
+        }
+
+        @Override
+        public Throwable getThrowable() {
+            return throwable;
+        }
+
+        @Override
+        public Long getCostTime() {
+            return endTime - startTime;
+        }
+    }
+
+
+    /**
+     * Runs the graph for a chunk of a batch, every node runs once as one task over the contexts still running.
+     */
+    private class BatchExecutor {
+
+        private final ExecutorService executorService;
+        private final DagGraph dagGraph;
+        private final DagExecutionPlan plan;
+        private final BatchItem[] items;
+        private final Long timeout;
+        private final AtomicIntegerArray nodeInDegrees;
+        private final CompletableFuture<Void> doneFuture = new CompletableFuture<>();
+        private volatile Timeout graphTimeout;
+        private long startTime;
+        private long startNanos;
+
+        BatchExecutor(ExecutorService executorService, DagGraph dagGraph, DagExecutionPlan plan,
+                      BatchItem[] items, Long timeout) {
+            this.executorService = executorService;
+            this.dagGraph = dagGraph;
+            this.plan = plan;
+            this.items = items;
+            this.timeout = timeout;
+            this.nodeInDegrees = new AtomicIntegerArray(plan.size());
+            for (int i = 0; i < plan.size(); i++) {
+                nodeInDegrees.set(i, plan.inDegree(i));
+            }
+        }
+
+        void start() {
+            startTime = System.currentTimeMillis();
+            startNanos = System.nanoTime();
+            for (BatchItem item : items) {
+                item.startTime = startTime;
+                item.dagStateRef.set(DagState.RUNNING);
+                publishDagEvent(DagExecutionEvent.Type.DAG_STARTED, item.runId, dagGraph, null, null);
+            }
+            if (timeout != null && timeout > 0) {
+                graphTimeout = dagTimer.newTimeout(this::expire, timeout, TimeUnit.MILLISECONDS);
+            }
+            fireNode(plan.startIndex());
+        }
+
+        void await() {
+            try {
+                doneFuture.get();
+            } catch (InterruptedException e) {
+                log.debug("Graph[{}] batch interrupted", dagGraph.getGraphName());
+                doneAll(DagState.INTERRUPTED, e);
+            } catch (ExecutionException e) {
+                // the done future is never completed exceptionally, just in case
+                doneAll(DagState.FAILED, e.getCause());
+            }
+        }
+
+        private void expire() {
+            String msg = String.format("Graph[%s] not completed in %s ms", dagGraph.getGraphName(), timeout);
+            log.debug(msg);
+            runOnCompletionExecutor(dagGraph.getGraphName(), () -> doneAll(DagState.TIMEOUT, new TimeoutException(msg)));
+        }
+
+        private void doneAll(DagState state, Throwable throwable) {
+            for (BatchItem item : items) {
+                done(item, state, throwable);
+            }
+            finish();
+        }
+
+        private void done(BatchItem item, DagState state, Throwable throwable) {
+            if (item.done(state, throwable)) {
+                recordDagMetrics(dagGraph, state, startNanos);
+                publishDagEvent(DagExecutionEvent.Type.DAG_COMPLETED, item.runId, dagGraph, state, throwable);
+            }
+        }
+
+        private void finish() {
+            Timeout timeoutTask = this.graphTimeout;
+            if (timeoutTask != null) {
+                timeoutTask.cancel();
+            }
+            doneFuture.complete(null);
+        }
+
+        private void fireNode(int nodeIndex) {
+            DagNode<?> node = plan.node(nodeIndex);
+            if (node.getHandler() == null || executorService == null) {
+                runNode(nodeIndex);
+                return;
+            }
+            try {
+                executorService.execute(() -> runNode(nodeIndex));
+            } catch (RejectedExecutionException e) {
+                log.warn("Graph[{}] node[{}] rejected by the executor", dagGraph.getGraphName(), node.getNodeName());
+                doneAll(DagState.FAILED, new DagEngineException(
+                        "DagNode[" + node.getNodeName() + "] rejected by the executor", e));
+            }
+        }
+
+        private void runNode(int nodeIndex) {
+            try {
+                executeNode(nodeIndex);
+                fireNextNode(nodeIndex);
+            } catch (Exception e) {
+                log.error("Graph[{}] node[{}] execute encounter unknown exception ",
+                        dagGraph.getGraphName(), plan.node(nodeIndex).getNodeName(), e);
+                doneAll(DagState.FAILED, new DagEngineException("unknown exception happened: " + e.getMessage(), e));
+            }
+        }
+
+        @SuppressWarnings("all")
+        private void executeNode(int nodeIndex) {
+            DagNode node = plan.node(nodeIndex);
+            List<BatchItem> liveItems = new ArrayList<>(items.length);
+            List<NodeResultImpl<Object>> nodeResults = new ArrayList<>(items.length);
+            long submitTime = System.currentTimeMillis();
+            long submitNanos = System.nanoTime();
+            for (BatchItem item : items) {
+                if (item.isRunning() && item.nodeStates.compareAndSet(nodeIndex, NodeState.WAITING, NodeState.RUNNING)) {
+                    NodeResultImpl<Object> nodeResult = new NodeResultImpl<>(node.getNodeName());
+                    nodeResult.setSubmitTime(submitTime);
+                    nodeResult.setSubmitNanos(submitNanos);
+                    liveItems.add(item);
+                    nodeResults.add(nodeResult);
+                    // the node of the chunk is submitted and started at once
+                    publishNodeEvent(DagExecutionEvent.Type.NODE_SUBMITTED, item.runId, dagGraph, plan, nodeIndex, nodeResult);
+                    publishNodeEvent(DagExecutionEvent.Type.NODE_STARTED, item.runId, dagGraph, plan, nodeIndex, nodeResult);
+                }
+            }
+            if (liveItems.isEmpty()) {
+                return;
+            }
+
+            if (node.getHandler() instanceof BatchNodeHandler && dagNodeFilters.isEmpty()
+                    && node.getAttribute(NodeResultCache.CACHE_ATTRIBUTE) == null) {
+                executeBatchNode(node, liveItems, nodeResults);
+            } else {
+                for (int i = 0; i < liveItems.size(); i++) {
+                    ConcurrentDagEngine.this.executeNode(node, liveItems.get(i).dagContext, nodeResults.get(i), false);
+                }
+            }
+
+            for (int i = 0; i < liveItems.size(); i++) {
+                completeNode(nodeIndex, liveItems.get(i), nodeResults.get(i));
+            }
+        }
+
+        private void executeBatchNode(DagNode<?> dagNode, List<BatchItem> liveItems, List<NodeResultImpl<Object>> nodeResults) {
+            DagNode<Object> node = asObjectNode(dagNode);
+            BatchNodeHandler<Object> handler = (BatchNodeHandler<Object>) node.getHandler();
+            long nodeStartTime = System.currentTimeMillis();
+            long nodeStartNanos = System.nanoTime();
+
+            // evaluate every context, only the ones evaluated to true are executed
+            List<DagContext> contexts = new ArrayList<>(liveItems.size());
+            List<NodeResultImpl<Object>> executeResults = new ArrayList<>(liveItems.size());
+            for (int i = 0; i < liveItems.size(); i++) {
+                NodeResultImpl<Object> nodeResult = nodeResults.get(i);
+                nodeResult.setStartTime(nodeStartTime);
+                nodeResult.setStartNanos(nodeStartNanos);
+                nodeResult.setState(NodeState.RUNNING);
+                try {
+                    if (handler.evaluate(node, liveItems.get(i).dagContext)) {
+                        contexts.add(liveItems.get(i).dagContext);
+                        executeResults.add(nodeResult);
+                    } else {
+                        nodeResult.setState(NodeState.SUCCEEDED);
+                    }
+                } catch (Exception e) {
+                    nodeResult.setThrowable(e);
+                    nodeResult.setState(NodeState.FAILED);
+                }
+            }
+
+            if (!contexts.isEmpty()) {
+                try {
+                    List<Object> results = handler.executeBatch(node, contexts);
+                    if (results == null || results.size() != contexts.size()) {
+                        throw new DagEngineException(String.format("DagNode[%s] returned %s results for %s contexts",
+                                node.getNodeName(), results == null ? null : results.size(), contexts.size()));
+                    }
+                    for (int i = 0; i < executeResults.size(); i++) {
+                        executeResults.get(i).setResult(results.get(i));
+                        executeResults.get(i).setState(NodeState.SUCCEEDED);
+                    }
+                } catch (Exception e) {
+                    for (NodeResultImpl<Object> nodeResult : executeResults) {
+                        nodeResult.setThrowable(e);
+                        nodeResult.setState(NodeState.FAILED);
+                    }
+                }
+            }
+
+            long nodeEndTime = System.currentTimeMillis();
+            long nodeEndNanos = System.nanoTime();
+            nodeResults.forEach(nodeResult -> {
+                nodeResult.setEndTime(nodeEndTime);
+                nodeResult.setEndNanos(nodeEndNanos);
+            });
+        }
+
+        private void completeNode(int nodeIndex, BatchItem item, NodeResultImpl<Object> nodeResult) {
+            // The node states are not changed any more once the dag of the context is done
+            if (!item.isRunning()
+                    || !item.nodeStates.compareAndSet(nodeIndex, NodeState.RUNNING, nodeResult.getState())) {
+                return;
+            }
+            item.dagContext.putNodeResult(nodeResult.getNodeName(), nodeResult);
+            recordNodeMetrics(dagGraph, plan, nodeIndex, nodeResult);
+            publishNodeEvent(completedEventType(nodeResult), item.runId, dagGraph, plan, nodeIndex, nodeResult);
+
+            if (nodeResult.getState() != NodeState.SUCCEEDED && plan.hasStrongSuccessor(nodeIndex)) {
+                done(item, DagState.FAILED, nodeResult.getThrowable());
+            } else if (nodeIndex == plan.endIndex() || !plan.hasSuccessor(nodeIndex)) {
+                done(item, DagState.SUCCEED, null);
+            } else if (timeout != null && timeout > 0 && timeout < System.currentTimeMillis() - startTime) {
+                done(item, DagState.TIMEOUT, new TimeoutException(
+                        String.format("Dag[graphName=%s] timeout expected: %s ms, cost: %s ms",
+                                dagGraph.getGraphName(), timeout, System.currentTimeMillis() - startTime)));
+            }
+        }
+
+        private void fireNextNode(int nodeIndex) {
+            boolean running = false;
+            for (BatchItem item : items) {
+                if (item.isRunning()) {
+                    running = true;
+                    break;
+                }
+            }
+            if (!running || nodeIndex == plan.endIndex() || !plan.hasSuccessor(nodeIndex)) {
+                finish();
+                return;
+            }
+            for (int edge = plan.successorStart(nodeIndex); edge < plan.successorEnd(nodeIndex); edge++) {
+                int successorIndex = plan.successor(edge);
+                if (nodeInDegrees.decrementAndGet(successorIndex) == 0) {
+                    fireNode(successorIndex);
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Read-only view of the node states of a dag run, no copy is made.
+     * The view reflects the current state of each node.
+     */
+    static class NodeStateMapView extends AbstractMap<String, NodeState> {
+
+        private final DagExecutionPlan plan;
+
+        private final AtomicReferenceArray<NodeState> nodeStates;
+
+        NodeStateMapView(DagExecutionPlan plan, AtomicReferenceArray<NodeState> nodeStates) {
+            this.plan = plan;
+            this.nodeStates = nodeStates;
+        }
+
+        @Override
+        public NodeState get(Object key) {
+            int index = key instanceof String ? plan.indexOf((String) key) : -1;
+            return index < 0 ? null : nodeStates.get(index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && plan.indexOf((String) key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return plan.size();
+        }
+
+        @Override
+        public Set<Entry<String, NodeState>> entrySet() {
+            return new AbstractSet<Entry<String, NodeState>>() {
+                @Override
+                public Iterator<Entry<String, NodeState>> iterator() {
+                    return new Iterator<Entry<String, NodeState>>() {
+                        private int index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return index < plan.size();
+                        }
+
+                        @Override
+                        public Entry<String, NodeState> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int cur = index++;
+                            return new SimpleImmutableEntry<>(plan.node(cur).getNodeName(), nodeStates.get(cur));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return plan.size();
+                }
+            };
+        }
+    }
+
+
     static class RawDagNodeInvoker implements DagNodeInvoker {
 
         @Override
-        public Object invoke(DagNode node, DagContext dagContext) {
-            NodeHandler handler = node.getHandler();
+        public Object invoke(DagNode dagNode, DagContext dagContext) {
+            DagNode<Object> node = asObjectNode(dagNode);
+            NodeHandler<Object> handler = node.getHandler();
             Object result = null;
             if (handler != null) {
                 boolean evaluateResult = handler.evaluate(node, dagContext);
                 if (evaluateResult) {
-                    result = handler.execute(node, dagContext);
+                    if (handler instanceof AsyncNodeHandler) {
+                        // the stage of an async handler is completed by the engine, filters see the stage as the result
+                        result = ((AsyncNodeHandler<Object>) handler).executeAsync(node, dagContext);
+                    } else {
+                        Object cache = node.getAttribute(NodeResultCache.CACHE_ATTRIBUTE);
+                        result = cache instanceof NodeResultCache
+                                ? ((NodeResultCache) cache).execute(handler, node, dagContext)
+                                : handler.execute(node, dagContext);
+                    }
                 }
             }
             return result;
@@ -0,0 +1,431 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.ContextKey;
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.api.DagNode;
+import org.gloryjie.scheduler.api.DependencyType;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Immutable, index based execution plan compiled from a dag graph.
+ * <p>
+ * Nodes are numbered from 0 to N-1 in topological order, so the start node is always 0
+ * and the end node is always N-1. The successors of a node are stored in a compact adjacency array:
+ * the successors of node i are {@code successors[successorOffsets[i]]} to
+ * {@code successors[successorOffsets[i + 1] - 1]}, and every position in that array is an edge.
+ * The engine drives a dag run with the plan only, without walking the graph or creating collections.
+ * The only mutable parts are the {@link NodeLatencyStats} and {@link LatencyHistogram}s observed by the engine
+ * and the critical paths derived from them.
+ * <p>
+ * The plan also lays out the slots of a {@link SlotDagContext}: the result of node i is in slot i,
+ * followed by the user context, the cancellation token and the {@link ContextKey}s declared to the graph.
+ */
+public final class DagExecutionPlan {
+
+    /**
+     * Graph attribute used to cache the plan of a graph which is not a {@link DefaultDagGraph}
+     */
+    public static final String EXECUTION_PLAN_ATTRIBUTE = "#EXECUTION_PLAN#";
+
+    /**
+     * Cost of a node without any observed latency
+     */
+    private static final long UNIT_COST_NANOS = 1000;
+
+    /**
+     * The critical paths follow the latency stats at most this late
+     */
+    private static final long CRITICAL_PATH_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String graphName;
+
+    private final DagNode<?>[] nodes;
+
+    private final Map<String, Integer> nodeIndexMap;
+
+    private final int[] inDegrees;
+
+    private final int[] successorOffsets;
+
+    private final int[] successors;
+
+    /**
+     * Edge position -> the edge is a soft dependency
+     */
+    private final BitSet softEdges;
+
+    /**
+     * Node index -> the node has at least one strong successor
+     */
+    private final BitSet strongSuccessorNodes;
+
+    private final NodeLatencyStats latencyStats;
+
+    /**
+     * Created on demand, only recorded when the engine adapts the node timeouts
+     */
+    private final AtomicReferenceArray<LatencyHistogram> latencyHistograms;
+
+    /**
+     * Context key name -> slot, include the prefixed node result keys
+     */
+    private final Map<String, Integer> contextSlotIndexMap;
+
+    private final String[] contextSlotNames;
+
+    /**
+     * ContextKey id -> slot, -1 if the key is not declared
+     */
+    private final int[] contextKeySlots;
+
+    private volatile long[] criticalPaths;
+
+    private volatile long criticalPathsTime;
+
+    private DagExecutionPlan(String graphName, DagNode<?>[] nodes, Map<String, Integer> nodeIndexMap,
+                             int[] inDegrees, int[] successorOffsets, int[] successors,
+                             BitSet softEdges, BitSet strongSuccessorNodes, Collection<ContextKey<?>> contextKeys) {
+        this.graphName = graphName;
+        this.nodes = nodes;
+        this.nodeIndexMap = nodeIndexMap;
+        this.inDegrees = inDegrees;
+        this.successorOffsets = successorOffsets;
+        this.successors = successors;
+        this.softEdges = softEdges;
+        this.strongSuccessorNodes = strongSuccessorNodes;
+        this.latencyStats = new NodeLatencyStats(nodes.length);
+        this.latencyHistograms = new AtomicReferenceArray<>(nodes.length);
+
+        List<String> slotNames = new ArrayList<>(nodes.length + 2 + contextKeys.size());
+        for (DagNode<?> node : nodes) {
+            slotNames.add(DagContext.NODE_RESULT_PREFIX + node.getNodeName());
+        }
+        slotNames.add(DagContext.USER_CONTEXT);
+        slotNames.add(DagContext.CANCELLATION_TOKEN);
+        int maxKeyId = -1;
+        for (ContextKey<?> key : contextKeys) {
+            slotNames.add(key.getName());
+            maxKeyId = Math.max(maxKeyId, key.getId());
+        }
+        this.contextSlotNames = slotNames.toArray(new String[0]);
+        Map<String, Integer> slotIndexMap = new HashMap<>(contextSlotNames.length * 2);
+        for (int i = 0; i < contextSlotNames.length; i++) {
+            if (slotIndexMap.put(contextSlotNames[i], i) != null) {
+                throw new IllegalArgumentException("graph[" + graphName + "] context key["
+                        + contextSlotNames[i] + "] is declared twice or reserved");
+            }
+        }
+        this.contextSlotIndexMap = Collections.unmodifiableMap(slotIndexMap);
+        this.contextKeySlots = new int[maxKeyId + 1];
+        Arrays.fill(contextKeySlots, -1);
+        for (ContextKey<?> key : contextKeys) {
+            contextKeySlots[key.getId()] = slotIndexMap.get(key.getName());
+        }
+    }
+
+    /**
+     * Returns the plan of the graph, compiles and caches it in the graph attribute if needed.
+     *
+     * @param dagGraph the dag graph
+     * @return the execution plan of the graph
+     */
+    public static DagExecutionPlan of(DagGraph dagGraph) {
+        if (dagGraph instanceof DefaultDagGraph) {
+            return ((DefaultDagGraph) dagGraph).getExecutionPlan();
+        }
+        Object plan = dagGraph.getAttribute(EXECUTION_PLAN_ATTRIBUTE);
+        if (plan instanceof DagExecutionPlan) {
+            return (DagExecutionPlan) plan;
+        }
+        DagExecutionPlan executionPlan = compile(dagGraph);
+        dagGraph.setAttribute(EXECUTION_PLAN_ATTRIBUTE, executionPlan);
+        return executionPlan;
+    }
+
+    /**
+     * Compiles the graph into an execution plan.
+     *
+     * @param dagGraph the dag graph, must contain the start node and the end node
+     * @return the execution plan
+     * @throws IllegalArgumentException if the graph has cycle or some nodes could not be reached from the start node
+     */
+    public static DagExecutionPlan compile(DagGraph dagGraph) {
+        return compile(dagGraph, Collections.emptyList());
+    }
+
+    /**
+     * Compiles the graph into an execution plan, with the slots of the context keys declared to the graph.
+     *
+     * @param dagGraph    the dag graph, must contain the start node and the end node
+     * @param contextKeys the context keys resolved to slots
+     * @return the execution plan
+     * @throws IllegalArgumentException if the graph has cycle or some nodes could not be reached from the start node
+     */
+    @SuppressWarnings("unchecked")
+    public static DagExecutionPlan compile(DagGraph dagGraph, Collection<ContextKey<?>> contextKeys) {
+        Objects.requireNonNull(dagGraph.getStartNode(), "start node must not be null");
+        Objects.requireNonNull(dagGraph.getEndNode(), "end node must not be null");
+
+        Map<String, Integer> graphInDegree = dagGraph.getNodeInDegree();
+        int size = graphInDegree.size();
+
+        // number the nodes in topological order, start from the start node
+        DagNode<?>[] nodes = new DagNode<?>[size];
+        Map<String, Integer> nodeIndexMap = new HashMap<>(size * 2);
+        Map<String, Integer> remainInDegree = new HashMap<>(graphInDegree);
+        Deque<DagNode<?>> readyNodes = new ArrayDeque<>();
+        readyNodes.add(dagGraph.getStartNode());
+        int count = 0;
+        while (!readyNodes.isEmpty()) {
+            DagNode<?> node = readyNodes.poll();
+            // the end node is always the last one
+            if (node == dagGraph.getEndNode() && !readyNodes.isEmpty()) {
+                readyNodes.add(node);
+                continue;
+            }
+            nodeIndexMap.put(node.getNodeName(), count);
+            nodes[count++] = node;
+            for (DagNode<?> successor : dagGraph.getSuccessorNodes(node.getNodeName())) {
+                if (remainInDegree.merge(successor.getNodeName(), -1, Integer::sum) == 0) {
+                    readyNodes.add(successor);
+                }
+            }
+        }
+        if (count != size || nodes[size - 1] != dagGraph.getEndNode()) {
+            throw new IllegalArgumentException("graph[" + dagGraph.getGraphName()
+                    + "] has cycle or nodes which could not be reached from the start node");
+        }
+
+        int[] inDegrees = new int[size];
+        int[] successorOffsets = new int[size + 1];
+        List<DagNode<?>>[] successorNodes = new List[size];
+        for (int i = 0; i < size; i++) {
+            inDegrees[i] = graphInDegree.get(nodes[i].getNodeName());
+            successorNodes[i] = dagGraph.getSuccessorNodes(nodes[i].getNodeName());
+            successorOffsets[i + 1] = successorOffsets[i] + successorNodes[i].size();
+        }
+
+        int[] successors = new int[successorOffsets[size]];
+        BitSet softEdges = new BitSet(successors.length);
+        BitSet strongSuccessorNodes = new BitSet(size);
+        for (int i = 0; i < size; i++) {
+            String nodeName = nodes[i].getNodeName();
+            int edge = successorOffsets[i];
+            for (DagNode<?> successor : successorNodes[i]) {
+                successors[edge] = nodeIndexMap.get(successor.getNodeName());
+                DependencyType type = dagGraph.getNodeDepencencyType(nodeName, successor.getNodeName());
+                if (type == DependencyType.SOFT) {
+                    softEdges.set(edge);
+                } else {
+                    strongSuccessorNodes.set(i);
+                }
+                edge++;
+            }
+        }
+
+        return new DagExecutionPlan(dagGraph.getGraphName(), nodes, Collections.unmodifiableMap(nodeIndexMap),
+                inDegrees, successorOffsets, successors, softEdges, strongSuccessorNodes, contextKeys);
+    }
+
+    public String getGraphName() {
+        return graphName;
+    }
+
+    /**
+     * Returns the number of nodes, include the start node and the end node.
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return nodes.length;
+    }
+
+    public DagNode<?> node(int index) {
+        return nodes[index];
+    }
+
+    /**
+     * Returns the index of the node.
+     *
+     * @param nodeName the name of the node
+     * @return the index of the node, or -1 if the node is not in the plan
+     */
+    public int indexOf(String nodeName) {
+        Integer index = nodeIndexMap.get(nodeName);
+        return index == null ? -1 : index;
+    }
+
+    public int startIndex() {
+        return 0;
+    }
+
+    public int endIndex() {
+        return nodes.length - 1;
+    }
+
+    public int inDegree(int index) {
+        return inDegrees[index];
+    }
+
+    /**
+     * Returns the first edge position of the node successors.
+     *
+     * @param index the index of the node
+     * @return the first edge position, inclusive
+     */
+    public int successorStart(int index) {
+        return successorOffsets[index];
+    }
+
+    /**
+     * Returns the end edge position of the node successors.
+     *
+     * @param index the index of the node
+     * @return the end edge position, exclusive
+     */
+    public int successorEnd(int index) {
+        return successorOffsets[index + 1];
+    }
+
+    /**
+     * Returns the successor node index of the edge.
+     *
+     * @param edge the edge position
+     * @return the index of the successor node
+     */
+    public int successor(int edge) {
+        return successors[edge];
+    }
+
+    public boolean hasSuccessor(int index) {
+        return successorOffsets[index] != successorOffsets[index + 1];
+    }
+
+    public boolean isSoftEdge(int edge) {
+        return softEdges.get(edge);
+    }
+
+    /**
+     * Checks if any successor strongly depends on the node,
+     * the dag fails when such node is not succeeded.
+     *
+     * @param index the index of the node
+     * @return true if the node has at least one strong successor
+     */
+    public boolean hasStrongSuccessor(int index) {
+        return strongSuccessorNodes.get(index);
+    }
+
+    /**
+     * Returns the number of slots of the context of a run.
+     *
+     * @return the number of slots
+     */
+    public int contextSlotCount() {
+        return contextSlotNames.length;
+    }
+
+    /**
+     * Returns the slot of a context key.
+     *
+     * @param key the String key, a node result key is prefixed by {@link DagContext#NODE_RESULT_PREFIX}
+     * @return the slot, or -1 if the key has no slot
+     */
+    public int contextSlot(String key) {
+        Integer slot = contextSlotIndexMap.get(key);
+        return slot == null ? -1 : slot;
+    }
+
+    /**
+     * Returns the slot of a typed context key, without hashing.
+     *
+     * @param key the typed key
+     * @return the slot, or -1 if the key is not declared to the graph
+     */
+    public int contextSlot(ContextKey<?> key) {
+        int id = key.getId();
+        return id < contextKeySlots.length ? contextKeySlots[id] : -1;
+    }
+
+    public String contextSlotName(int slot) {
+        return contextSlotNames[slot];
+    }
+
+    public int userContextSlot() {
+        return nodes.length;
+    }
+
+    public int cancellationTokenSlot() {
+        return nodes.length + 1;
+    }
+
+    /**
+     * Returns the latency observed for the nodes, shared by all the runs of the graph.
+     *
+     * @return the latency stats
+     */
+    public NodeLatencyStats latencyStats() {
+        return latencyStats;
+    }
+
+    /**
+     * Returns the latency histogram of the node, shared by all the runs of the graph.
+     *
+     * @param index the index of the node
+     * @return the histogram, created on the first call
+     */
+    public LatencyHistogram latencyHistogram(int index) {
+        LatencyHistogram histogram = latencyHistograms.get(index);
+        if (histogram == null) {
+            latencyHistograms.compareAndSet(index, null, new LatencyHistogram());
+            histogram = latencyHistograms.get(index);
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns the remaining critical path length of the node: the cost of the longest path from the node,
+     * itself included, to the end node. The cost of a node is its observed average latency,
+     * or a unit cost until it is observed. The lengths are recomputed from the latency stats periodically.
+     *
+     * @param index the index of the node
+     * @return the critical path length in nanoseconds
+     */
+    public long criticalPath(int index) {
+        long[] paths = criticalPaths;
+        long now = System.nanoTime();
+        if (paths == null || now - criticalPathsTime > CRITICAL_PATH_REFRESH_NANOS) {
+            // computed by several threads at the same time at worst, any of the results is fine
+            paths = computeCriticalPaths();
+            criticalPaths = paths;
+            criticalPathsTime = now;
+        }
+        return paths[index];
+    }
+
+    private long[] computeCriticalPaths() {
+        long[] paths = new long[nodes.length];
+        // the successors of a node always have greater indexes
+        for (int i = nodes.length - 1; i >= 0; i--) {
+            long longestSuccessor = 0;
+            for (int edge = successorOffsets[i]; edge < successorOffsets[i + 1]; edge++) {
+                longestSuccessor = Math.max(longestSuccessor, paths[successors[edge]]);
+            }
+            long cost = latencyStats.samples(i) > 0 ? Math.max(latencyStats.averageNanos(i), 1) : UNIT_COST_NANOS;
+            paths[i] = cost + longestSuccessor;
+        }
+        return paths;
+    }
+
+    @Override
+    public String toString() {
+        return "DagExecutionPlan{" +
+                "graphName='" + graphName + '\'' +
+                ", nodes=" + nodeIndexMap.keySet() +
+                '}';
+    }
+}
@@ -37,10 +37,13 @@ public class DagGraphBuilder {
 
     private Map<String, Object> attributes;
 
+    private final Set<ContextKey<?>> contextKeys;
+
     public DagGraphBuilder() {
         mutableValueGraph = ValueGraphBuilder.directed().allowsSelfLoops(false).build();
         nodeMap = new HashMap<>();
         attributes = new HashMap<>();
+        contextKeys = new LinkedHashSet<>();
     }
 
     public DagGraphBuilder graphName(String graphName) {
@@ -85,6 +88,15 @@ public class DagGraphBuilder {
         return this;
     }
 
+    /**
+     * Declares the typed keys of the context, their values are stored in slots instead of a hash map.
+     */
+    public DagGraphBuilder contextKeys(ContextKey<?>... keys) {
+        Objects.requireNonNull(keys, "keys must not be null");
+        this.contextKeys.addAll(Arrays.asList(keys));
+        return this;
+    }
+
     public DagGraph build() {
         if (MapUtils.isEmpty(nodeMap)) {
             throw new IllegalArgumentException("dag graph must not be empty");
@@ -96,7 +108,8 @@ public class DagGraphBuilder {
 
         // build dag graph
         ImmutableValueGraph immutableValueGraph = ImmutableValueGraph.copyOf(mutableValueGraph);
-        DefaultDagGraph dagGraph = new DefaultDagGraph(graphName, immutableValueGraph, nodeMap, timeout);
+        DefaultDagGraph dagGraph = new DefaultDagGraph(graphName, immutableValueGraph, nodeMap, timeout,
+                new ArrayList<>(contextKeys));
         this.attributes.forEach(dagGraph::setAttribute);
         return dagGraph;
     }
@@ -1,6 +1,7 @@
 package org.gloryjie.scheduler.core;
 
 import com.google.common.graph.ImmutableValueGraph;
+import org.gloryjie.scheduler.api.ContextKey;
 import org.gloryjie.scheduler.api.DagGraph;
 import org.gloryjie.scheduler.api.DagNode;
 import org.gloryjie.scheduler.api.DependencyType;
@@ -22,6 +23,7 @@ public class DefaultDagGraph implements DagGraph {
     private final Map<String, DagNode<?>> dagNodeMap;
     private ImmutableValueGraph<String, Integer> graph;
     private final Map<String, Integer> nodeInDegreeMap;
+    private final DagExecutionPlan executionPlan;
 
     private Long timeout;
 
@@ -31,6 +33,14 @@ public class DefaultDagGraph implements DagGraph {
                            ImmutableValueGraph<String, Integer> graph,
                            Map<String, DagNode<?>> dagNodeMap,
                            Long timeout) {
+        this(graphName, graph, dagNodeMap, timeout, Collections.emptyList());
+    }
+
+    public DefaultDagGraph(String graphName,
+                           ImmutableValueGraph<String, Integer> graph,
+                           Map<String, DagNode<?>> dagNodeMap,
+                           Long timeout,
+                           Collection<ContextKey<?>> contextKeys) {
         Objects.requireNonNull(graphName, "graph name must not be null");
         Objects.requireNonNull(graph, "graph must not be null");
         Objects.requireNonNull(dagNodeMap.get(DagGraph.START_NODE_NAME), "start node must not be null");
@@ -41,6 +51,8 @@ public class DefaultDagGraph implements DagGraph {
         nodeInDegreeMap = Collections.unmodifiableMap(graph.nodes().stream()
                 .collect(Collectors.toMap(Function.identity(), graph::inDegree)));
         this.timeout = timeout;
+        // compile once, every dag run is driven by the plan
+        this.executionPlan = DagExecutionPlan.compile(this, contextKeys);
     }
 
 
@@ -74,6 +86,15 @@ public class DefaultDagGraph implements DagGraph {
         return new HashMap<>(nodeInDegreeMap);
     }
 
+    /**
+     * Returns the immutable execution plan compiled when the graph is built.
+     *
+     * @return the execution plan of the graph
+     */
+    public DagExecutionPlan getExecutionPlan() {
+        return executionPlan;
+    }
+
     @Override
     public Long timeout() {
         return this.timeout;
@@ -0,0 +1,56 @@
+package org.gloryjie.scheduler.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gloryjie.scheduler.api.ExecutorSelector;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ExecutorSelector backed by a work-stealing ForkJoinPool.
+ * <p>
+ * The engine forks the successors which become ready on a worker into the local deque of that worker,
+ * so a dag run tends to stay on one core, and idle workers steal from the others instead of
+ * all the runs contending on one shared queue.
+ * Nodes which block should set {@link ConcurrentDagEngine#BLOCKING_ATTRIBUTE},
+ * they run as a {@link ForkJoinPool.ManagedBlocker} so the pool compensates the blocked worker.
+ */
+@Slf4j
+public class ForkJoinExecutorSelector implements ExecutorSelector {
+
+    private final ForkJoinPool forkJoinPool;
+
+    private final AtomicInteger threadCount = new AtomicInteger(0);
+
+    public ForkJoinExecutorSelector() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ForkJoinExecutorSelector(int parallelism) {
+        this(parallelism, false);
+    }
+
+    /**
+     * @param parallelism the parallelism of the pool
+     * @param asyncMode   false to run the local tasks in LIFO order, which keeps the successor of a node
+     *                    on the same core, true to run them in FIFO order
+     */
+    public ForkJoinExecutorSelector(int parallelism, boolean asyncMode) {
+        forkJoinPool = new ForkJoinPool(parallelism,
+                pool -> {
+                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    thread.setDaemon(true);
+                    thread.setName("easy-scheduler-fj-" + threadCount.getAndIncrement());
+                    return thread;
+                },
+                (t, e) -> log.error("easy-scheduler thread error", e),
+                asyncMode);
+    }
+
+    @Override
+    public ExecutorService select(String graphName) {
+        return forkJoinPool;
+    }
+}
@@ -0,0 +1,99 @@
+package org.gloryjie.scheduler.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounds the extra load of hedged node executions to a ratio of the executions of the hedged nodes.
+ * <p>
+ * The budget is a token bucket: each execution adds {@code ratio} tokens, up to {@code maxTokens}, and each
+ * hedge takes one token. A long run of fast executions therefore cannot save up more than {@code maxTokens}
+ * hedges for a later burst of slow ones.
+ */
+public class HedgeBudget {
+
+    public static final int DEFAULT_MAX_TOKENS = 10;
+
+    /**
+     * The tokens are kept in millionths, so a fractional ratio adds up exactly
+     */
+    private static final long TOKEN = 1_000_000L;
+
+    private final double ratio;
+
+    private final long tokensPerExecution;
+
+    private final long maxTokens;
+
+    private final AtomicLong tokens = new AtomicLong();
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder hedges = new LongAdder();
+
+    /**
+     * @param ratio the max number of hedges per execution, e.g. 0.05 for at most 5% extra load
+     */
+    public HedgeBudget(double ratio) {
+        this(ratio, DEFAULT_MAX_TOKENS);
+    }
+
+    /**
+     * @param ratio     the max number of hedges per execution, e.g. 0.05 for at most 5% extra load
+     * @param maxTokens the max number of hedges which can be saved up for a burst
+     */
+    public HedgeBudget(double ratio, int maxTokens) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("ratio must be in [0, 1]: " + ratio);
+        }
+        if (maxTokens < 1) {
+            throw new IllegalArgumentException("maxTokens must be positive: " + maxTokens);
+        }
+        this.ratio = ratio;
+        this.tokensPerExecution = Math.round(ratio * TOKEN);
+        this.maxTokens = maxTokens * TOKEN;
+    }
+
+    /**
+     * Records the first execution of a hedged node.
+     */
+    public void recordExecution() {
+        executions.increment();
+        if (tokensPerExecution > 0) {
+            tokens.accumulateAndGet(tokensPerExecution, (current, added) -> Math.min(maxTokens, current + added));
+        }
+    }
+
+    /**
+     * Takes a hedge from the budget.
+     *
+     * @return true if the hedge is allowed
+     */
+    public boolean tryAcquire() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        hedges.increment();
+        return true;
+    }
+
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    public long getHedgeCount() {
+        return hedges.sum();
+    }
+
+    public double getRatio() {
+        return ratio;
+    }
+
+    public int getMaxTokens() {
+        return (int) (maxTokens / TOKEN);
+    }
+}
@@ -0,0 +1,155 @@
+package org.gloryjie.scheduler.core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free log-linear latency histogram, in the spirit of HdrHistogram.
+ * <p>
+ * Every power of two is split into 8 linear buckets, so a recorded value is off by less than 12.5%,
+ * and the whole range of a long fits in 488 counters. Recording is one atomic increment,
+ * a percentile walks the counters and is cached for a while by {@link #percentile(double, long)}.
+ * The counts could be halved by {@link #decay()}, so the percentiles follow the recent latency.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong totalCount = new AtomicLong();
+
+    private final AtomicBoolean decaying = new AtomicBoolean();
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Records a latency.
+     *
+     * @param nanos the latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucketIndex(Math.max(nanos, 0)));
+        totalCount.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of recorded values, halved by every decay.
+     *
+     * @return the number of values
+     */
+    public long count() {
+        return totalCount.get();
+    }
+
+    /**
+     * Returns the value at the percentile, rounded up to the upper bound of its bucket.
+     *
+     * @param percentile the percentile in (0, 100]
+     * @return the value in nanoseconds, 0 if nothing is recorded
+     */
+    public long percentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be in (0, 100]: " + percentile);
+        }
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return bucketUpperBound(i);
+            }
+        }
+        return bucketUpperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Returns the value at the percentile, computed at most once in the max age.
+     *
+     * @param percentile the percentile in (0, 100]
+     * @param maxAgeNanos the max age of the cached value
+     * @return the value in nanoseconds, 0 if nothing is recorded
+     */
+    public long percentile(double percentile, long maxAgeNanos) {
+        Snapshot current = snapshot;
+        long now = System.nanoTime();
+        if (current != null && current.percentile == percentile && now - current.time <= maxAgeNanos) {
+            return current.value;
+        }
+        long value = percentile(percentile);
+        snapshot = new Snapshot(percentile, value, now);
+        return value;
+    }
+
+    /**
+     * Halves all the counts, the values recorded in the meantime are kept.
+     * Does nothing if another thread is decaying the histogram.
+     */
+    public void decay() {
+        if (!decaying.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long removed = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                long half = counts.get(i) >> 1;
+                if (half > 0) {
+                    counts.addAndGet(i, -half);
+                    removed += half;
+                }
+            }
+            totalCount.addAndGet(-removed);
+        } finally {
+            decaying.set(false);
+        }
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        long upperBound = lowerBound + (1L << shift) - 1;
+        // the last bucket ends at Long.MAX_VALUE
+        return upperBound < 0 ? Long.MAX_VALUE : upperBound;
+    }
+
+
+    private static final class Snapshot {
+
+        private final double percentile;
+
+        private final long value;
+
+        private final long time;
+
+        Snapshot(double percentile, long value, long time) {
+            this.percentile = percentile;
+            this.value = value;
+            this.time = time;
+        }
+    }
+}
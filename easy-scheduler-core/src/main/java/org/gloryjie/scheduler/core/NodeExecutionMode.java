@@ -0,0 +1,27 @@
+package org.gloryjie.scheduler.core;
+
+/**
+ * How the engine runs a node which has become ready, set by the node attribute
+ * {@link ConcurrentDagEngine#EXECUTION_MODE_ATTRIBUTE}
+ */
+public enum NodeExecutionMode {
+
+    /**
+     * Always submit the node to the executor
+     */
+    ASYNC,
+
+    /**
+     * Run the node on the thread which makes it ready if the thread is an executor thread,
+     * when several successors are ready at the same time only one of them runs inline.
+     */
+    INLINE,
+
+    /**
+     * Run the node inline when its average latency is under the threshold of the engine,
+     * see {@link ConcurrentDagEngine#setInlineLatencyThreshold(long, java.util.concurrent.TimeUnit)}.
+     * It is the default mode.
+     */
+    AUTO
+
+}
@@ -0,0 +1,60 @@
+package org.gloryjie.scheduler.core;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Observed latency of the nodes of a graph, indexed by the node index of the execution plan.
+ * <p>
+ * The latency is an exponentially weighted moving average, each new sample weighs 1/8.
+ * It is shared by all the runs of the graph and updated without locking,
+ * an update may be lost when two runs complete the same node at the same time, which is fine for a hint.
+ */
+public final class NodeLatencyStats {
+
+    private static final int WEIGHT_SHIFT = 3;
+
+    private final AtomicLongArray averageNanos;
+
+    private final AtomicIntegerArray samples;
+
+    public NodeLatencyStats(int size) {
+        this.averageNanos = new AtomicLongArray(size);
+        this.samples = new AtomicIntegerArray(size);
+    }
+
+    /**
+     * Records the execution time of the node.
+     *
+     * @param index the index of the node
+     * @param nanos the execution time in nanoseconds
+     */
+    public void record(int index, long nanos) {
+        long average = averageNanos.get(index);
+        long next = samples.get(index) == 0 ? nanos : average + ((nanos - average) >> WEIGHT_SHIFT);
+        averageNanos.lazySet(index, Math.max(next, 0));
+        if (samples.get(index) < Integer.MAX_VALUE) {
+            samples.lazySet(index, samples.get(index) + 1);
+        }
+    }
+
+    /**
+     * Returns the average execution time of the node.
+     *
+     * @param index the index of the node
+     * @return the average execution time in nanoseconds, 0 if the node has not been executed
+     */
+    public long averageNanos(int index) {
+        return averageNanos.get(index);
+    }
+
+    /**
+     * Returns the number of recorded executions of the node.
+     *
+     * @param index the index of the node
+     * @return the number of samples
+     */
+    public int samples(int index) {
+        return samples.get(index);
+    }
+}
@@ -0,0 +1,40 @@
+package org.gloryjie.scheduler.core;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of the pool of a partition of {@link PartitionedExecutorSelector}
+ */
+@Getter
+@ToString
+public class PartitionStats {
+
+    private final String partitionName;
+
+    private final int poolSize;
+
+    private final int activeCount;
+
+    private final int queueSize;
+
+    private final int queueCapacity;
+
+    private final long completedTaskCount;
+
+    /**
+     * Number of tasks rejected since the partition was created
+     */
+    private final long rejectedCount;
+
+    public PartitionStats(String partitionName, int poolSize, int activeCount, int queueSize,
+                          int queueCapacity, long completedTaskCount, long rejectedCount) {
+        this.partitionName = partitionName;
+        this.poolSize = poolSize;
+        this.activeCount = activeCount;
+        this.queueSize = queueSize;
+        this.queueCapacity = queueCapacity;
+        this.completedTaskCount = completedTaskCount;
+        this.rejectedCount = rejectedCount;
+    }
+}
@@ -0,0 +1,215 @@
+package org.gloryjie.scheduler.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gloryjie.scheduler.api.ExecutorSelector;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ExecutorSelector isolating graphs into partitions, each partition has its own thread pool with a bounded queue.
+ * <p>
+ * A slow graph could only fill the queue of its own partition. Once the queue is full the task is passed to
+ * the rejection handler, with the default {@link ThreadPoolExecutor.AbortPolicy} the engine fails the dag at once.
+ * Graphs not assigned to any partition run in the default partition.
+ * <pre>
+ * PartitionedExecutorSelector selector = PartitionedExecutorSelector.builder()
+ *         .partition("order", 16, 1024, "orderGraph", "payGraph")
+ *         .partition("report", 4, 256, "reportGraph")
+ *         .defaultPartition(8, 1024)
+ *         .build();
+ * </pre>
+ */
+@Slf4j
+public class PartitionedExecutorSelector implements ExecutorSelector {
+
+    public static final String DEFAULT_PARTITION = "default";
+
+    private final Map<String, Partition> graphPartitionMap;
+
+    private final Map<String, Partition> partitionMap;
+
+    private final Partition defaultPartition;
+
+    private PartitionedExecutorSelector(Map<String, Partition> graphPartitionMap,
+                                        Map<String, Partition> partitionMap,
+                                        Partition defaultPartition) {
+        this.graphPartitionMap = graphPartitionMap;
+        this.partitionMap = partitionMap;
+        this.defaultPartition = defaultPartition;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ExecutorService select(String graphName) {
+        return graphPartitionMap.getOrDefault(graphName, defaultPartition).executor;
+    }
+
+    /**
+     * Returns the stats of the partition.
+     *
+     * @param partitionName the name of the partition
+     * @return the stats, or null if the partition does not exist
+     */
+    public PartitionStats getStats(String partitionName) {
+        Partition partition = partitionMap.get(partitionName);
+        return partition == null ? null : partition.stats();
+    }
+
+    /**
+     * Returns the stats of all the partitions, include the default partition.
+     *
+     * @return the partition name -> the stats of the partition
+     */
+    public Map<String, PartitionStats> getAllStats() {
+        Map<String, PartitionStats> statsMap = new LinkedHashMap<>();
+        partitionMap.forEach((name, partition) -> statsMap.put(name, partition.stats()));
+        return statsMap;
+    }
+
+    /**
+     * Shuts down the pools of all the partitions
+     */
+    public void shutdown() {
+        partitionMap.values().forEach(partition -> partition.executor.shutdown());
+    }
+
+
+    private static class Partition {
+
+        private final String name;
+        private final int queueCapacity;
+        private final ThreadPoolExecutor executor;
+        private final LongAdder rejectedCount = new LongAdder();
+
+        Partition(String name, int threads, int queueCapacity, RejectedExecutionHandler rejectedExecutionHandler) {
+            this.name = name;
+            this.queueCapacity = queueCapacity;
+            AtomicInteger threadCount = new AtomicInteger(0);
+            this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread thread = new Thread(r);
+                        thread.setDaemon(true);
+                        thread.setName("easy-scheduler-" + name + "-" + threadCount.getAndIncrement());
+                        thread.setUncaughtExceptionHandler((t, e) -> {
+                            log.error("easy-scheduler thread error", e);
+                        });
+                        return thread;
+                    },
+                    (r, executor) -> {
+                        rejectedCount.increment();
+                        rejectedExecutionHandler.rejectedExecution(r, executor);
+                    });
+        }
+
+        PartitionStats stats() {
+            return new PartitionStats(name, executor.getPoolSize(), executor.getActiveCount(),
+                    executor.getQueue().size(), queueCapacity, executor.getCompletedTaskCount(),
+                    rejectedCount.sum());
+        }
+    }
+
+
+    public static class Builder {
+
+        private final Map<String, PartitionSpec> partitionSpecMap = new LinkedHashMap<>();
+
+        private final Map<String, String> graphPartitionNameMap = new HashMap<>();
+
+        private RejectedExecutionHandler rejectedExecutionHandler = new ThreadPoolExecutor.AbortPolicy();
+
+        Builder() {
+            int processors = Runtime.getRuntime().availableProcessors();
+            partitionSpecMap.put(DEFAULT_PARTITION, new PartitionSpec(processors, 1024));
+        }
+
+        /**
+         * Adds a partition running the given graphs.
+         *
+         * @param name          the name of the partition
+         * @param threads       the number of threads of the partition
+         * @param queueCapacity the capacity of the queue of the partition
+         * @param graphNames    the graphs running in the partition
+         * @return the builder
+         */
+        public Builder partition(String name, int threads, int queueCapacity, String... graphNames) {
+            if (DEFAULT_PARTITION.equals(name)) {
+                throw new IllegalArgumentException("use defaultPartition to configure the default partition");
+            }
+            if (partitionSpecMap.containsKey(name)) {
+                throw new IllegalArgumentException("partition[" + name + "] already exists");
+            }
+            Set<String> partitionGraphNames = new HashSet<>();
+            for (String graphName : graphNames) {
+                String previous = partitionGraphNames.add(graphName) ? graphPartitionNameMap.get(graphName) : name;
+                if (previous != null) {
+                    throw new IllegalArgumentException("graph[" + graphName + "] is already in partition[" + previous + "]");
+                }
+            }
+            partitionSpecMap.put(name, new PartitionSpec(threads, queueCapacity));
+            for (String graphName : partitionGraphNames) {
+                graphPartitionNameMap.put(graphName, name);
+            }
+            return this;
+        }
+
+        /**
+         * Configures the partition of the graphs not assigned to any partition,
+         * it has availableProcessors threads and a queue of 1024 by default.
+         *
+         * @param threads       the number of threads
+         * @param queueCapacity the capacity of the queue
+         * @return the builder
+         */
+        public Builder defaultPartition(int threads, int queueCapacity) {
+            partitionSpecMap.put(DEFAULT_PARTITION, new PartitionSpec(threads, queueCapacity));
+            return this;
+        }
+
+        /**
+         * Sets the handler of the tasks rejected by a full partition, AbortPolicy by default.
+         * The engine fails the dag when the handler throws {@link RejectedExecutionException},
+         * with a discard policy the node is never run and the dag waits until timeout.
+         *
+         * @param rejectedExecutionHandler the rejection handler used by all the partitions
+         * @return the builder
+         */
+        public Builder rejectedExecutionHandler(RejectedExecutionHandler rejectedExecutionHandler) {
+            this.rejectedExecutionHandler = Objects.requireNonNull(rejectedExecutionHandler);
+            return this;
+        }
+
+        public PartitionedExecutorSelector build() {
+            Map<String, Partition> partitionMap = new LinkedHashMap<>();
+            partitionSpecMap.forEach((name, spec) -> partitionMap.put(name,
+                    new Partition(name, spec.threads, spec.queueCapacity, rejectedExecutionHandler)));
+
+            Map<String, Partition> graphPartitionMap = new HashMap<>();
+            graphPartitionNameMap.forEach((graphName, partitionName) ->
+                    graphPartitionMap.put(graphName, partitionMap.get(partitionName)));
+
+            return new PartitionedExecutorSelector(Collections.unmodifiableMap(graphPartitionMap),
+                    Collections.unmodifiableMap(partitionMap), partitionMap.get(DEFAULT_PARTITION));
+        }
+    }
+
+    private static class PartitionSpec {
+
+        private final int threads;
+        private final int queueCapacity;
+
+        PartitionSpec(int threads, int queueCapacity) {
+            if (threads <= 0 || queueCapacity <= 0) {
+                throw new IllegalArgumentException("threads and queueCapacity must be greater than 0");
+            }
+            this.threads = threads;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+}
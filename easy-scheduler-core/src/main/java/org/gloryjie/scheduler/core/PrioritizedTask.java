@@ -0,0 +1,15 @@
+package org.gloryjie.scheduler.core;
+
+/**
+ * Task with a priority, served before the tasks with lower priorities by {@link PriorityExecutorSelector}
+ */
+public interface PrioritizedTask extends Runnable {
+
+    /**
+     * Returns the priority of the task, the greater the earlier.
+     *
+     * @return the priority
+     */
+    long priority();
+
+}
@@ -0,0 +1,111 @@
+package org.gloryjie.scheduler.core;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gloryjie.scheduler.api.ExecutorSelector;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ExecutorSelector serving the ready nodes of all the dag runs from one priority queue.
+ * <p>
+ * The priority of a node is its remaining critical path length, see {@link DagExecutionPlan#criticalPath(int)},
+ * so under saturation the nodes with the least slack run first instead of waiting behind the others.
+ * Tasks with equal priorities run in FIFO order, tasks which are not {@link PrioritizedTask} have priority 0.
+ */
+@Slf4j
+public class PriorityExecutorSelector implements ExecutorSelector {
+
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicInteger threadCount = new AtomicInteger(0);
+
+    public PriorityExecutorSelector() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public PriorityExecutorSelector(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than 0: " + threads);
+        }
+        executor = new PriorityThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r);
+            thread.setDaemon(true);
+            thread.setName("easy-scheduler-priority-" + threadCount.getAndIncrement());
+            thread.setUncaughtExceptionHandler((t, e) -> log.error("easy-scheduler thread error", e));
+            return thread;
+        });
+    }
+
+    @Override
+    public ExecutorService select(String graphName) {
+        return executor;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+
+    private static class PriorityThreadPoolExecutor extends ThreadPoolExecutor {
+
+        private final AtomicLong sequence = new AtomicLong();
+
+        PriorityThreadPoolExecutor(int threads, ThreadFactory threadFactory) {
+            super(threads, threads, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threadFactory);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            if (command == null) {
+                throw new NullPointerException();
+            }
+            long priority = command instanceof PrioritizedTask ? ((PrioritizedTask) command).priority() : 0;
+            super.execute(new PriorityRunnable(command, priority, sequence.getAndIncrement()));
+        }
+
+        @Override
+        public boolean remove(Runnable task) {
+            // the queue holds the wrappers, a wrapper equals the other wrappers of the same task
+            return super.remove(new PriorityRunnable(task, 0, 0));
+        }
+    }
+
+
+    private static final class PriorityRunnable implements Runnable, Comparable<PriorityRunnable> {
+
+        private final Runnable task;
+
+        private final long priority;
+
+        private final long sequence;
+
+        PriorityRunnable(Runnable task, long priority, long sequence) {
+            this.task = task;
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+
+        @Override
+        public int compareTo(PriorityRunnable other) {
+            int result = Long.compare(other.priority, priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof PriorityRunnable && ((PriorityRunnable) o).task == task;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(task);
+        }
+    }
+}
@@ -5,6 +5,11 @@ import org.gloryjie.scheduler.api.DagEngine;
 import org.gloryjie.scheduler.api.DagGraph;
 import org.gloryjie.scheduler.api.DagNodeFilter;
 import org.gloryjie.scheduler.api.DagResult;
+import org.gloryjie.scheduler.core.event.DagEventDispatcher;
+import org.gloryjie.scheduler.core.metrics.DagMetricsRecorder;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 public class SingleThreadDagEngine implements DagEngine {
@@ -17,6 +22,25 @@ public class SingleThreadDagEngine implements DagEngine {
         return concurrentDagEngine.fire(dagGraph, context, timeout);
     }
 
+    @Override
+    public CompletableFuture<DagResult> fireAsync(DagGraph dagGraph, Object context, Long timeout) {
+        // all nodes run on the calling thread, the future is done when returned
+        return concurrentDagEngine.fireAsync(dagGraph, context, timeout);
+    }
+
+    @Override
+    public List<DagResult> fireBatch(DagGraph dagGraph, List<?> contexts, Long timeout) {
+        return concurrentDagEngine.fireBatch(dagGraph, contexts, timeout);
+    }
+
+    public void setMetricsRecorder(DagMetricsRecorder metricsRecorder) {
+        concurrentDagEngine.setMetricsRecorder(metricsRecorder);
+    }
+
+    public void setEventDispatcher(DagEventDispatcher eventDispatcher) {
+        concurrentDagEngine.setEventDispatcher(eventDispatcher);
+    }
+
     @Override
     public void registerFilter(DagNodeFilter filter) {
         concurrentDagEngine.registerFilter(filter);
@@ -0,0 +1,209 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.CancellationToken;
+import org.gloryjie.scheduler.api.ContextKey;
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.api.NodeResult;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DagContext storing the values in the slots laid out by the {@link DagExecutionPlan}.
+ * <p>
+ * Node results, the user context, the cancellation token and the {@link ContextKey}s declared to the graph
+ * are read and written by index, without building the prefixed key or hashing it.
+ * The String API is kept for compatibility, keys without a slot are stored in a map created on first use.
+ */
+public class SlotDagContext implements DagContext {
+
+    private final DagExecutionPlan plan;
+
+    private final AtomicReferenceArray<Object> slots;
+
+    private volatile ConcurrentHashMap<String, Object> extras;
+
+    public SlotDagContext(DagExecutionPlan plan, Object userContext) {
+        this.plan = Objects.requireNonNull(plan, "plan must not be null");
+        this.slots = new AtomicReferenceArray<>(plan.contextSlotCount());
+        if (userContext != null) {
+            slots.set(plan.userContextSlot(), userContext);
+        }
+    }
+
+    @Override
+    public NodeResult<?> getNodeResult(String nodeName) {
+        int index = plan.indexOf(nodeName);
+        return index < 0 ? DagContext.super.getNodeResult(nodeName) : (NodeResult<?>) slots.get(index);
+    }
+
+    @Override
+    public void putNodeResult(String nodeName, NodeResult<?> result) {
+        Objects.requireNonNull(nodeName, "nodeName must not null");
+        Objects.requireNonNull(result, "nodeResult must not null");
+        int index = plan.indexOf(nodeName);
+        if (index < 0) {
+            DagContext.super.putNodeResult(nodeName, result);
+        } else {
+            slots.set(index, result);
+        }
+    }
+
+    @Override
+    public Object getContext() {
+        return slots.get(plan.userContextSlot());
+    }
+
+    @Override
+    public CancellationToken getCancellationToken() {
+        Object token = slots.get(plan.cancellationTokenSlot());
+        return token instanceof CancellationToken ? (CancellationToken) token : CancellationToken.NONE;
+    }
+
+    @Override
+    public <T> T get(ContextKey<T> key) {
+        int slot = plan.contextSlot(key);
+        return key.cast(slot < 0 ? get(key.getName()) : slots.get(slot));
+    }
+
+    @Override
+    public <T> void put(ContextKey<T> key, T value) {
+        int slot = plan.contextSlot(key);
+        if (slot < 0) {
+            put(key.getName(), value);
+        } else {
+            Objects.requireNonNull(value, "value must not null");
+            slots.set(slot, value);
+        }
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Objects.requireNonNull(key, "key must not null");
+        Objects.requireNonNull(value, "value must not null");
+        int slot = plan.contextSlot(key);
+        return slot < 0 ? extras().put(key, value) : slots.getAndSet(slot, value);
+    }
+
+    @Override
+    public Object get(String key) {
+        int slot = plan.contextSlot(key);
+        if (slot >= 0) {
+            return slots.get(slot);
+        }
+        Map<String, Object> map = extras;
+        return map == null ? null : map.get(key);
+    }
+
+    @Override
+    public Object remove(String key) {
+        int slot = plan.contextSlot(key);
+        if (slot >= 0) {
+            return slots.getAndSet(slot, null);
+        }
+        Map<String, Object> map = extras;
+        return map == null ? null : map.remove(key);
+    }
+
+    /**
+     * Returns a read-only view of the context, the entries are not copied.
+     */
+    @Override
+    public Map<String, Object> asMap() {
+        return new MapView();
+    }
+
+    private ConcurrentHashMap<String, Object> extras() {
+        ConcurrentHashMap<String, Object> map = extras;
+        if (map == null) {
+            synchronized (this) {
+                map = extras;
+                if (map == null) {
+                    map = new ConcurrentHashMap<>();
+                    extras = map;
+                }
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "SlotDagContext(graph=" + plan.getGraphName() + ", values=" + asMap() + ")";
+    }
+
+
+    private final class MapView extends AbstractMap<String, Object> {
+
+        @Override
+        public Object get(Object key) {
+            return key instanceof String ? SlotDagContext.this.get((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return entryIterator();
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (Iterator<Entry<String, Object>> it = entryIterator(); it.hasNext(); it.next()) {
+                        size++;
+                    }
+                    return size;
+                }
+            };
+        }
+
+        private Iterator<Entry<String, Object>> entryIterator() {
+            Map<String, Object> map = extras;
+            Iterator<Entry<String, Object>> extraIterator = map == null
+                    ? Collections.emptyIterator() : map.entrySet().iterator();
+            return new Iterator<Entry<String, Object>>() {
+
+                private int slot = -1;
+
+                private Entry<String, Object> next = advance();
+
+                private Entry<String, Object> advance() {
+                    while (++slot < slots.length()) {
+                        Object value = slots.get(slot);
+                        if (value != null) {
+                            return new SimpleImmutableEntry<>(plan.contextSlotName(slot), value);
+                        }
+                    }
+                    if (extraIterator.hasNext()) {
+                        Entry<String, Object> entry = extraIterator.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                    }
+                    return null;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return next != null;
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    if (next == null) {
+                        throw new NoSuchElementException();
+                    }
+                    Entry<String, Object> entry = next;
+                    next = advance();
+                    return entry;
+                }
+            };
+        }
+    }
+}
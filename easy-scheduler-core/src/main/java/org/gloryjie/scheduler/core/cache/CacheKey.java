@@ -0,0 +1,55 @@
+package org.gloryjie.scheduler.core.cache;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Key of a cached node result: the handler name plus the resolved arguments
+ */
+public final class CacheKey {
+
+    private final String handlerName;
+
+    private final Object[] args;
+
+    private final int hash;
+
+    private CacheKey(String handlerName, Object[] args) {
+        this.handlerName = Objects.requireNonNull(handlerName, "handlerName must not be null");
+        this.args = args;
+        this.hash = 31 * handlerName.hashCode() + Arrays.deepHashCode(args);
+    }
+
+    public static CacheKey of(String handlerName, Object... args) {
+        return new CacheKey(handlerName, args == null ? new Object[]{null} : args.clone());
+    }
+
+    public String getHandlerName() {
+        return handlerName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CacheKey)) {
+            return false;
+        }
+        CacheKey other = (CacheKey) o;
+        return hash == other.hash && handlerName.equals(other.handlerName) && Arrays.deepEquals(args, other.args);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheKey{" +
+                "handlerName='" + handlerName + '\'' +
+                ", args=" + Arrays.deepToString(args) +
+                '}';
+    }
+}
@@ -0,0 +1,26 @@
+package org.gloryjie.scheduler.core.cache;
+
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.api.DagNode;
+
+/**
+ * Resolves the arguments identifying the result of a node in a run, two runs with equal arguments share the result.
+ */
+@FunctionalInterface
+public interface CacheKeyResolver {
+
+    /**
+     * Uses the user context of the run, which must implement equals and hashCode.
+     */
+    CacheKeyResolver USER_CONTEXT = (dagNode, dagContext) -> dagContext.getContext();
+
+    /**
+     * Returns the arguments of the node in the run.
+     *
+     * @param dagNode    the node
+     * @param dagContext the context of the run
+     * @return the arguments, must implement equals and hashCode
+     */
+    Object resolveKey(DagNode<Object> dagNode, DagContext dagContext);
+
+}
@@ -0,0 +1,57 @@
+package org.gloryjie.scheduler.core.cache;
+
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.api.DagNode;
+import org.gloryjie.scheduler.api.NodeHandler;
+
+import java.util.Objects;
+
+/**
+ * NodeHandler decorator caching the results of the delegate across the dag runs,
+ * keyed on the handler name, or the node name when the handler has no name, plus the arguments resolved for the run.
+ *
+ * @param <R> the type of the result
+ */
+public class CachingNodeHandler<R> implements NodeHandler<R> {
+
+    private final NodeHandler<R> delegate;
+
+    private final NodeResultCache cache;
+
+    private final CacheKeyResolver keyResolver;
+
+    public CachingNodeHandler(NodeHandler<R> delegate, NodeResultCache cache) {
+        this(delegate, cache, CacheKeyResolver.USER_CONTEXT);
+    }
+
+    public CachingNodeHandler(NodeHandler<R> delegate, NodeResultCache cache, CacheKeyResolver keyResolver) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate must not be null");
+        this.cache = Objects.requireNonNull(cache, "cache must not be null");
+        this.keyResolver = Objects.requireNonNull(keyResolver, "keyResolver must not be null");
+    }
+
+    @Override
+    public String handlerName() {
+        return delegate.handlerName();
+    }
+
+    @Override
+    public boolean evaluate(DagNode<Object> dagNode, DagContext dagContext) {
+        return delegate.evaluate(dagNode, dagContext);
+    }
+
+    @Override
+    public R execute(DagNode<Object> dagNode, DagContext dagContext) {
+        CacheKey key = CacheKey.of(NodeResultCache.keyName(delegate, dagNode), keyResolver.resolveKey(dagNode, dagContext));
+        return cache.get(key, () -> delegate.execute(dagNode, dagContext));
+    }
+
+    @Override
+    public Long timeout() {
+        return delegate.timeout();
+    }
+
+    public NodeResultCache getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,52 @@
+package org.gloryjie.scheduler.core.cache;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Snapshot of the statistics of a {@link NodeResultCache}, counted since the cache was created
+ */
+@Getter
+@ToString
+public class NodeCacheStats {
+
+    private final long hitCount;
+
+    private final long missCount;
+
+    private final long loadSuccessCount;
+
+    private final long loadExceptionCount;
+
+    /**
+     * Total time spent loading the missed results, in nanoseconds
+     */
+    private final long totalLoadTime;
+
+    private final long evictionCount;
+
+    public NodeCacheStats(long hitCount, long missCount, long loadSuccessCount, long loadExceptionCount,
+                          long totalLoadTime, long evictionCount) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.loadSuccessCount = loadSuccessCount;
+        this.loadExceptionCount = loadExceptionCount;
+        this.totalLoadTime = totalLoadTime;
+        this.evictionCount = evictionCount;
+    }
+
+    public double hitRate() {
+        long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Returns the average time spent loading a result.
+     *
+     * @return the average load time in nanoseconds
+     */
+    public double averageLoadPenalty() {
+        long loadCount = loadSuccessCount + loadExceptionCount;
+        return loadCount == 0 ? 0.0 : (double) totalLoadTime / loadCount;
+    }
+}
@@ -0,0 +1,182 @@
+package org.gloryjie.scheduler.core.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.api.DagNode;
+import org.gloryjie.scheduler.api.NodeHandler;
+import org.gloryjie.scheduler.core.DagEngineException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Node results shared by all the dag runs, expired after a TTL and evicted in LRU order when the cache is full.
+ * <p>
+ * Concurrent misses of the same key share one computation: the first caller runs the handler
+ * and the others wait for its result. A failed computation is not cached.
+ * <p>
+ * A cache could be attached to a node with the {@link #CACHE_ATTRIBUTE} attribute,
+ * or to a handler with {@link CachingNodeHandler}.
+ */
+public class NodeResultCache {
+
+    /**
+     * Node attribute holding the NodeResultCache of the node
+     */
+    public static final String CACHE_ATTRIBUTE = "#RESULT_CACHE#";
+
+    /**
+     * Node attribute holding the {@link CacheKeyResolver} of the node,
+     * {@link CacheKeyResolver#USER_CONTEXT} is used when absent
+     */
+    public static final String CACHE_KEY_ATTRIBUTE = "#RESULT_CACHE_KEY#";
+
+    /**
+     * Max number of results of a cache built without {@link Builder#maximumSize(long)}
+     */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1024;
+
+    /**
+     * Guava cache does not support null values
+     */
+    private static final Object NULL_VALUE = new Object();
+
+    private final Cache<Object, Object> cache;
+
+    private NodeResultCache(Cache<Object, Object> cache) {
+        this.cache = cache;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the cached result of the key, or computes and caches it.
+     *
+     * @param key    the key, usually a {@link CacheKey}
+     * @param loader computes the result on a miss
+     * @param <V>    the type of the result
+     * @return the result
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(Object key, Callable<V> loader) {
+        Object value;
+        try {
+            value = cache.get(key, () -> {
+                V loaded = loader.call();
+                return loaded == null ? NULL_VALUE : loaded;
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new DagEngineException("failed to load the result of " + key, cause);
+        }
+        return value == NULL_VALUE ? null : (V) value;
+    }
+
+    /**
+     * Executes the handler of the node through the cache attached to the node.
+     * The name of the handler, or the node name when the handler has no name, is a part of the key.
+     *
+     * @param handler    the handler of the node
+     * @param dagNode    the node, holds the cache in the {@link #CACHE_ATTRIBUTE} attribute
+     * @param dagContext the context of the run
+     * @return the result of the handler
+     */
+    public Object execute(NodeHandler<?> handler, DagNode<Object> dagNode, DagContext dagContext) {
+        Object resolver = dagNode.getAttribute(CACHE_KEY_ATTRIBUTE);
+        CacheKeyResolver keyResolver = resolver instanceof CacheKeyResolver
+                ? (CacheKeyResolver) resolver : CacheKeyResolver.USER_CONTEXT;
+        CacheKey key = CacheKey.of(keyName(handler, dagNode), keyResolver.resolveKey(dagNode, dagContext));
+        return get(key, () -> handler.execute(dagNode, dagContext));
+    }
+
+    /**
+     * The name of the handler, or the node name when the handler has no name,
+     * so the unnamed handlers of different nodes do not share their results
+     */
+    static String keyName(NodeHandler<?> handler, DagNode<?> dagNode) {
+        String handlerName = handler.handlerName();
+        return handlerName == null || handlerName.isEmpty() ? dagNode.getNodeName() : handlerName;
+    }
+
+    public void invalidate(Object key) {
+        cache.invalidate(key);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public NodeCacheStats getStats() {
+        CacheStats stats = cache.stats();
+        return new NodeCacheStats(stats.hitCount(), stats.missCount(), stats.loadSuccessCount(),
+                stats.loadExceptionCount(), stats.totalLoadTime(), stats.evictionCount());
+    }
+
+
+    public static class Builder {
+
+        private long expireAfterWriteNanos;
+
+        private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+        Builder() {
+
+        }
+
+        /**
+         * Sets the TTL of a result, results never expire by default.
+         *
+         * @param duration the TTL
+         * @param unit     the unit of the TTL
+         * @return the builder
+         */
+        public Builder expireAfterWrite(long duration, TimeUnit unit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("duration must not be negative: " + duration);
+            }
+            this.expireAfterWriteNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Sets the max number of results, the least recently used ones are evicted first,
+         * {@link #DEFAULT_MAXIMUM_SIZE} by default.
+         *
+         * @param maximumSize the max number of results
+         * @return the builder
+         */
+        public Builder maximumSize(long maximumSize) {
+            if (maximumSize < 0) {
+                throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+            }
+            this.maximumSize = maximumSize;
+            return this;
+        }
+
+        public NodeResultCache build() {
+            CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().recordStats();
+            if (expireAfterWriteNanos > 0) {
+                builder.expireAfterWrite(expireAfterWriteNanos, TimeUnit.NANOSECONDS);
+            }
+            builder.maximumSize(maximumSize);
+            return new NodeResultCache(builder.build());
+        }
+    }
+}
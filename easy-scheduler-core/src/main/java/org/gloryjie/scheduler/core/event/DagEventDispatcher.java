@@ -0,0 +1,283 @@
+package org.gloryjie.scheduler.core.event;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gloryjie.scheduler.api.*;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers the {@link DagExecutionEvent}s to the {@link DagExecutionListener}s on a dedicated thread.
+ * <p>
+ * The events are written into a preallocated ring buffer: a publisher claims a slot with a CAS,
+ * fills it and publishes it with a volatile write, so publishing neither locks nor allocates.
+ * When the listeners fall behind and the buffer is full the event is dropped and counted,
+ * the engine threads never wait for the listeners.
+ * <p>
+ * An idle dispatcher thread backs off up to {@link #MAX_PARK_NANOS}, then parks until a publisher wakes it up.
+ */
+@Slf4j
+public class DagEventDispatcher implements AutoCloseable {
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Idle loops before the consumer parks until an event is published: 16 yields, then parks of 1us up to 1ms
+     */
+    private static final int MAX_IDLE = 16 + 11 + 16;
+
+    private final EventSlot[] slots;
+
+    private final int mask;
+
+    /**
+     * The next sequence to claim by a publisher
+     */
+    private final AtomicLong claimed = new AtomicLong();
+
+    /**
+     * The next sequence to consume, the slots before it could be reused
+     */
+    private final AtomicLong consumed = new AtomicLong();
+
+    private final LongAdder dropped = new LongAdder();
+
+    private final List<DagExecutionListener> listeners = new CopyOnWriteArrayList<>();
+
+    private final Thread consumer;
+
+    private volatile boolean running = true;
+
+    /**
+     * True while the consumer is parked until an event is published
+     */
+    private volatile boolean sleeping;
+
+    public DagEventDispatcher() {
+        this(8192);
+    }
+
+    /**
+     * @param bufferSize the number of events the buffer holds, must be a power of two
+     */
+    public DagEventDispatcher(int bufferSize) {
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of two: " + bufferSize);
+        }
+        slots = new EventSlot[bufferSize];
+        for (int i = 0; i < bufferSize; i++) {
+            slots[i] = new EventSlot();
+        }
+        mask = bufferSize - 1;
+
+        consumer = new Thread(this::consume, "easy-scheduler-event-dispatcher");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    public void addListener(DagExecutionListener listener) {
+        listeners.add(Objects.requireNonNull(listener, "listener must not be null"));
+    }
+
+    public void removeListener(DagExecutionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of events dropped because the buffer was full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Publishes an event, it returns at once whatever the listeners are doing.
+     *
+     * @return false if the event is dropped
+     */
+    public boolean publish(DagExecutionEvent.Type type, long runId, String graphName, String nodeName,
+                           DagState dagState, NodeState nodeState, Throwable throwable) {
+        if (!running || listeners.isEmpty()) {
+            return false;
+        }
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed.get() >= slots.length) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+
+        EventSlot slot = slots[(int) sequence & mask];
+        slot.type = type;
+        slot.runId = runId;
+        slot.graphName = graphName;
+        slot.nodeName = nodeName;
+        slot.dagState = dagState;
+        slot.nodeState = nodeState;
+        slot.throwable = throwable;
+        slot.nanoTime = System.nanoTime();
+        // the volatile write makes the fields visible to the consumer
+        slot.sequence = sequence;
+        if (sleeping) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Stops the dispatcher thread once the published events are delivered
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consume() {
+        long next = 0;
+        int idle = 0;
+        while (running || next < claimed.get()) {
+            EventSlot slot = slots[(int) next & mask];
+            if (slot.sequence != next) {
+                idle++;
+                if (idle < 16) {
+                    Thread.yield();
+                } else if (idle < MAX_IDLE) {
+                    LockSupport.parkNanos(Math.min(MAX_PARK_NANOS, 1000L << Math.min(idle - 16, 10)));
+                } else {
+                    sleep(slot, next);
+                }
+                continue;
+            }
+            idle = 0;
+            dispatch(slot);
+            // release the references before the slot is reused
+            slot.graphName = null;
+            slot.nodeName = null;
+            slot.throwable = null;
+            consumed.lazySet(++next);
+        }
+    }
+
+    /**
+     * Parks until the slot is published or the dispatcher is closed.
+     * The flag is set before the slot is checked and the publisher checks the flag after the slot is written,
+     * so one of them sees the write of the other.
+     */
+    private void sleep(EventSlot slot, long next) {
+        sleeping = true;
+        try {
+            if (running && slot.sequence != next) {
+                LockSupport.park(this);
+            }
+        } finally {
+            sleeping = false;
+        }
+    }
+
+    private void dispatch(EventSlot event) {
+        for (DagExecutionListener listener : listeners) {
+            try {
+                switch (event.type) {
+                    case DAG_STARTED:
+                        listener.onDagStarted(event);
+                        break;
+                    case NODE_SUBMITTED:
+                        listener.onNodeSubmitted(event);
+                        break;
+                    case NODE_STARTED:
+                        listener.onNodeStarted(event);
+                        break;
+                    case NODE_COMPLETED:
+                        listener.onNodeCompleted(event);
+                        break;
+                    case NODE_TIMED_OUT:
+                        listener.onNodeTimedOut(event);
+                        break;
+                    case DAG_COMPLETED:
+                        listener.onDagCompleted(event);
+                        break;
+                    default:
+                        break;
+                }
+            } catch (Throwable t) {
+                log.error("DagExecutionListener[{}] handle event {} error", listener, event, t);
+            }
+        }
+    }
+
+
+    private static final class EventSlot implements DagExecutionEvent {
+
+        private volatile long sequence = -1;
+
+        private Type type;
+        private long runId;
+        private String graphName;
+        private String nodeName;
+        private DagState dagState;
+        private NodeState nodeState;
+        private Throwable throwable;
+        private long nanoTime;
+
+        @Override
+        public Type getType() {
+            return type;
+        }
+
+        @Override
+        public long getRunId() {
+            return runId;
+        }
+
+        @Override
+        public String getGraphName() {
+            return graphName;
+        }
+
+        @Override
+        public String getNodeName() {
+            return nodeName;
+        }
+
+        @Override
+        public DagState getDagState() {
+            return dagState;
+        }
+
+        @Override
+        public NodeState getNodeState() {
+            return nodeState;
+        }
+
+        @Override
+        public Throwable getThrowable() {
+            return throwable;
+        }
+
+        @Override
+        public long getNanoTime() {
+            return nanoTime;
+        }
+
+        @Override
+        public String toString() {
+            return "DagExecutionEvent(type=" + type + ", runId=" + runId + ", graphName=" + graphName
+                    + ", nodeName=" + nodeName + ", dagState=" + dagState + ", nodeState=" + nodeState + ")";
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.gloryjie.scheduler.core.metrics;
+
+import org.gloryjie.scheduler.api.DagState;
+import org.gloryjie.scheduler.api.NodeState;
+
+/**
+ * SPI recording the execution metrics of the dag runs, set by
+ * {@link org.gloryjie.scheduler.core.ConcurrentDagEngine#setMetricsRecorder(DagMetricsRecorder)}.
+ * <p>
+ * The methods are called on the threads completing the nodes and the runs, once for every node
+ * and every run, so they must be thread safe and should not allocate or block.
+ * The virtual start and end nodes of a graph are not recorded.
+ */
+public interface DagMetricsRecorder {
+
+    /**
+     * Records a completed node.
+     *
+     * @param graphName      the name of the graph
+     * @param nodeName       the name of the node
+     * @param state          the final state of the node
+     * @param queueWaitNanos the time from the submission of the node to the start of its execution
+     * @param executionNanos the execution time of the node, 0 if it timed out before starting
+     */
+    void recordNode(String graphName, String nodeName, NodeState state, long queueWaitNanos, long executionNanos);
+
+    /**
+     * Records a completed dag run.
+     *
+     * @param graphName the name of the graph
+     * @param state     the final state of the run
+     * @param costNanos the time from the start of the run until it is done
+     */
+    void recordDag(String graphName, DagState state, long costNanos);
+
+}
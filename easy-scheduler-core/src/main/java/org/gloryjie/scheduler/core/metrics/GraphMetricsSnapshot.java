@@ -0,0 +1,71 @@
+package org.gloryjie.scheduler.core.metrics;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.gloryjie.scheduler.api.DagState;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the metrics of a graph and of its nodes, counted since the recorder was created
+ */
+@Getter
+@ToString
+public class GraphMetricsSnapshot {
+
+    private final String graphName;
+
+    /**
+     * Time of the snapshot in milliseconds
+     */
+    private final long timestamp;
+
+    /**
+     * Number of completed runs by final state
+     */
+    private final Map<DagState, Long> outcomes;
+
+    private final LatencySnapshot cost;
+
+    private final Map<String, NodeMetricsSnapshot> nodes;
+
+    public GraphMetricsSnapshot(String graphName, long timestamp, Map<DagState, Long> outcomes,
+                                LatencySnapshot cost, Map<String, NodeMetricsSnapshot> nodes) {
+        this.graphName = graphName;
+        this.timestamp = timestamp;
+        this.outcomes = outcomes;
+        this.cost = cost;
+        this.nodes = nodes;
+    }
+
+    public long count(DagState state) {
+        return outcomes.getOrDefault(state, 0L);
+    }
+
+    /**
+     * Returns the number of completed runs, whatever the final state is.
+     *
+     * @return the number of runs
+     */
+    public long totalCount() {
+        long total = 0;
+        for (Long count : outcomes.values()) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the completed runs per second between a previous snapshot of the same graph and this one.
+     *
+     * @param previous the previous snapshot
+     * @return the throughput in runs per second
+     */
+    public double throughputSince(GraphMetricsSnapshot previous) {
+        long elapsed = timestamp - previous.timestamp;
+        if (elapsed <= 0) {
+            return 0.0;
+        }
+        return (totalCount() - previous.totalCount()) * 1000.0 / elapsed;
+    }
+}
@@ -0,0 +1,120 @@
+package org.gloryjie.scheduler.core.metrics;
+
+import org.gloryjie.scheduler.api.DagState;
+import org.gloryjie.scheduler.api.NodeState;
+import org.gloryjie.scheduler.core.LatencyHistogram;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DagMetricsRecorder keeping the metrics in memory, read by {@link #snapshot()}.
+ * <p>
+ * The outcomes are counters indexed by the state and the latencies are {@link LatencyHistogram}s,
+ * so recording a graph or a node already seen is a few atomic increments without allocation.
+ * The metrics are cumulative, the throughput is derived from two snapshots.
+ */
+public class InMemoryDagMetricsRecorder implements DagMetricsRecorder {
+
+    private static final NodeState[] NODE_STATES = NodeState.values();
+
+    private static final DagState[] DAG_STATES = DagState.values();
+
+    private final ConcurrentMap<String, GraphMetrics> graphs = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordNode(String graphName, String nodeName, NodeState state, long queueWaitNanos, long executionNanos) {
+        NodeMetrics nodeMetrics = graph(graphName).node(nodeName);
+        nodeMetrics.outcomes.incrementAndGet(state.ordinal());
+        nodeMetrics.queueWait.record(queueWaitNanos);
+        nodeMetrics.execution.record(executionNanos);
+    }
+
+    @Override
+    public void recordDag(String graphName, DagState state, long costNanos) {
+        GraphMetrics graphMetrics = graph(graphName);
+        graphMetrics.outcomes.incrementAndGet(state.ordinal());
+        graphMetrics.cost.record(costNanos);
+    }
+
+    /**
+     * Returns the snapshots of all the recorded graphs.
+     *
+     * @return the snapshots by graph name
+     */
+    public Map<String, GraphMetricsSnapshot> snapshot() {
+        Map<String, GraphMetricsSnapshot> snapshots = new TreeMap<>();
+        graphs.forEach((graphName, graphMetrics) -> snapshots.put(graphName, graphMetrics.snapshot(graphName)));
+        return snapshots;
+    }
+
+    /**
+     * Returns the snapshot of a graph.
+     *
+     * @param graphName the name of the graph
+     * @return the snapshot, or null if nothing of the graph is recorded
+     */
+    public GraphMetricsSnapshot snapshot(String graphName) {
+        GraphMetrics graphMetrics = graphs.get(graphName);
+        return graphMetrics == null ? null : graphMetrics.snapshot(graphName);
+    }
+
+    /**
+     * Removes all the recorded metrics
+     */
+    public void reset() {
+        graphs.clear();
+    }
+
+    private GraphMetrics graph(String graphName) {
+        GraphMetrics graphMetrics = graphs.get(graphName);
+        return graphMetrics != null ? graphMetrics : graphs.computeIfAbsent(graphName, name -> new GraphMetrics());
+    }
+
+    private static <S extends Enum<S>> Map<S, Long> outcomes(S[] states, AtomicLongArray counts) {
+        Map<S, Long> outcomes = new LinkedHashMap<>();
+        for (S state : states) {
+            long count = counts.get(state.ordinal());
+            if (count > 0) {
+                outcomes.put(state, count);
+            }
+        }
+        return Collections.unmodifiableMap(outcomes);
+    }
+
+
+    private static final class GraphMetrics {
+
+        private final AtomicLongArray outcomes = new AtomicLongArray(DAG_STATES.length);
+
+        private final LatencyHistogram cost = new LatencyHistogram();
+
+        private final ConcurrentMap<String, NodeMetrics> nodes = new ConcurrentHashMap<>();
+
+        NodeMetrics node(String nodeName) {
+            NodeMetrics nodeMetrics = nodes.get(nodeName);
+            return nodeMetrics != null ? nodeMetrics : nodes.computeIfAbsent(nodeName, name -> new NodeMetrics());
+        }
+
+        GraphMetricsSnapshot snapshot(String graphName) {
+            Map<String, NodeMetricsSnapshot> nodeSnapshots = new TreeMap<>();
+            nodes.forEach((nodeName, nodeMetrics) -> nodeSnapshots.put(nodeName, new NodeMetricsSnapshot(nodeName,
+                    outcomes(NODE_STATES, nodeMetrics.outcomes), LatencySnapshot.of(nodeMetrics.queueWait),
+                    LatencySnapshot.of(nodeMetrics.execution))));
+            return new GraphMetricsSnapshot(graphName, System.currentTimeMillis(), outcomes(DAG_STATES, outcomes),
+                    LatencySnapshot.of(cost), Collections.unmodifiableMap(nodeSnapshots));
+        }
+    }
+
+
+    private static final class NodeMetrics {
+
+        private final AtomicLongArray outcomes = new AtomicLongArray(NODE_STATES.length);
+
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+
+        private final LatencyHistogram execution = new LatencyHistogram();
+    }
+}
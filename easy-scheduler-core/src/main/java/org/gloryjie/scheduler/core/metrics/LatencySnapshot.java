@@ -0,0 +1,37 @@
+package org.gloryjie.scheduler.core.metrics;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.gloryjie.scheduler.core.LatencyHistogram;
+
+/**
+ * Snapshot of a latency distribution, the percentiles are the upper bounds of the histogram buckets
+ * in nanoseconds, so they are off by less than 12.5%
+ */
+@Getter
+@ToString
+public class LatencySnapshot {
+
+    private final long count;
+
+    private final long p50;
+
+    private final long p90;
+
+    private final long p99;
+
+    private final long max;
+
+    public LatencySnapshot(long count, long p50, long p90, long p99, long max) {
+        this.count = count;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    static LatencySnapshot of(LatencyHistogram histogram) {
+        return new LatencySnapshot(histogram.count(), histogram.percentile(50), histogram.percentile(90),
+                histogram.percentile(99), histogram.percentile(100));
+    }
+}
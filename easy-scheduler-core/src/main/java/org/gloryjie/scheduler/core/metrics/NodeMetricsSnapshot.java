@@ -0,0 +1,41 @@
+package org.gloryjie.scheduler.core.metrics;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.gloryjie.scheduler.api.NodeState;
+
+import java.util.Map;
+
+/**
+ * Snapshot of the metrics of a node, counted since the recorder was created
+ */
+@Getter
+@ToString
+public class NodeMetricsSnapshot {
+
+    private final String nodeName;
+
+    /**
+     * Number of completed executions by final state
+     */
+    private final Map<NodeState, Long> outcomes;
+
+    /**
+     * Time spent waiting for a thread, a wait close to the execution time means the pool is too small
+     */
+    private final LatencySnapshot queueWait;
+
+    private final LatencySnapshot execution;
+
+    public NodeMetricsSnapshot(String nodeName, Map<NodeState, Long> outcomes,
+                               LatencySnapshot queueWait, LatencySnapshot execution) {
+        this.nodeName = nodeName;
+        this.outcomes = outcomes;
+        this.queueWait = queueWait;
+        this.execution = execution;
+    }
+
+    public long count(NodeState state) {
+        return outcomes.getOrDefault(state, 0L);
+    }
+}
@@ -0,0 +1,27 @@
+package org.gloryjie.scheduler.core.timer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timer used by the engine to enforce node and graph timeouts.
+ * <p>
+ * Tasks run on the timer thread, so they must be short and never block.
+ */
+public interface DagTimer {
+
+    /**
+     * Schedules the task to run once after the delay.
+     *
+     * @param task  the task to run
+     * @param delay the delay before the task runs
+     * @param unit  the unit of the delay
+     * @return the handle of the scheduled task, used to cancel it
+     */
+    Timeout newTimeout(Runnable task, long delay, TimeUnit unit);
+
+    /**
+     * Stops the timer, all the tasks not run yet are dropped.
+     */
+    void stop();
+
+}
@@ -0,0 +1,362 @@
+package org.gloryjie.scheduler.core.timer;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DagTimer based on a hashed timing wheel.
+ * <p>
+ * Scheduling and cancelling are O(1): a new task is put into a lock-free queue and moved into
+ * its wheel bucket by the worker thread on the next tick, a cancelled task is unlinked from its bucket
+ * on the next tick as well, so the references held by a cancelled task are released within one tick.
+ * The precision of a task is the tick duration, which is good enough for node and graph timeouts.
+ */
+@Slf4j
+public class HashedWheelDagTimer implements DagTimer {
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_STOPPED = 2;
+
+    /**
+     * Max number of new tasks moved into the wheel in one tick, so the worker can not be starved by producers
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final Queue<WheelTimeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<WheelTimeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pendingTimeouts = new AtomicLong();
+
+    private final AtomicInteger workerState = new AtomicInteger(STATE_INIT);
+
+    private final Thread workerThread;
+
+    /**
+     * Base of all the deadlines, set when the timer starts and never 0 after that
+     */
+    private volatile long startTime;
+
+
+    public HashedWheelDagTimer() {
+        this(5, TimeUnit.MILLISECONDS, 512);
+    }
+
+    public HashedWheelDagTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(tickDuration, unit, ticksPerWheel, "easy-scheduler-wheel-timer");
+    }
+
+    /**
+     * Creates a timer, the worker thread is started when the first task is scheduled.
+     *
+     * @param tickDuration  the duration between two ticks
+     * @param unit          the unit of the tick duration
+     * @param ticksPerWheel the size of the wheel, rounded up to a power of two
+     * @param threadName    the name of the worker thread
+     */
+    public HashedWheelDagTimer(long tickDuration, TimeUnit unit, int ticksPerWheel, String threadName) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("ticksPerWheel must be in (0, 2^30]: " + ticksPerWheel);
+        }
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.tickNanos = unit.toNanos(tickDuration);
+
+        this.workerThread = new Thread(new Worker(), threadName);
+        this.workerThread.setDaemon(true);
+    }
+
+
+    @Override
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new IllegalArgumentException("task must not be null");
+        }
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(delay, 0)) - startTime;
+        WheelTimeout timeout = new WheelTimeout(this, task, deadline);
+        pendingTimeouts.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    private void start() {
+        switch (workerState.get()) {
+            case STATE_INIT:
+                if (workerState.compareAndSet(STATE_INIT, STATE_STARTED)) {
+                    // the deadline is relative to the start time, so it must be visible before any task is scheduled
+                    long now = System.nanoTime();
+                    startTime = now == 0 ? 1 : now;
+                    workerThread.start();
+                }
+                break;
+            case STATE_STARTED:
+                break;
+            default:
+                throw new IllegalStateException("timer has been stopped");
+        }
+        while (startTime == 0) {
+            // another thread is starting the timer
+            Thread.yield();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (workerState.getAndSet(STATE_STOPPED) == STATE_STARTED) {
+            workerThread.interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of tasks not run or released yet.
+     *
+     * @return the number of pending tasks
+     */
+    public long pendingTimeouts() {
+        return pendingTimeouts.get();
+    }
+
+
+    private final class Worker implements Runnable {
+
+        private long tick;
+
+        @Override
+        public void run() {
+            while (workerState.get() == STATE_STARTED) {
+                long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    Bucket bucket = wheel[(int) (tick & mask)];
+                    processCancelledTimeouts();
+                    transferTimeoutsToBuckets();
+                    bucket.expireTimeouts(deadline);
+                    tick++;
+                }
+            }
+            newTimeouts.clear();
+            cancelledTimeouts.clear();
+        }
+
+        private void transferTimeoutsToBuckets() {
+            for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+                WheelTimeout timeout = newTimeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (timeout.state() == WheelTimeout.ST_CANCELLED) {
+                    // cancelled before it reaches the wheel, it is counted when processing cancelled timeouts
+                    continue;
+                }
+                long calculated = timeout.deadline / tickNanos;
+                timeout.remainingRounds = (calculated - tick) / wheel.length;
+                // the deadline has passed, put it into the current bucket
+                long ticks = Math.max(calculated, tick);
+                wheel[(int) (ticks & mask)].add(timeout);
+            }
+        }
+
+        private void processCancelledTimeouts() {
+            WheelTimeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                timeout.remove();
+            }
+        }
+
+        /**
+         * Sleeps until the next tick.
+         *
+         * @return the current time relative to the start time, or -1 if the timer is stopped
+         */
+        private long waitForNextTick() {
+            long deadline = tickNanos * (tick + 1);
+            for (; ; ) {
+                long currentTime = System.nanoTime() - startTime;
+                long sleepMillis = (deadline - currentTime + 999999) / 1000000;
+                if (sleepMillis <= 0) {
+                    return currentTime;
+                }
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    if (workerState.get() == STATE_STOPPED) {
+                        return -1;
+                    }
+                }
+            }
+        }
+    }
+
+
+    private static final class WheelTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE_UPDATER =
+                AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+        private final HashedWheelDagTimer timer;
+        private final long deadline;
+        private Runnable task;
+        private volatile int state = ST_INIT;
+
+        /**
+         * Fields below are only accessed by the worker thread
+         */
+        private long remainingRounds;
+        private boolean released;
+        private WheelTimeout next;
+        private WheelTimeout prev;
+        private Bucket bucket;
+
+        WheelTimeout(HashedWheelDagTimer timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        int state() {
+            return state;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            // release the task right now, the worker unlinks the timeout from its bucket on the next tick
+            task = null;
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state == ST_EXPIRED;
+        }
+
+        void remove() {
+            Bucket bucket = this.bucket;
+            if (bucket != null) {
+                bucket.remove(this);
+            } else if (!released) {
+                // cancelled before it reaches the wheel
+                released = true;
+                timer.pendingTimeouts.decrementAndGet();
+            }
+        }
+
+        void expire() {
+            if (!STATE_UPDATER.compareAndSet(this, ST_INIT, ST_EXPIRED)) {
+                return;
+            }
+            Runnable task = this.task;
+            this.task = null;
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.warn("timer task {} threw an exception", task, t);
+            }
+        }
+    }
+
+
+    /**
+     * Doubly linked list of the timeouts in a wheel slot, only accessed by the worker thread
+     */
+    private static final class Bucket {
+
+        private WheelTimeout head;
+        private WheelTimeout tail;
+
+        void add(WheelTimeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void expireTimeouts(long deadline) {
+            WheelTimeout timeout = head;
+            while (timeout != null) {
+                WheelTimeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    next = remove(timeout);
+                    if (timeout.deadline <= deadline) {
+                        timeout.expire();
+                    } else {
+                        // never happens, the timeout is put into a wrong slot
+                        throw new IllegalStateException(String.format(
+                                "timeout.deadline (%d) > deadline (%d)", timeout.deadline, deadline));
+                    }
+                } else if (timeout.isCancelled()) {
+                    next = remove(timeout);
+                } else {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        WheelTimeout remove(WheelTimeout timeout) {
+            WheelTimeout next = timeout.next;
+            if (timeout.bucket != this) {
+                // already removed
+                return next;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == head) {
+                head = next;
+            }
+            if (timeout == tail) {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+            timeout.released = true;
+            timeout.timer.pendingTimeouts.decrementAndGet();
+            return next;
+        }
+    }
+}
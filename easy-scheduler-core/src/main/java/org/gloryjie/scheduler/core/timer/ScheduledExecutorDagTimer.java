@@ -0,0 +1,63 @@
+package org.gloryjie.scheduler.core.timer;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DagTimer backed by a single thread ScheduledThreadPoolExecutor.
+ * Cancelled tasks are removed from the delay queue immediately, which costs O(log n).
+ */
+public class ScheduledExecutorDagTimer implements DagTimer {
+
+    private final ScheduledThreadPoolExecutor scheduledExecutor;
+
+    public ScheduledExecutorDagTimer() {
+        this("easy-scheduler-timer");
+    }
+
+    public ScheduledExecutorDagTimer(String threadName) {
+        scheduledExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setName(threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduledExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    @Override
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        ScheduledFuture<?> future = scheduledExecutor.schedule(task, delay, unit);
+        return new Timeout() {
+            @Override
+            public boolean cancel() {
+                return future.cancel(false);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return future.isCancelled();
+            }
+
+            @Override
+            public boolean isExpired() {
+                return future.isDone() && !future.isCancelled();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of tasks waiting in the delay queue.
+     *
+     * @return the number of pending tasks
+     */
+    public int pendingTimeouts() {
+        return scheduledExecutor.getQueue().size();
+    }
+
+    @Override
+    public void stop() {
+        scheduledExecutor.shutdownNow();
+    }
+}
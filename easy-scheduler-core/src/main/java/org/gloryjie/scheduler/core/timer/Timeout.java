@@ -0,0 +1,19 @@
+package org.gloryjie.scheduler.core.timer;
+
+/**
+ * Handle of a task scheduled by {@link DagTimer}
+ */
+public interface Timeout {
+
+    /**
+     * Cancels the task, the references held by the task are released by the timer as soon as possible.
+     *
+     * @return true if the task is cancelled, false if it has run or has been cancelled
+     */
+    boolean cancel();
+
+    boolean isCancelled();
+
+    boolean isExpired();
+
+}
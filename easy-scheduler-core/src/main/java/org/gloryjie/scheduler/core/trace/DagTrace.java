@@ -0,0 +1,211 @@
+package org.gloryjie.scheduler.core.trace;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.gloryjie.scheduler.api.DagState;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timeline of a traced dag run, exported as Chrome trace-event JSON or as a critical path report.
+ */
+@Getter
+@ToString
+public class DagTrace {
+
+    private final String graphName;
+
+    private final long runId;
+
+    private final DagState state;
+
+    /**
+     * Wall clock time the run started, in milliseconds
+     */
+    private final long startTime;
+
+    private final long costNanos;
+
+    /**
+     * Spans of the nodes completed before the run is done, in order of start
+     */
+    private final List<NodeSpan> spans;
+
+    public DagTrace(String graphName, long runId, DagState state, long startTime, long costNanos, List<NodeSpan> spans) {
+        this.graphName = graphName;
+        this.runId = runId;
+        this.state = state;
+        this.startTime = startTime;
+        this.costNanos = costNanos;
+        List<NodeSpan> sorted = new ArrayList<>(spans);
+        sorted.sort(Comparator.comparingLong(NodeSpan::getStartNanos));
+        this.spans = Collections.unmodifiableList(sorted);
+    }
+
+    /**
+     * Returns the span of a node.
+     *
+     * @param nodeName the name of the node
+     * @return the span, or null if the node is not completed in the run
+     */
+    public NodeSpan getSpan(String nodeName) {
+        for (NodeSpan span : spans) {
+            if (span.getNodeName().equals(nodeName)) {
+                return span;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the path which made the run last: it starts from the node ending last
+     * and goes back through the dependency ending last of every node.
+     *
+     * @return the spans of the path, from the first node to the last one
+     */
+    public List<NodeSpan> criticalPath() {
+        LinkedList<NodeSpan> path = new LinkedList<>();
+        NodeSpan current = null;
+        for (NodeSpan span : spans) {
+            if (current == null || span.getEndNanos() > current.getEndNanos()) {
+                current = span;
+            }
+        }
+        while (current != null) {
+            path.addFirst(current);
+            NodeSpan gating = null;
+            for (String dependency : current.getDependencies()) {
+                NodeSpan span = getSpan(dependency);
+                if (span != null && (gating == null || span.getEndNanos() > gating.getEndNanos())) {
+                    gating = span;
+                }
+            }
+            current = gating;
+        }
+        return path;
+    }
+
+    /**
+     * Returns the critical path as text, one node a line with its queue wait, its execution time and the gap
+     * between the end of its gating dependency and its submission.
+     *
+     * @return the report
+     */
+    public String criticalPathReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("Graph[").append(graphName).append("] run ").append(runId).append(' ').append(state)
+                .append(" cost ").append(millis(costNanos)).append(" ms, critical path:\n");
+        long previousEnd = 0;
+        long queueWait = 0;
+        long execution = 0;
+        for (NodeSpan span : criticalPath()) {
+            report.append(String.format("  %-24s gap %8s ms  queue %8s ms  execute %8s ms  %-9s %s%n",
+                    span.getNodeName(), millis(span.getSubmitNanos() - previousEnd), millis(span.queueWaitNanos()),
+                    millis(span.executionNanos()), span.getState(),
+                    span.getThreadName() == null ? "-" : span.getThreadName()));
+            previousEnd = span.getEndNanos();
+            queueWait += span.queueWaitNanos();
+            execution += span.executionNanos();
+        }
+        report.append(String.format("  total queue %s ms, execute %s ms%n", millis(queueWait), millis(execution)));
+        return report.toString();
+    }
+
+    /**
+     * Exports the run in the Chrome trace-event format, which could be opened by Perfetto or chrome://tracing.
+     * Every executing thread is a track holding the executions of its nodes,
+     * the queue waits are async slices since they overlap.
+     *
+     * @return the JSON document
+     */
+    public String toChromeTraceJson() {
+        Map<String, Integer> threadIds = new LinkedHashMap<>();
+        StringBuilder json = new StringBuilder(256 + spans.size() * 256);
+        json.append("{\"displayTimeUnit\":\"ms\",\"otherData\":{\"graphName\":");
+        appendString(json, graphName);
+        json.append(",\"runId\":").append(runId).append(",\"state\":\"").append(state)
+                .append("\",\"startTime\":").append(startTime).append("},\"traceEvents\":[");
+
+        json.append("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"args\":{\"name\":");
+        appendString(json, "Graph[" + graphName + "] run " + runId);
+        json.append("}}");
+        json.append(",{\"name\":");
+        appendString(json, graphName);
+        json.append(",\"cat\":\"dag\",\"ph\":\"X\",\"pid\":1,\"tid\":0,\"ts\":0,\"dur\":")
+                .append(micros(costNanos)).append(",\"args\":{\"state\":\"").append(state).append("\"}}");
+
+        for (int i = 0; i < spans.size(); i++) {
+            NodeSpan span = spans.get(i);
+            if (span.queueWaitNanos() > 0) {
+                appendQueueEvent(json, span, i, 'b', span.getSubmitNanos());
+                appendQueueEvent(json, span, i, 'e', span.getStartNanos());
+            }
+            if (span.getThreadName() != null) {
+                Integer tid = threadIds.computeIfAbsent(span.getThreadName(), name -> threadIds.size() + 1);
+                json.append(",{\"name\":");
+                appendString(json, span.getNodeName());
+                json.append(",\"cat\":\"node\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(tid)
+                        .append(",\"ts\":").append(micros(span.getStartNanos()))
+                        .append(",\"dur\":").append(micros(span.executionNanos()))
+                        .append(",\"args\":{\"state\":\"").append(span.getState())
+                        .append("\",\"queueWaitUs\":").append(micros(span.queueWaitNanos())).append("}}");
+            }
+        }
+
+        json.append(",{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\"dag\"}}");
+        threadIds.forEach((threadName, tid) -> {
+            json.append(",{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(tid)
+                    .append(",\"args\":{\"name\":");
+            appendString(json, threadName);
+            json.append("}}");
+        });
+        return json.append("]}").toString();
+    }
+
+    private static void appendQueueEvent(StringBuilder json, NodeSpan span, int id, char phase, long nanos) {
+        json.append(",{\"name\":");
+        appendString(json, span.getNodeName() + " queued");
+        json.append(",\"cat\":\"queue\",\"ph\":\"").append(phase).append("\",\"id\":").append(id)
+                .append(",\"pid\":1,\"tid\":0,\"ts\":").append(micros(nanos)).append('}');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+    }
+}
@@ -0,0 +1,80 @@
+package org.gloryjie.scheduler.core.trace;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Decides which runs are traced and hands the traces to a consumer, set by
+ * {@link org.gloryjie.scheduler.core.ConcurrentDagEngine#setTraceRecorder(DagTraceRecorder)}.
+ * <p>
+ * A run is traced when it is sampled or when it is started inside {@link #forceTrace(Supplier)},
+ * the other runs only pay for one check. The consumer is called on the thread finishing the run,
+ * so it should hand the trace off instead of writing it out.
+ */
+@Slf4j
+public class DagTraceRecorder {
+
+    private static final ThreadLocal<Boolean> FORCED = new ThreadLocal<>();
+
+    private final double sampleRate;
+
+    private final Consumer<DagTrace> consumer;
+
+    /**
+     * @param sampleRate the ratio of the runs traced, in [0, 1]
+     * @param consumer   the consumer of the traces
+     */
+    public DagTraceRecorder(double sampleRate, Consumer<DagTrace> consumer) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("sampleRate must be in [0, 1]: " + sampleRate);
+        }
+        this.sampleRate = sampleRate;
+        this.consumer = Objects.requireNonNull(consumer, "consumer must not be null");
+    }
+
+    /**
+     * Traces every run started on the current thread by the call, whatever the sample rate is.
+     *
+     * @param call the call firing the graph, e.g. {@code () -> engine.fire(graph, context)}
+     * @return the result of the call
+     */
+    public static <T> T forceTrace(Supplier<T> call) {
+        Boolean previous = FORCED.get();
+        FORCED.set(Boolean.TRUE);
+        try {
+            return call.get();
+        } finally {
+            if (previous == null) {
+                FORCED.remove();
+            } else {
+                FORCED.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Called once when a run starts.
+     *
+     * @return whether the run is traced
+     */
+    public boolean sample() {
+        return FORCED.get() != null || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * Called with the trace of a sampled run once it is done
+     *
+     * @param trace the trace
+     */
+    public void record(DagTrace trace) {
+        try {
+            consumer.accept(trace);
+        } catch (Exception e) {
+            log.error("Graph[{}] record trace error", trace.getGraphName(), e);
+        }
+    }
+}
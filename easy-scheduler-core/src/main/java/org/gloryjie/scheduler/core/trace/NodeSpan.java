@@ -0,0 +1,51 @@
+package org.gloryjie.scheduler.core.trace;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.gloryjie.scheduler.api.NodeState;
+
+import java.util.Set;
+
+/**
+ * Timeline of one node in a traced run, the times are in nanoseconds since the start of the run
+ */
+@Getter
+@ToString
+public class NodeSpan {
+
+    private final String nodeName;
+
+    private final NodeState state;
+
+    /**
+     * Name of the thread which executed the node, null if the node did not start
+     */
+    private final String threadName;
+
+    private final long submitNanos;
+
+    private final long startNanos;
+
+    private final long endNanos;
+
+    private final Set<String> dependencies;
+
+    public NodeSpan(String nodeName, NodeState state, String threadName,
+                    long submitNanos, long startNanos, long endNanos, Set<String> dependencies) {
+        this.nodeName = nodeName;
+        this.state = state;
+        this.threadName = threadName;
+        this.submitNanos = submitNanos;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.dependencies = dependencies;
+    }
+
+    public long queueWaitNanos() {
+        return startNanos - submitNanos;
+    }
+
+    public long executionNanos() {
+        return endNanos - startNanos;
+    }
+}
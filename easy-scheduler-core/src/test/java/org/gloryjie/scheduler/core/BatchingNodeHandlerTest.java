@@ -0,0 +1,134 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchingNodeHandlerTest {
+
+    @Test
+    public void coalesceConcurrentRunsTest() throws Exception {
+        List<List<Integer>> loadedBatches = new CopyOnWriteArrayList<>();
+        BatchingNodeHandler<Integer, String> handler = new IntBatchingHandler(200, 100, keys -> {
+            loadedBatches.add(keys);
+            return CompletableFuture.completedFuture(keys.stream()
+                    .collect(Collectors.toMap(k -> k, k -> "value-" + k)));
+        });
+        Map<Integer, Object> results = new ConcurrentHashMap<>();
+        DagGraph dagGraph = loadGraph("coalesceGraph", handler, results);
+
+        DagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+        List<CompletableFuture<DagResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(dagEngine.fireAsync(dagGraph, i, 5000L));
+        }
+        for (CompletableFuture<DagResult> future : futures) {
+            assertEquals(DagState.SUCCEED, future.get(5, TimeUnit.SECONDS).getState());
+        }
+
+        // the ten runs share one call, every duplicated key is loaded once
+        assertEquals(1, loadedBatches.size());
+        assertEquals(5, loadedBatches.get(0).size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value-" + (i % 5), results.get(i));
+        }
+    }
+
+    @Test
+    public void fullBatchNotHoldThreadTest() throws Exception {
+        CompletableFuture<Map<Integer, String>> loadFuture = new CompletableFuture<>();
+        List<List<Integer>> loadedBatches = new CopyOnWriteArrayList<>();
+        // the window never elapses in the test, the batch is loaded when it is full
+        BatchingNodeHandler<Integer, String> handler = new IntBatchingHandler(60000, 4, keys -> {
+            loadedBatches.add(keys);
+            return loadFuture;
+        });
+        Map<Integer, Object> results = new ConcurrentHashMap<>();
+        DagGraph dagGraph = loadGraph("fullBatchGraph", handler, results);
+
+        // one thread only, every waiting node would block the others if it held the thread
+        DagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(1));
+        List<CompletableFuture<DagResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(dagEngine.fireAsync(dagGraph, i + 5, 5000L));
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loadedBatches.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(Collections.singletonList(Arrays.asList(0, 1, 2, 3)), loadedBatches);
+        assertFalse(futures.get(0).isDone());
+
+        Map<Integer, String> values = new HashMap<>();
+        values.put(0, "zero");
+        values.put(1, "one");
+        loadFuture.complete(values);
+        for (CompletableFuture<DagResult> future : futures) {
+            assertEquals(DagState.SUCCEED, future.get(5, TimeUnit.SECONDS).getState());
+        }
+        assertEquals("zero", results.get(5));
+        assertEquals("one", results.get(6));
+        assertFalse(results.containsKey(7));
+    }
+
+    @Test
+    public void loadBatchFailTest() {
+        BatchingNodeHandler<Integer, String> handler = new IntBatchingHandler(1, 100, keys -> {
+            CompletableFuture<Map<Integer, String>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException("load failed"));
+            return failed;
+        });
+        DagGraph dagGraph = loadGraph("loadFailGraph", handler, new ConcurrentHashMap<>());
+
+        for (DagEngine dagEngine : Arrays.asList(new ConcurrentDagEngine(new SingleExcutorSelector(2)),
+                new SingleThreadDagEngine())) {
+            DagResult dagResult = dagEngine.fire(dagGraph, 1, 5000L);
+            assertEquals(DagState.FAILED, dagResult.getState());
+            assertEquals(NodeState.FAILED, dagResult.getNodeStateMap().get("load"));
+            assertInstanceOf(IllegalStateException.class, dagResult.getThrowable());
+        }
+    }
+
+    private static DagGraph loadGraph(String graphName, BatchingNodeHandler<Integer, String> handler,
+                                      Map<Integer, Object> results) {
+        DagNode<Object> loadNode = DefaultDagNode.builder().nodeName("load").handler((NodeHandler) handler).build();
+        DagNode<Object> saveNode = DefaultDagNode.builder().nodeName("save").dependOn("load")
+                .handler((node, context) -> {
+                    Object value = context.getNodeResult("load").getResult();
+                    if (value != null) {
+                        results.put((Integer) context.getContext(), value);
+                    }
+                    return value;
+                }).build();
+        return new DagGraphBuilder().graphName(graphName).addNodes(loadNode, saveNode).build();
+    }
+
+
+    private static class IntBatchingHandler extends BatchingNodeHandler<Integer, String> {
+
+        private final Function<List<Integer>, CompletionStage<Map<Integer, String>>> loader;
+
+        IntBatchingHandler(long windowMillis, int maxBatchSize,
+                           Function<List<Integer>, CompletionStage<Map<Integer, String>>> loader) {
+            super(windowMillis, TimeUnit.MILLISECONDS, maxBatchSize);
+            this.loader = loader;
+        }
+
+        @Override
+        protected Integer getKey(DagNode<Object> dagNode, DagContext dagContext) {
+            return (Integer) dagContext.getContext() % 5;
+        }
+
+        @Override
+        protected CompletionStage<Map<Integer, String>> loadBatch(List<Integer> keys) {
+            return loader.apply(keys);
+        }
+    }
+}
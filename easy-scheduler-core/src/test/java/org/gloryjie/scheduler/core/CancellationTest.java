@@ -0,0 +1,94 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CancellationTest {
+
+    @Test
+    public void tokenCancelledOnTimeoutTest() throws Exception {
+        CountDownLatch stopped = new CountDownLatch(1);
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler((node, context) -> {
+            CancellationToken token = context.getCancellationToken();
+            while (!token.isCancelled()) {
+                Thread.yield();
+            }
+            stopped.countDown();
+            return null;
+        }).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("tokenGraph").addNodes(aNode).build();
+
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+        DagResult dagResult = dagEngine.fire(dagGraph, null, 100L);
+        assertEquals(DagState.TIMEOUT, dagResult.getState());
+        assertTrue(stopped.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void interruptRunningNodeTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler((node, context) -> {
+            started.countDown();
+            try {
+                TimeUnit.SECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        }).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").handler((node, context) -> {
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new IllegalStateException("B failed");
+        }).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("interruptGraph").addNodes(aNode, bNode).build();
+
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        dagEngine.setInterruptOnCancel(true);
+        DagResult dagResult = dagEngine.fire(dagGraph, null, 5000L);
+        assertEquals(DagState.FAILED, dagResult.getState());
+        assertTrue(interrupted.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void queuedNodesRemovedTest() throws Exception {
+        SingleExcutorSelector selector = new SingleExcutorSelector(1);
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) selector.select("queuedGraph");
+        // keep the only thread busy, so the nodes stay in the queue until the dag times out
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        AtomicInteger executed = new AtomicInteger();
+        DagGraphBuilder builder = new DagGraphBuilder().graphName("queuedGraph");
+        for (int i = 0; i < 3; i++) {
+            builder.addNodes(DefaultDagNode.builder().nodeName("N" + i)
+                    .handler((node, context) -> executed.incrementAndGet()).build());
+        }
+
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(selector);
+        DagResult dagResult = dagEngine.fire(builder.build(), null, 100L);
+        assertEquals(DagState.TIMEOUT, dagResult.getState());
+        assertEquals(0, executor.getQueue().size());
+
+        release.countDown();
+        Future<?> drained = executor.submit(() -> {
+        });
+        drained.get(2, TimeUnit.SECONDS);
+        assertEquals(0, executed.get());
+    }
+}
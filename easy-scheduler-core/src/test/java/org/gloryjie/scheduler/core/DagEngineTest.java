@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
@@ -74,6 +75,43 @@ public class DagEngineTest extends DagEngineProvide {
         assertInstanceOf(TimeoutException.class, fireResult.getThrowable());
     }
 
+    @ParameterizedTest
+    @MethodSource("dagEngineProvider")
+    public void fireAsyncSingleNodeGraphSucceededTest(DagEngine dagEngine) throws Exception {
+        DagGraph dagGraph = buildOneNodeGraph((context -> "nodeResult"));
+
+        CompletableFuture<DagResult> future = dagEngine.fireAsync(dagGraph, "testContext");
+        DagResult fireResult = future.get(1, TimeUnit.SECONDS);
+
+        assertTrue(fireResult.isDone());
+        assertSame(DagState.SUCCEED, fireResult.getState());
+        assertSame(NodeState.SUCCEEDED, fireResult.getNodeStateMap().get("A"));
+    }
+
+    @Test
+    public void fireAsyncNotBlockCallerTest() throws Exception {
+        CountDownLatch nodeLatch = new CountDownLatch(1);
+        DagGraph dagGraph = buildOneNodeGraph((context -> {
+            try {
+                nodeLatch.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return null;
+        }));
+
+        DagEngine dagEngine = new ConcurrentDagEngine();
+        CompletableFuture<DagResult> future = dagEngine.fireAsync(dagGraph, "testContext", 100L);
+        // the caller returns while the node is still running
+        assertFalse(future.isDone());
+
+        // the graph timeout is completed by the timer
+        DagResult fireResult = future.get(1, TimeUnit.SECONDS);
+        nodeLatch.countDown();
+        assertEquals(DagState.TIMEOUT, fireResult.getState());
+        assertInstanceOf(TimeoutException.class, fireResult.getThrowable());
+    }
+
     @SuppressWarnings({"all"})
     private DagGraph buildOneNodeGraph(Function<DagContext, Object> action) {
         NodeHandler printHandler = DefaultNodeHandler.builder()
@@ -208,4 +246,155 @@ public class DagEngineTest extends DagEngineProvide {
         }
 
     }
-}
\ No newline at end of file
+
+
+    @Test
+    public void inlineNodeRunOnCompletingThreadTest() {
+        Map<String, String> threadNames = new ConcurrentHashMap<>();
+        NodeHandler<Object> handler = (node, context) -> threadNames.put(node.getNodeName(), Thread.currentThread().getName());
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler(handler).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").handler(handler).dependOn("A")
+                .attribute(ConcurrentDagEngine.EXECUTION_MODE_ATTRIBUTE, NodeExecutionMode.INLINE).build();
+        DagNode<Object> cNode = DefaultDagNode.builder().nodeName("C").handler(handler).dependOn("A")
+                .attribute(ConcurrentDagEngine.EXECUTION_MODE_ATTRIBUTE, "inline").build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("inlineGraph")
+                .addNodes(aNode, bNode, cNode).build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        DagResult dagResult = dagEngine.fire(dagGraph, null);
+
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        // B and C are ready at the same time, only one of them runs on the thread of A
+        String aThread = threadNames.get("A");
+        assertTrue(aThread.equals(threadNames.get("B")) ^ aThread.equals(threadNames.get("C")), threadNames.toString());
+    }
+
+    @Test
+    public void autoInlineCheapNodeTest() {
+        Map<String, String> threadNames = new ConcurrentHashMap<>();
+        NodeHandler<Object> handler = (node, context) -> threadNames.put(node.getNodeName(), Thread.currentThread().getName());
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler(handler).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").handler(handler).dependOn("A").build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("autoInlineGraph")
+                .addNodes(aNode, bNode).build();
+
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        dagEngine.setInlineLatencyThreshold(1, TimeUnit.SECONDS);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, null).getState());
+        }
+
+        NodeLatencyStats latencyStats = DagExecutionPlan.of(dagGraph).latencyStats();
+        assertTrue(latencyStats.samples(DagExecutionPlan.of(dagGraph).indexOf("B")) >= 20);
+
+        threadNames.clear();
+        DagResult dagResult = dagEngine.fire(dagGraph, null);
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        // B is cheap and runs inline after enough samples
+        assertEquals(threadNames.get("A"), threadNames.get("B"));
+    }
+
+
+    @ParameterizedTest
+    @MethodSource("dagEngineProvider")
+    public void fireBatchTest(DagEngine dagEngine) {
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A")
+                .handler((node, context) -> ((AtomicInteger) context.getContext()).incrementAndGet()).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B")
+                .handler((node, context) -> {
+                    AtomicInteger value = (AtomicInteger) context.getContext();
+                    if (value.get() == 5) {
+                        throw new IllegalStateException("fail 5");
+                    }
+                    return value.addAndGet(100);
+                }).dependOn("A").build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("batchGraph").addNodes(aNode, bNode).build();
+
+        List<AtomicInteger> contexts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            contexts.add(new AtomicInteger(i));
+        }
+        List<DagResult> results = dagEngine.fireBatch(dagGraph, contexts);
+
+        assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++) {
+            DagResult dagResult = results.get(i);
+            if (i == 4) {
+                // only the dag of this context fails
+                assertEquals(DagState.FAILED, dagResult.getState());
+                assertEquals(NodeState.FAILED, dagResult.getNodeStateMap().get("B"));
+                assertEquals(5, contexts.get(i).get());
+            } else {
+                assertEquals(DagState.SUCCEED, dagResult.getState());
+                assertEquals(NodeState.SUCCEEDED, dagResult.getNodeStateMap().get("B"));
+                assertEquals(i + 101, contexts.get(i).get());
+            }
+        }
+    }
+
+    @Test
+    public void fireBatchWithBatchNodeHandlerTest() {
+        AtomicInteger batchCalls = new AtomicInteger();
+        BatchNodeHandler<Object> batchHandler = (node, contexts) -> {
+            batchCalls.incrementAndGet();
+            List<Object> results = new ArrayList<>();
+            for (DagContext context : contexts) {
+                results.add((Integer) context.getContext() * 2);
+            }
+            return results;
+        };
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler(batchHandler).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B")
+                .handler((node, context) -> context.getNodeResult("A").getResult()).dependOn("A").build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("batchHandlerGraph").addNodes(aNode, bNode).build();
+
+        List<Integer> contexts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            contexts.add(i);
+        }
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine();
+        dagEngine.setBatchChunkSize(40);
+        List<DagResult> results = dagEngine.fireBatch(dagGraph, contexts);
+
+        // one call for each chunk instead of one for each context
+        assertEquals(3, batchCalls.get());
+        assertTrue(results.stream().allMatch(result -> result.getState() == DagState.SUCCEED));
+
+        // the handler still works for a single fire
+        DagResult dagResult = dagEngine.fire(dagGraph, 21);
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        assertEquals(4, batchCalls.get());
+    }
+
+    @Test
+    public void fireBatchAppliesFiltersTest() {
+        AtomicInteger filtered = new AtomicInteger();
+        BatchNodeHandler<Object> batchHandler = (node, contexts) -> {
+            List<Object> results = new ArrayList<>();
+            for (DagContext context : contexts) {
+                results.add((Integer) context.getContext() * 2);
+            }
+            return results;
+        };
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler(batchHandler).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("batchFilterGraph").addNodes(aNode).build();
+
+        List<Integer> contexts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            contexts.add(i);
+        }
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+        dagEngine.registerFilter((invoker, node, context) -> {
+            if ("A".equals(node.getNodeName())) {
+                filtered.incrementAndGet();
+            }
+            return invoker.invoke(node, context);
+        });
+        List<DagResult> results = dagEngine.fireBatch(dagGraph, contexts);
+
+        // the filter sees every context of the batched node
+        assertEquals(10, filtered.get());
+        assertTrue(results.stream().allMatch(result -> result.getState() == DagState.SUCCEED));
+    }
+
+}
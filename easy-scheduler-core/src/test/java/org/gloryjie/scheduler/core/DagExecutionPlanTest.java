@@ -0,0 +1,82 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.api.DependencyType;
+import org.gloryjie.scheduler.api.NodeHandler;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DagExecutionPlanTest {
+
+
+    /**
+     * the plan keeps the same structure as the graph
+     */
+    @Test
+    @SuppressWarnings("all")
+    public void compileBaseGraphTest() {
+        Map<String, Map<String, DependencyType>> dependMap = new HashMap<>();
+        dependMap.put("F", Collections.singletonMap("D", DependencyType.SOFT));
+        DagGraph dagGraph = BaseGraph.buidGraph(new HashMap<String, NodeHandler>(), dependMap);
+
+        DagExecutionPlan plan = DagExecutionPlan.of(dagGraph);
+
+        assertSame(plan, DagExecutionPlan.of(dagGraph));
+        assertEquals(dagGraph.getNodeInDegree().size(), plan.size());
+        assertSame(dagGraph.getStartNode(), plan.node(plan.startIndex()));
+        assertSame(dagGraph.getEndNode(), plan.node(plan.endIndex()));
+        assertEquals(-1, plan.indexOf("notExists"));
+
+        for (int i = 0; i < plan.size(); i++) {
+            String nodeName = plan.node(i).getNodeName();
+            assertEquals(i, plan.indexOf(nodeName));
+            assertEquals(dagGraph.getNodeInDegree().get(nodeName), plan.inDegree(i));
+
+            Set<String> successors = new HashSet<>();
+            boolean hasStrongSuccessor = false;
+            for (int edge = plan.successorStart(i); edge < plan.successorEnd(i); edge++) {
+                int successor = plan.successor(edge);
+                // topological order
+                assertTrue(successor > i);
+                String successorName = plan.node(successor).getNodeName();
+                successors.add(successorName);
+
+                DependencyType type = dagGraph.getNodeDepencencyType(nodeName, successorName);
+                assertEquals(type == DependencyType.SOFT, plan.isSoftEdge(edge));
+                hasStrongSuccessor |= type == DependencyType.STRONG;
+            }
+            assertEquals(dagGraph.getSuccessorNodeTypes(nodeName).keySet(), successors);
+            assertEquals(hasStrongSuccessor, plan.hasStrongSuccessor(i));
+        }
+
+        // D -> F is soft, D -> G is strong
+        assertTrue(plan.hasStrongSuccessor(plan.indexOf("D")));
+        assertFalse(plan.hasSuccessor(plan.endIndex()));
+    }
+
+    /**
+     * the critical path follows the observed latency, nodes not observed yet have the same unit cost
+     */
+    @Test
+    public void criticalPathTest() {
+        NodeHandler<Object> handler = (node, context) -> null;
+        DagGraph dagGraph = new DagGraphBuilder().graphName("criticalPathGraph")
+                .addNodes(DefaultDagNode.builder().nodeName("A").handler(handler).build(),
+                        DefaultDagNode.builder().nodeName("B").handler(handler).dependOn("A").build(),
+                        DefaultDagNode.builder().nodeName("C").handler(handler).build())
+                .build();
+        DagExecutionPlan plan = DagExecutionPlan.compile(dagGraph);
+        int a = plan.indexOf("A");
+        int b = plan.indexOf("B");
+        int c = plan.indexOf("C");
+
+        // A -> B -> end is longer than C -> end
+        assertTrue(plan.criticalPath(a) > plan.criticalPath(c));
+        assertEquals(plan.criticalPath(b), plan.criticalPath(c));
+        assertTrue(plan.criticalPath(plan.startIndex()) > plan.criticalPath(a));
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ForkJoinExecutorSelectorTest {
+
+    @Test
+    public void runOnForkJoinWorkerTest() {
+        Map<String, Boolean> workerMap = new ConcurrentHashMap<>();
+        NodeHandler<Object> handler = (node, context) ->
+                workerMap.put(node.getNodeName(), Thread.currentThread() instanceof ForkJoinWorkerThread);
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler(handler).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").handler(handler).dependOn("A").build();
+        DagNode<Object> cNode = DefaultDagNode.builder().nodeName("C").handler(handler).dependOn("A").build();
+        DagNode<Object> dNode = DefaultDagNode.builder().nodeName("D").handler(handler).dependOn("B", "C").build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("forkJoinGraph")
+                .addNodes(aNode, bNode, cNode, dNode).build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine(new ForkJoinExecutorSelector(2));
+        for (int i = 0; i < 10; i++) {
+            workerMap.clear();
+            DagResult dagResult = dagEngine.fire(dagGraph, null);
+            assertEquals(DagState.SUCCEED, dagResult.getState());
+            assertEquals(4, workerMap.size());
+            assertTrue(workerMap.values().stream().allMatch(Boolean::booleanValue));
+        }
+    }
+
+    @Test
+    public void blockingNodeCompensatedTest() {
+        // both nodes must be blocked at the same time, which needs a spare worker with parallelism 1
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        NodeHandler<Object> handler = (node, context) -> {
+            try {
+                return barrier.await(2, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        };
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler(handler)
+                .attribute(ConcurrentDagEngine.BLOCKING_ATTRIBUTE, true).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").handler(handler)
+                .attribute(ConcurrentDagEngine.BLOCKING_ATTRIBUTE, "true").build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("blockingGraph")
+                .addNodes(aNode, bNode).build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine(new ForkJoinExecutorSelector(1));
+        DagResult dagResult = dagEngine.fire(dagGraph, null, 5000L);
+
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        assertEquals(NodeState.SUCCEEDED, dagResult.getNodeStateMap().get("A"));
+        assertEquals(NodeState.SUCCEEDED, dagResult.getNodeStateMap().get("B"));
+    }
+}
@@ -0,0 +1,119 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HedgedExecutionTest {
+
+    @Test
+    public void hedgeWinsTest() {
+        Map<String, Object> results = new ConcurrentHashMap<>();
+        // the first attempt of every run is slow, the hedge is fast
+        DagGraph dagGraph = hedgedGraph("hedgeWinsGraph", (node, context) -> {
+            if (attempt(context) == 1) {
+                sleep(2000);
+                return "slow";
+            }
+            return "fast";
+        }, results);
+
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        dagEngine.setHedgeBudget(new HedgeBudget(1));
+
+        long begin = System.currentTimeMillis();
+        DagResult dagResult = dagEngine.fire(dagGraph, new AtomicInteger(), 5000L);
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        assertTrue(System.currentTimeMillis() - begin < 1500);
+        assertEquals("fast", results.get("A"));
+        assertEquals(1, dagEngine.getHedgeBudget().getHedgeCount());
+    }
+
+    @Test
+    public void failedAttemptWaitsForHedgeTest() {
+        Map<String, Object> results = new ConcurrentHashMap<>();
+        // the first attempt fails while the hedge is running, the hedge succeeds later
+        DagGraph dagGraph = hedgedGraph("failedAttemptGraph", (node, context) -> {
+            if (attempt(context) == 1) {
+                sleep(150);
+                throw new IllegalStateException("first attempt failed");
+            }
+            sleep(300);
+            return "hedge";
+        }, results);
+
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        dagEngine.setHedgeBudget(new HedgeBudget(1));
+
+        DagResult dagResult = dagEngine.fire(dagGraph, new AtomicInteger(), 5000L);
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        assertEquals("hedge", results.get("A"));
+    }
+
+    @Test
+    public void budgetExhaustedTest() {
+        Map<String, Object> results = new ConcurrentHashMap<>();
+        DagGraph dagGraph = hedgedGraph("budgetGraph", (node, context) -> {
+            if (attempt(context) == 1) {
+                sleep(200);
+                return "slow";
+            }
+            return "fast";
+        }, results);
+
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        dagEngine.setHedgeBudget(new HedgeBudget(0));
+
+        DagResult dagResult = dagEngine.fire(dagGraph, new AtomicInteger(), 5000L);
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        assertEquals("slow", results.get("A"));
+        assertEquals(0, dagEngine.getHedgeBudget().getHedgeCount());
+        assertEquals(1, dagEngine.getHedgeBudget().getExecutionCount());
+    }
+
+    @Test
+    public void budgetNotSavedUpByWarmUpTest() {
+        HedgeBudget budget = new HedgeBudget(0.1, 5);
+        // a long run of fast executions which need no hedge
+        for (int i = 0; i < 10_000; i++) {
+            budget.recordExecution();
+        }
+        // then every execution is slow and asks for a hedge
+        int burst = 100;
+        int hedged = 0;
+        for (int i = 0; i < burst; i++) {
+            budget.recordExecution();
+            if (budget.tryAcquire()) {
+                hedged++;
+            }
+        }
+        assertTrue(hedged <= budget.getMaxTokens() + burst * budget.getRatio(), "hedged: " + hedged);
+        assertTrue(hedged >= burst * budget.getRatio(), "hedged: " + hedged);
+    }
+
+    private static DagGraph hedgedGraph(String graphName, NodeHandler<Object> handler, Map<String, Object> results) {
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler(handler)
+                .attribute(ConcurrentDagEngine.HEDGE_ATTRIBUTE, 50).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").dependOn("A")
+                .handler((node, context) -> results.put("A", context.getNodeResult("A").getResult())).build();
+        return new DagGraphBuilder().graphName(graphName).addNodes(aNode, bNode).build();
+    }
+
+    private static int attempt(DagContext context) {
+        return ((AtomicInteger) context.getContext()).incrementAndGet();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
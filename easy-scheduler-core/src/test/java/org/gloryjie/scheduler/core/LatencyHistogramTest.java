@@ -0,0 +1,45 @@
+package org.gloryjie.scheduler.core;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBoundTest() {
+        long[] values = {0, 1, 7, 8, 9, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long upperBound = LatencyHistogram.bucketUpperBound(index);
+            assertTrue(upperBound >= value, "upper bound of " + value);
+            // within 12.5%
+            assertTrue(upperBound - value <= value / 8, "precision of " + value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value, "lower bound of " + value);
+            }
+        }
+    }
+
+    @Test
+    public void percentileAndDecayTest() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.count());
+        assertEquals(500_000, histogram.percentile(50), 500_000 / 8);
+        assertEquals(990_000, histogram.percentile(99), 990_000 / 8);
+        assertEquals(1_000_000, histogram.percentile(100), 1_000_000 / 8);
+
+        histogram.decay();
+        assertTrue(histogram.count() >= 500 && histogram.count() < 600);
+        // recent values weigh as much as the halved old ones
+        for (int i = 0; i < 2000; i++) {
+            histogram.record(10_000_000L);
+        }
+        assertEquals(10_000_000, histogram.percentile(50), 10_000_000 / 8);
+    }
+}
@@ -1,14 +1,21 @@
 package org.gloryjie.scheduler.core;
 
 import org.gloryjie.scheduler.api.*;
+import org.gloryjie.scheduler.core.metrics.DagMetricsRecorder;
+import org.gloryjie.scheduler.core.trace.DagTraceRecorder;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class NodeExecuteTimeoutTest extends DagEngineProvide {
 
@@ -123,4 +130,153 @@ public class NodeExecuteTimeoutTest extends DagEngineProvide {
     }
 
 
+    @Test
+    public void timeoutNodeReleaseSoftSuccessorTest() {
+        DagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        DagNode<Object> nodeA = DefaultDagNode.builder()
+                .nodeName("A")
+                .handler((node, context) -> {
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(300);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return "A";
+                })
+                .timeout(50L)
+                .build();
+        DagNode<Object> nodeB = DefaultDagNode.builder()
+                .nodeName("B")
+                .handler((node, context) -> "B")
+                .dependOn(DependencyType.SOFT, "A")
+                .build();
+        DagGraph dagGraph = new DagGraphBuilder()
+                .graphName("timeoutReleaseGraph")
+                .addNodes(nodeA, nodeB)
+                .timeout(1000L)
+                .build();
+
+        DagResult dagResult = dagEngine.fire(dagGraph, null);
+
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        assertEquals(NodeState.SUCCEEDED, dagResult.getNodeStateMap().get("B"));
+        // the successor is fired once A times out, not when A returns
+        assertEquals(NodeState.TIMEOUT, dagResult.getNodeStateMap().get("A"));
+        assertTrue(dagResult.getCostTime() < 250, "cost time: " + dagResult.getCostTime());
+    }
+
+
+    @Test
+    public void adaptiveTimeoutTest() {
+        NodeHandler<Object> handler = (node, context) -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep((Long) context.getContext());
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            return null;
+        };
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler(handler).timeout(5000L).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("adaptiveTimeoutGraph").addNodes(aNode).build();
+
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+        dagEngine.setAdaptiveTimeoutPolicy(AdaptiveTimeoutPolicy.builder()
+                .minSamples(10)
+                .minTimeout(100)
+                .build());
+
+        // the configured timeout applies until enough latency is observed
+        for (int i = 0; i < 10; i++) {
+            assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, 1L).getState());
+        }
+
+        // 2 * p99 of about 1ms is below the min timeout, so the node times out after 100ms instead of 5s
+        DagResult dagResult = dagEngine.fire(dagGraph, 1000L, 5000L);
+        assertEquals(NodeState.TIMEOUT, dagResult.getNodeStateMap().get("A"));
+        assertTrue(dagResult.getThrowable().getMessage().contains("100ms"));
+    }
+
+    @Test
+    public void blockingCallbackNotDelayTimeoutTest() throws Exception {
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        dagEngine.setInterruptOnCancel(true);
+        DagGraph graphTimeoutGraph = new DagGraphBuilder().graphName("graphTimeoutGraph")
+                .addNodes(sleepNode("A", null)).build();
+        DagGraph nodeTimeoutGraph = new DagGraphBuilder().graphName("nodeTimeoutGraph")
+                .addNodes(sleepNode("A", 50L)).build();
+
+        // done by the graph timeout, then by a node timeout
+        for (DagGraph blockedGraph : Arrays.asList(graphTimeoutGraph, nodeTimeoutGraph)) {
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            try {
+                dagEngine.fireAsync(blockedGraph, null, 50L).thenAccept(dagResult -> {
+                    blocked.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                assertTrue(blocked.await(1, TimeUnit.SECONDS), blockedGraph.getGraphName());
+
+                long begin = System.currentTimeMillis();
+                DagResult dagResult = dagEngine.fire(graphTimeoutGraph, null, 100L);
+                long cost = System.currentTimeMillis() - begin;
+                assertEquals(DagState.TIMEOUT, dagResult.getState());
+                assertTrue(cost < 1000, blockedGraph.getGraphName() + " cost: " + cost);
+            } finally {
+                release.countDown();
+            }
+        }
+    }
+
+    @Test
+    public void resultNotCompletedBeforeTimedOutRunReleasedTest() throws Exception {
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        // the node completes before the graph timeout, but its thread is held until the timer marked the timeout
+        dagEngine.setMetricsRecorder(new DagMetricsRecorder() {
+            @Override
+            public void recordNode(String graphName, String nodeName, NodeState state,
+                                   long queueWaitNanos, long executionNanos) {
+                sleepMillis(300);
+            }
+
+            @Override
+            public void recordDag(String graphName, DagState state, long costNanos) {
+            }
+        });
+        // then the release of the timed out run is slow
+        AtomicBoolean traced = new AtomicBoolean();
+        dagEngine.setTraceRecorder(new DagTraceRecorder(1, trace -> {
+            sleepMillis(500);
+            traced.set(true);
+        }));
+        DagGraph dagGraph = new DagGraphBuilder().graphName("releaseBeforeCompleteGraph")
+                .addNodes(DefaultDagNode.builder().nodeName("A").handler((node, context) -> "a").build()).build();
+
+        // the node thread finds the graph timed out and loses the done CAS to the timer
+        DagResult dagResult = dagEngine.fireAsync(dagGraph, null, 100L).get(5, TimeUnit.SECONDS);
+        assertEquals(DagState.TIMEOUT, dagResult.getState());
+        assertTrue(traced.get(), "the result is completed before the run is released");
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static DagNode<Object> sleepNode(String nodeName, Long timeout) {
+        return DefaultDagNode.builder().nodeName(nodeName).timeout(timeout).handler((node, context) -> {
+            try {
+                TimeUnit.SECONDS.sleep(3);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }).build();
+    }
 }
@@ -0,0 +1,79 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PartitionedExecutorSelectorTest {
+
+    @Test
+    public void selectPartitionTest() {
+        PartitionedExecutorSelector selector = PartitionedExecutorSelector.builder()
+                .partition("order", 2, 10, "orderGraph", "payGraph")
+                .partition("report", 1, 10, "reportGraph")
+                .defaultPartition(1, 10)
+                .build();
+
+        assertSame(selector.select("orderGraph"), selector.select("payGraph"));
+        assertNotSame(selector.select("orderGraph"), selector.select("reportGraph"));
+        assertSame(selector.select("unknownGraph"), selector.select("otherGraph"));
+        assertNotSame(selector.select("unknownGraph"), selector.select("orderGraph"));
+
+        assertEquals(3, selector.getAllStats().size());
+        assertEquals(10, selector.getStats("order").getQueueCapacity());
+        assertNull(selector.getStats("none"));
+
+        assertThrows(IllegalArgumentException.class, () -> PartitionedExecutorSelector.builder()
+                .partition("a", 1, 1, "graph")
+                .partition("b", 1, 1, "graph"));
+
+        // a rejected partition is not registered
+        PartitionedExecutorSelector.Builder builder = PartitionedExecutorSelector.builder()
+                .partition("a", 1, 1, "graph");
+        assertThrows(IllegalArgumentException.class, () -> builder.partition("b", 1, 1, "otherGraph", "graph"));
+        PartitionedExecutorSelector rebuilt = builder.partition("b", 1, 1, "otherGraph").build();
+        assertNotSame(rebuilt.select("graph"), rebuilt.select("otherGraph"));
+        rebuilt.shutdown();
+        selector.shutdown();
+    }
+
+    @Test
+    public void rejectionFailFastTest() {
+        PartitionedExecutorSelector selector = PartitionedExecutorSelector.builder()
+                .partition("small", 1, 1, "rejectGraph")
+                .build();
+        CountDownLatch latch = new CountDownLatch(1);
+        NodeHandler<Object> handler = (node, context) -> {
+            try {
+                return latch.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        // A runs, B waits in the queue, C is rejected
+        DagGraph dagGraph = new DagGraphBuilder().graphName("rejectGraph")
+                .addNodes(DefaultDagNode.builder().nodeName("A").handler(handler).build(),
+                        DefaultDagNode.builder().nodeName("B").handler(handler).build(),
+                        DefaultDagNode.builder().nodeName("C").handler(handler).build())
+                .build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine(selector);
+        DagResult dagResult = dagEngine.fire(dagGraph, null, 5000L);
+        latch.countDown();
+
+        assertEquals(DagState.FAILED, dagResult.getState());
+        assertTrue(dagResult.getCostTime() < 1000);
+        assertInstanceOf(DagEngineException.class, dagResult.getThrowable());
+        assertInstanceOf(RejectedExecutionException.class, dagResult.getThrowable().getCause());
+
+        PartitionStats stats = selector.getStats("small");
+        assertEquals(1, stats.getRejectedCount());
+        assertEquals(1, stats.getPoolSize());
+        selector.shutdown();
+    }
+}
@@ -0,0 +1,130 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PriorityExecutorSelectorTest {
+
+    @Test
+    public void higherPriorityFirstTest() throws Exception {
+        PriorityExecutorSelector selector = new PriorityExecutorSelector(1);
+        ExecutorService executorService = selector.select("any");
+        try {
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            executorService.execute(() -> {
+                blocked.countDown();
+                awaitQuietly(release);
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            // queued while the only thread is busy
+            List<String> order = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(5);
+            executorService.execute(task("low", 1, order, done));
+            executorService.execute(() -> {
+                order.add("plain");
+                done.countDown();
+            });
+            executorService.execute(task("high-1", 10, order, done));
+            executorService.execute(task("high-2", 10, order, done));
+            executorService.execute(task("middle", 5, order, done));
+            release.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(Arrays.asList("high-1", "high-2", "middle", "low", "plain"), order);
+        } finally {
+            selector.shutdown();
+        }
+    }
+
+    @Test
+    public void removeQueuedTaskTest() throws Exception {
+        PriorityExecutorSelector selector = new PriorityExecutorSelector(1);
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) selector.select("any");
+        try {
+            CountDownLatch blocked = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            executor.execute(() -> {
+                blocked.countDown();
+                awaitQuietly(release);
+            });
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            List<String> order = new CopyOnWriteArrayList<>();
+            CountDownLatch done = new CountDownLatch(2);
+            PrioritizedTask removed = task("removed", 10, order, done);
+            executor.execute(task("kept", 1, order, done));
+            executor.execute(removed);
+            Runnable plain = () -> order.add("plain");
+            executor.execute(plain);
+
+            // the submitted tasks are removed, not their wrappers in the queue
+            assertTrue(executor.remove(removed));
+            assertTrue(executor.remove(plain));
+            assertFalse(executor.remove(removed));
+            assertEquals(1, executor.getQueue().size());
+            release.countDown();
+
+            assertFalse(done.await(500, TimeUnit.MILLISECONDS));
+            assertEquals(Arrays.asList("kept"), order);
+        } finally {
+            selector.shutdown();
+        }
+    }
+
+    @Test
+    public void fireWithPriorityExecutorTest() {
+        PriorityExecutorSelector selector = new PriorityExecutorSelector(2);
+        try {
+            DagEngine dagEngine = new ConcurrentDagEngine(selector);
+            NodeHandler<Object> handler = (node, context) -> node.getNodeName();
+            DagGraph dagGraph = new DagGraphBuilder().graphName("priorityGraph")
+                    .addNodes(DefaultDagNode.builder().nodeName("A").handler(handler).build(),
+                            DefaultDagNode.builder().nodeName("B").handler(handler).dependOn("A").build(),
+                            DefaultDagNode.builder().nodeName("C").handler(handler).build(),
+                            DefaultDagNode.builder().nodeName("D").handler(handler).dependOn("B", "C").build())
+                    .build();
+            for (int i = 0; i < 20; i++) {
+                DagResult dagResult = dagEngine.fire(dagGraph, null);
+                assertEquals(DagState.SUCCEED, dagResult.getState());
+                assertEquals(NodeState.SUCCEEDED, dagResult.getNodeStateMap().get("D"));
+            }
+        } finally {
+            selector.shutdown();
+        }
+    }
+
+    private static PrioritizedTask task(String name, long priority, List<String> order, CountDownLatch done) {
+        return new PrioritizedTask() {
+            @Override
+            public long priority() {
+                return priority;
+            }
+
+            @Override
+            public void run() {
+                order.add(name);
+                done.countDown();
+            }
+        };
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
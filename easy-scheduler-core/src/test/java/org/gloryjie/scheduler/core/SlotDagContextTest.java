@@ -0,0 +1,77 @@
+package org.gloryjie.scheduler.core;
+
+import org.gloryjie.scheduler.api.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SlotDagContextTest {
+
+    private static final ContextKey<Integer> COUNT = ContextKey.of("slotTest.count", Integer.class);
+
+    private static final ContextKey<String> NAME = ContextKey.of("slotTest.name", String.class);
+
+    @Test
+    public void typedAndStringAccessTest() {
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler((node, context) -> null).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("slotGraph").addNodes(aNode).contextKeys(COUNT).build();
+        DagExecutionPlan plan = DagExecutionPlan.of(dagGraph);
+        assertTrue(plan.contextSlot(COUNT) >= 0);
+        assertEquals(-1, plan.contextSlot(NAME));
+
+        SlotDagContext context = new SlotDagContext(plan, "user");
+        assertEquals("user", context.getContext());
+        assertEquals("user", context.get(DagContext.USER_CONTEXT));
+
+        // declared key lives in a slot, undeclared key falls back to the map, both seen by the String API
+        context.put(COUNT, 3);
+        context.put(NAME, "jie");
+        assertEquals(3, context.get(COUNT));
+        assertEquals(3, context.get("slotTest.count"));
+        assertEquals("jie", context.get(NAME));
+        context.put("slotTest.count", 4);
+        assertEquals(4, context.get(COUNT));
+
+        Map<String, Object> map = context.asMap();
+        assertEquals(3, map.size());
+        assertEquals("jie", map.get("slotTest.name"));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("x", 1));
+
+        assertEquals(4, context.remove("slotTest.count"));
+        assertNull(context.get(COUNT));
+        assertEquals(2, map.size());
+    }
+
+    @Test
+    public void duplicatedKeyTest() {
+        ContextKey<Object> reserved = ContextKey.of(DagContext.USER_CONTEXT, Object.class);
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler((node, context) -> null).build();
+        assertThrows(IllegalArgumentException.class, () -> new DagGraphBuilder().graphName("reservedGraph")
+                .addNodes(aNode).contextKeys(reserved).build());
+        assertThrows(IllegalArgumentException.class, () -> ContextKey.of("slotTest.count", Long.class));
+    }
+
+    @Test
+    public void engineRunWithSlotsTest() {
+        AtomicReference<DagContext> endContext = new AtomicReference<>();
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler((node, context) -> {
+            context.put(COUNT, (Integer) context.getContext() + 1);
+            return "a";
+        }).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").dependOn("A").handler((node, context) ->
+                context.getNodeResult("A").getResult() + "-" + context.get(COUNT)).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("slotRunGraph").addNodes(aNode, bNode)
+                .contextKeys(COUNT).end(endContext::set).build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+        DagResult dagResult = dagEngine.fire(dagGraph, 1, 5000L);
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        DagContext context = endContext.get();
+        assertInstanceOf(SlotDagContext.class, context);
+        assertEquals("a-2", context.getNodeResult("B").getResult());
+        assertSame(context.getNodeResult("A"), context.asMap().get(DagContext.NODE_RESULT_PREFIX + "A"));
+    }
+}
@@ -0,0 +1,157 @@
+package org.gloryjie.scheduler.core.cache;
+
+import org.gloryjie.scheduler.api.*;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.DagGraphBuilder;
+import org.gloryjie.scheduler.core.DefaultDagNode;
+import org.gloryjie.scheduler.core.SingleExcutorSelector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NodeResultCacheTest {
+
+    @Test
+    public void cachingNodeHandlerTest() {
+        AtomicInteger calls = new AtomicInteger();
+        NodeHandler<Object> handler = (node, context) -> "config-" + context.getContext() + "-" + calls.incrementAndGet();
+        NodeResultCache cache = NodeResultCache.builder().expireAfterWrite(1, TimeUnit.MINUTES).build();
+        DagNode<Object> node = DefaultDagNode.builder().nodeName("config")
+                .handler(new CachingNodeHandler<>(handler, cache)).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("cachingHandlerGraph").addNodes(node).build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, "a").getState());
+            assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, "b").getState());
+        }
+
+        assertEquals(2, calls.get());
+        NodeCacheStats stats = cache.getStats();
+        assertEquals(8, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(2, stats.getLoadSuccessCount());
+        assertTrue(stats.getTotalLoadTime() > 0);
+    }
+
+    @Test
+    public void unnamedHandlersNotSharedTest() {
+        NodeResultCache cache = NodeResultCache.builder().build();
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A")
+                .handler(new CachingNodeHandler<>((node, context) -> "a", cache)).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B")
+                .handler(new CachingNodeHandler<>((node, context) -> "b", cache)).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("unnamedHandlerGraph").addNodes(aNode, bNode).build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine();
+        assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, "same").getState());
+
+        // both handlers have an empty name, the node names keep their keys apart
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.get(CacheKey.of("A", "same"), () -> "missed"));
+        assertEquals("b", cache.get(CacheKey.of("B", "same"), () -> "missed"));
+    }
+
+    @Test
+    public void nodeAttributeCacheTest() {
+        AtomicInteger calls = new AtomicInteger();
+        NodeResultCache cache = NodeResultCache.builder().build();
+        DagNode<Object> node = DefaultDagNode.builder().nodeName("dict")
+                .handler((n, context) -> calls.incrementAndGet())
+                .attribute(NodeResultCache.CACHE_ATTRIBUTE, cache)
+                .attribute(NodeResultCache.CACHE_KEY_ATTRIBUTE, (CacheKeyResolver) (n, context) -> "fixed")
+                .build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("attributeCacheGraph").addNodes(node).build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, i).getState());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.getStats().getHitCount());
+    }
+
+    @Test
+    public void expireAndEvictTest() throws Exception {
+        NodeResultCache cache = NodeResultCache.builder()
+                .expireAfterWrite(50, TimeUnit.MILLISECONDS)
+                .maximumSize(1)
+                .build();
+        AtomicInteger calls = new AtomicInteger();
+
+        cache.get(CacheKey.of("h", 1), calls::incrementAndGet);
+        cache.get(CacheKey.of("h", 2), calls::incrementAndGet);
+        // evicted by key 2
+        cache.get(CacheKey.of("h", 1), calls::incrementAndGet);
+        assertEquals(3, calls.get());
+
+        Thread.sleep(100);
+        cache.get(CacheKey.of("h", 1), calls::incrementAndGet);
+        assertEquals(4, calls.get());
+        assertTrue(cache.getStats().getEvictionCount() >= 2);
+    }
+
+    @Test
+    public void boundedByDefaultTest() {
+        NodeResultCache cache = NodeResultCache.builder().build();
+        for (int i = 0; i < NodeResultCache.DEFAULT_MAXIMUM_SIZE * 2; i++) {
+            int value = i;
+            cache.get(CacheKey.of("handler", i), () -> value);
+        }
+        assertTrue(cache.size() <= NodeResultCache.DEFAULT_MAXIMUM_SIZE, "size: " + cache.size());
+        assertTrue(cache.getStats().getEvictionCount() > 0);
+    }
+
+    @Test
+    public void nullAndFailedResultTest() {
+        NodeResultCache cache = NodeResultCache.builder().build();
+        AtomicInteger calls = new AtomicInteger();
+
+        assertNull(cache.get(CacheKey.of("h", (Object) null), () -> {
+            calls.incrementAndGet();
+            return null;
+        }));
+        assertNull(cache.get(CacheKey.of("h", (Object) null), calls::incrementAndGet));
+        assertEquals(1, calls.get());
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class,
+                () -> cache.get(CacheKey.of("h", "fail"), () -> {
+                    throw new IllegalStateException("load failed");
+                }));
+        assertEquals("load failed", exception.getMessage());
+        // a failure is not cached
+        assertEquals("ok", cache.get(CacheKey.of("h", "fail"), () -> "ok"));
+    }
+
+    @Test
+    public void concurrentMissShareOneLoadTest() throws Exception {
+        NodeResultCache cache = NodeResultCache.builder().build();
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executorService.submit(() -> cache.get(CacheKey.of("slow", "key"), () -> {
+                    calls.incrementAndGet();
+                    release.await(5, TimeUnit.SECONDS);
+                    return "value";
+                })));
+            }
+            Thread.sleep(50);
+            release.countDown();
+            for (Future<Object> future : futures) {
+                assertEquals("value", future.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.gloryjie.scheduler.core.event;
+
+import org.gloryjie.scheduler.api.*;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.DagGraphBuilder;
+import org.gloryjie.scheduler.core.DefaultDagNode;
+import org.gloryjie.scheduler.core.SingleExcutorSelector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DagEventDispatcherTest {
+
+    @Test
+    public void lifecycleEventsTest() throws Exception {
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler((node, context) -> "A").build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").dependOn("A")
+                .handler((node, context) -> "B").build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("eventGraph").addNodes(aNode, bNode).build();
+
+        RecordingListener listener = new RecordingListener();
+        try (DagEventDispatcher dispatcher = new DagEventDispatcher(64)) {
+            dispatcher.addListener(listener);
+            ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+            dagEngine.setEventDispatcher(dispatcher);
+            assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, null, 5000L).getState());
+            assertTrue(listener.completed.await(2, TimeUnit.SECONDS));
+        }
+
+        assertEquals(Arrays.asList("DAG_STARTED", "NODE_SUBMITTED:A", "NODE_STARTED:A", "NODE_COMPLETED:A:SUCCEEDED",
+                "NODE_SUBMITTED:B", "NODE_STARTED:B", "NODE_COMPLETED:B:SUCCEEDED", "DAG_COMPLETED:SUCCEED"), listener.events);
+    }
+
+    @Test
+    public void nodeTimedOutEventTest() throws Exception {
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").timeout(50L).handler((node, context) -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "A";
+        }).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("eventTimeoutGraph").addNodes(aNode).build();
+
+        RecordingListener listener = new RecordingListener();
+        try (DagEventDispatcher dispatcher = new DagEventDispatcher(64)) {
+            dispatcher.addListener(listener);
+            ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+            dagEngine.setEventDispatcher(dispatcher);
+            dagEngine.fire(dagGraph, null, 5000L);
+            assertTrue(listener.completed.await(2, TimeUnit.SECONDS));
+        }
+
+        assertTrue(listener.events.contains("NODE_TIMED_OUT:A:TIMEOUT"));
+    }
+
+    @Test
+    public void idleDispatcherWakesUpTest() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(1);
+        try (DagEventDispatcher dispatcher = new DagEventDispatcher(4)) {
+            dispatcher.addListener(new DagExecutionListener() {
+                @Override
+                public void onDagStarted(DagExecutionEvent event) {
+                    delivered.countDown();
+                }
+            });
+            // long idle, the dispatcher thread parks without a timeout
+            long deadline = System.currentTimeMillis() + 2000;
+            while (!hasWaitingDispatcherThread() && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertTrue(hasWaitingDispatcherThread());
+
+            assertTrue(dispatcher.publish(DagExecutionEvent.Type.DAG_STARTED, 1, "graph", null,
+                    DagState.RUNNING, null, null));
+            assertTrue(delivered.await(1, TimeUnit.SECONDS));
+        }
+    }
+
+    private static boolean hasWaitingDispatcherThread() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().equals("easy-scheduler-event-dispatcher")
+                        && thread.getState() == Thread.State.WAITING);
+    }
+
+    @Test
+    public void slowListenerDropsEventsTest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger delivered = new AtomicInteger();
+        DagEventDispatcher dispatcher = new DagEventDispatcher(4);
+        dispatcher.addListener(new DagExecutionListener() {
+            @Override
+            public void onDagStarted(DagExecutionEvent event) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                delivered.incrementAndGet();
+            }
+        });
+
+        // the publisher never waits for the blocked listener
+        long begin = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            dispatcher.publish(DagExecutionEvent.Type.DAG_STARTED, i, "g", null, null, null, null);
+        }
+        assertTrue(System.nanoTime() - begin < TimeUnit.SECONDS.toNanos(1));
+        assertTrue(dispatcher.getDroppedCount() >= 5);
+
+        release.countDown();
+        dispatcher.close();
+        assertEquals(10, delivered.get() + dispatcher.getDroppedCount());
+    }
+
+
+    private static class RecordingListener implements DagExecutionListener {
+
+        private final List<String> events = new CopyOnWriteArrayList<>();
+
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onDagStarted(DagExecutionEvent event) {
+            events.add(event.getType().name());
+        }
+
+        @Override
+        public void onNodeSubmitted(DagExecutionEvent event) {
+            events.add(event.getType() + ":" + event.getNodeName());
+        }
+
+        @Override
+        public void onNodeStarted(DagExecutionEvent event) {
+            events.add(event.getType() + ":" + event.getNodeName());
+        }
+
+        @Override
+        public void onNodeCompleted(DagExecutionEvent event) {
+            events.add(event.getType() + ":" + event.getNodeName() + ":" + event.getNodeState());
+        }
+
+        @Override
+        public void onNodeTimedOut(DagExecutionEvent event) {
+            events.add(event.getType() + ":" + event.getNodeName() + ":" + event.getNodeState());
+        }
+
+        @Override
+        public void onDagCompleted(DagExecutionEvent event) {
+            events.add(event.getType() + ":" + event.getDagState());
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.gloryjie.scheduler.core.metrics;
+
+import org.gloryjie.scheduler.api.*;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.DagGraphBuilder;
+import org.gloryjie.scheduler.core.DefaultDagNode;
+import org.gloryjie.scheduler.core.SingleExcutorSelector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryDagMetricsRecorderTest {
+
+    @Test
+    public void recordRunsTest() {
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler((node, context) -> {
+            sleep(20);
+            return "A";
+        }).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").dependOn("A").handler((node, context) -> {
+            if (Boolean.TRUE.equals(context.getContext())) {
+                throw new IllegalStateException("B failed");
+            }
+            return "B";
+        }).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("metricsGraph").addNodes(aNode, bNode).build();
+
+        InMemoryDagMetricsRecorder recorder = new InMemoryDagMetricsRecorder();
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+        dagEngine.setMetricsRecorder(recorder);
+        assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, false, 5000L).getState());
+        assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, false, 5000L).getState());
+        assertEquals(DagState.FAILED, dagEngine.fire(dagGraph, true, 5000L).getState());
+
+        GraphMetricsSnapshot snapshot = recorder.snapshot("metricsGraph");
+        assertEquals(2, snapshot.count(DagState.SUCCEED));
+        assertEquals(1, snapshot.count(DagState.FAILED));
+        assertEquals(3, snapshot.totalCount());
+        assertEquals(3, snapshot.getCost().getCount());
+        // the virtual start and end nodes are not recorded
+        assertEquals(Arrays.asList("A", "B"), Arrays.asList(snapshot.getNodes().keySet().toArray()));
+
+        NodeMetricsSnapshot aMetrics = snapshot.getNodes().get("A");
+        assertEquals(3, aMetrics.count(NodeState.SUCCEEDED));
+        assertEquals(3, aMetrics.getExecution().getCount());
+        assertTrue(aMetrics.getExecution().getP50() >= TimeUnit.MILLISECONDS.toNanos(20));
+        assertEquals(3, aMetrics.getQueueWait().getCount());
+
+        NodeMetricsSnapshot bMetrics = snapshot.getNodes().get("B");
+        assertEquals(2, bMetrics.count(NodeState.SUCCEEDED));
+        assertEquals(1, bMetrics.count(NodeState.FAILED));
+    }
+
+    @Test
+    public void recordBatchTest() {
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler((node, context) -> "A").build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("batchMetricsGraph").addNodes(aNode).build();
+
+        InMemoryDagMetricsRecorder recorder = new InMemoryDagMetricsRecorder();
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+        dagEngine.setMetricsRecorder(recorder);
+        List<DagResult> results = dagEngine.fireBatch(dagGraph, Arrays.asList(1, 2, 3, 4), 5000L);
+        assertEquals(4, results.size());
+
+        GraphMetricsSnapshot snapshot = recorder.snapshot().get("batchMetricsGraph");
+        assertEquals(4, snapshot.count(DagState.SUCCEED));
+        assertEquals(4, snapshot.getNodes().get("A").count(NodeState.SUCCEEDED));
+    }
+
+    @Test
+    public void recordAndResetTest() {
+        InMemoryDagMetricsRecorder recorder = new InMemoryDagMetricsRecorder();
+        recorder.recordNode("g", "A", NodeState.TIMEOUT, TimeUnit.MILLISECONDS.toNanos(100), 0);
+        recorder.recordDag("g", DagState.TIMEOUT, TimeUnit.MILLISECONDS.toNanos(100));
+
+        GraphMetricsSnapshot first = recorder.snapshot("g");
+        NodeMetricsSnapshot aMetrics = first.getNodes().get("A");
+        assertEquals(1, aMetrics.count(NodeState.TIMEOUT));
+        assertEquals(0, aMetrics.getExecution().getMax());
+        assertTrue(aMetrics.getQueueWait().getMax() >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertNull(recorder.snapshot("unknown"));
+
+        recorder.reset();
+        assertTrue(recorder.snapshot().isEmpty());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.gloryjie.scheduler.core.timer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HashedWheelDagTimerTest {
+
+    private final HashedWheelDagTimer timer = new HashedWheelDagTimer(5, TimeUnit.MILLISECONDS, 8);
+
+    @AfterEach
+    public void stopTimer() {
+        timer.stop();
+    }
+
+    @Test
+    public void expireAfterDelayTest() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        // longer than one round of the wheel
+        Timeout timeout = timer.newTimeout(latch::countDown, 100, TimeUnit.MILLISECONDS);
+
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 100);
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void cancelReleaseTimeoutTest() throws InterruptedException {
+        AtomicInteger counter = new AtomicInteger();
+        for (int i = 0; i < 1000; i++) {
+            Timeout timeout = timer.newTimeout(counter::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+            assertTrue(timeout.cancel());
+            assertTrue(timeout.isCancelled());
+        }
+        // cancelled timeouts are released by the worker on the next tick, not when they expire
+        TimeUnit.MILLISECONDS.sleep(30);
+        assertEquals(0, timer.pendingTimeouts());
+
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertEquals(0, counter.get());
+    }
+
+}
@@ -0,0 +1,95 @@
+package org.gloryjie.scheduler.core.trace;
+
+import org.gloryjie.scheduler.api.*;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.DagGraphBuilder;
+import org.gloryjie.scheduler.core.DefaultDagNode;
+import org.gloryjie.scheduler.core.SingleExcutorSelector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DagTraceRecorderTest {
+
+    @Test
+    public void forceTraceTest() {
+        List<DagTrace> traces = new CopyOnWriteArrayList<>();
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+        dagEngine.setTraceRecorder(new DagTraceRecorder(0, traces::add));
+        DagGraph dagGraph = traceGraph();
+
+        // never sampled without forcing
+        assertEquals(DagState.SUCCEED, dagEngine.fire(dagGraph, null, 5000L).getState());
+        assertTrue(traces.isEmpty());
+
+        DagResult dagResult = DagTraceRecorder.forceTrace(() -> dagEngine.fire(dagGraph, null, 5000L));
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        assertEquals(1, traces.size());
+
+        DagTrace trace = traces.get(0);
+        assertEquals("traceGraph", trace.getGraphName());
+        assertEquals(DagState.SUCCEED, trace.getState());
+        assertEquals(3, trace.getSpans().size());
+
+        NodeSpan aSpan = trace.getSpan("A");
+        assertNotNull(aSpan.getThreadName());
+        assertTrue(aSpan.executionNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(aSpan.getSubmitNanos() <= aSpan.getStartNanos());
+        assertTrue(trace.getSpan("B").getStartNanos() >= aSpan.getEndNanos());
+
+        List<String> criticalPath = trace.criticalPath().stream().map(NodeSpan::getNodeName).collect(Collectors.toList());
+        assertEquals(Arrays.asList("A", "B"), criticalPath);
+        String report = trace.criticalPathReport();
+        assertTrue(report.contains("critical path"));
+        assertTrue(report.contains("A") && report.contains("B"));
+    }
+
+    @Test
+    public void chromeTraceJsonTest() {
+        List<DagTrace> traces = new CopyOnWriteArrayList<>();
+        ConcurrentDagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+        dagEngine.setTraceRecorder(new DagTraceRecorder(1, traces::add));
+        dagEngine.fire(traceGraph(), null, 5000L);
+
+        String json = traces.get(0).toChromeTraceJson();
+        assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\""));
+        assertTrue(json.endsWith("]}"));
+        assertTrue(json.contains("\"name\":\"A\",\"cat\":\"node\",\"ph\":\"X\""));
+        assertTrue(json.contains("\"name\":\"thread_name\""));
+        assertTrue(json.contains("\"graphName\":\"traceGraph\""));
+    }
+
+    @Test
+    public void sampleRateTest() {
+        assertThrows(IllegalArgumentException.class, () -> new DagTraceRecorder(1.5, trace -> {
+        }));
+        DagTraceRecorder recorder = new DagTraceRecorder(0, trace -> {
+        });
+        assertFalse(recorder.sample());
+        assertTrue(DagTraceRecorder.forceTrace(recorder::sample));
+        assertFalse(recorder.sample());
+    }
+
+    private static DagGraph traceGraph() {
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler((node, context) -> sleep(30)).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").dependOn("A")
+                .handler((node, context) -> sleep(20)).build();
+        DagNode<Object> cNode = DefaultDagNode.builder().nodeName("C").handler((node, context) -> sleep(5)).build();
+        return new DagGraphBuilder().graphName("traceGraph").addNodes(aNode, bNode, cNode).build();
+    }
+
+    private static Object sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        return millis;
+    }
+}
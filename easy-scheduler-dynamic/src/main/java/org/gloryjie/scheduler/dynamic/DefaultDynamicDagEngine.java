@@ -69,7 +69,7 @@ public class DefaultDynamicDagEngine extends ConcurrentDagEngine implements Dyna
             Method method = entry.getKey();
             MethodNodeHandler annotation = entry.getValue();
 
-            MethodNodeHandlerImpl methodNodeHandler = new MethodNodeHandlerImpl(bean, method, annotation);
+            MethodNodeHandlerImpl methodNodeHandler = MethodNodeHandlerImpl.of(bean, method, annotation);
             this.registerHandler(methodNodeHandler);
         }
     }
@@ -0,0 +1,19 @@
+package org.gloryjie.scheduler.expr;
+
+import org.gloryjie.scheduler.api.DagContext;
+
+/**
+ * An expression compiled by {@link ExprCompiler}, it is thread safe.
+ */
+@FunctionalInterface
+public interface CompiledExpression {
+
+    /**
+     * Evaluates the expression against the context of a dag run.
+     *
+     * @param dagContext the context
+     * @return the value of the expression, the value of the last one if there are several
+     * @throws ExprException if the expression could not be evaluated
+     */
+    Object evaluate(DagContext dagContext);
+}
@@ -0,0 +1,556 @@
+package org.gloryjie.scheduler.expr;
+
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.api.NodeResult;
+import org.gloryjie.scheduler.expr.ExprLexer.Token;
+import org.gloryjie.scheduler.expr.ExprLexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+
+/**
+ * Compiles the expressions of the conditions and the actions of the graphs.
+ * <p>
+ * The expression is parsed once, when the graph is built, into a tree of closures: the operators are resolved,
+ * the constant parts are folded and the properties and methods cache their MethodHandles,
+ * so an evaluation neither parses nor looks up anything.
+ * <p>
+ * The language is a small subset of SpEL, the same expressions work with both:
+ * <ul>
+ *     <li>literals: {@code 1}, {@code 2L}, {@code 1.5}, {@code 'text'}, {@code "text"}, {@code true}, {@code false}, {@code null}</li>
+ *     <li>{@code context} is the user context, {@code #name} or {@code name} is the value of the key in the DagContext,
+ *     {@code #root} is the DagContext itself</li>
+ *     <li>{@code result('A')} is the result of node A, {@code nodeResult('A')} is its NodeResult,
+ *     other functions are the methods of the DagContext, like {@code put('key', 1)}</li>
+ *     <li>properties {@code a.b}, null-safe properties {@code a?.b}, methods {@code a.m(1)}, {@code a?.m(1)},
+ *     indexes {@code a[0]}, {@code a['key']}</li>
+ *     <li>{@code == != < <= > >= + - * / % ! && || and or not}, {@code c ? a : b} and {@code a ?: b}</li>
+ *     <li>assignments {@code #name = 1}, {@code context.name = 'Jack'}, {@code a[0] = 1}</li>
+ *     <li>several expressions separated by {@code ;}</li>
+ * </ul>
+ * The expression may be written in {@code #{...}} blocks like a SpEL template, the blocks are evaluated in order.
+ */
+public final class ExprCompiler {
+
+    private ExprCompiler() {
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @param expression the expression
+     * @return the compiled expression
+     * @throws ExprException if the expression is invalid
+     */
+    public static CompiledExpression compile(String expression) {
+        Objects.requireNonNull(expression, "expression must not be null");
+        List<String> blocks = templateBlocks(expression);
+        List<CompiledExpression> compiled = new ArrayList<>(blocks.size());
+        for (String block : blocks) {
+            compiled.add(new Parser(block).parse());
+        }
+        return sequence(compiled);
+    }
+
+    /**
+     * Splits "#{a} #{b}" into "a" and "b", an expression without block is one block.
+     */
+    private static List<String> templateBlocks(String expression) {
+        List<String> blocks = new ArrayList<>();
+        if (!expression.contains("#{")) {
+            blocks.add(expression);
+            return blocks;
+        }
+        int pos = 0;
+        while (pos < expression.length()) {
+            int start = expression.indexOf("#{", pos);
+            String text = start < 0 ? expression.substring(pos) : expression.substring(pos, start);
+            if (!text.trim().isEmpty()) {
+                throw ExprException.parseError(expression, pos, "text out of #{} block");
+            }
+            if (start < 0) {
+                break;
+            }
+            int end = blockEnd(expression, start + 2);
+            blocks.add(expression.substring(start + 2, end));
+            pos = end + 1;
+        }
+        return blocks;
+    }
+
+    private static int blockEnd(String expression, int from) {
+        int depth = 0;
+        char quote = 0;
+        for (int i = from; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}') {
+                if (depth == 0) {
+                    return i;
+                }
+                depth--;
+            }
+        }
+        throw ExprException.parseError(expression, from - 2, "unclosed #{} block");
+    }
+
+    private static CompiledExpression sequence(List<CompiledExpression> expressions) {
+        if (expressions.size() == 1) {
+            return expressions.get(0);
+        }
+        CompiledExpression[] array = expressions.toArray(new CompiledExpression[0]);
+        return ctx -> {
+            Object value = null;
+            for (CompiledExpression expression : array) {
+                value = expression.evaluate(ctx);
+            }
+            return value;
+        };
+    }
+
+
+    @FunctionalInterface
+    private interface Assigner {
+
+        void assign(DagContext ctx, Object value);
+    }
+
+
+    /**
+     * A compiled sub expression, it may be a constant or the target of an assignment
+     */
+    private static final class Operand {
+
+        final CompiledExpression expression;
+
+        final Assigner assigner;
+
+        final boolean constant;
+
+        final Object value;
+
+        private Operand(CompiledExpression expression, Assigner assigner, boolean constant, Object value) {
+            this.expression = expression;
+            this.assigner = assigner;
+            this.constant = constant;
+            this.value = value;
+        }
+
+        static Operand of(CompiledExpression expression) {
+            return new Operand(expression, null, false, null);
+        }
+
+        static Operand assignable(CompiledExpression expression, Assigner assigner) {
+            return new Operand(expression, assigner, false, null);
+        }
+
+        static Operand constant(Object value) {
+            return new Operand(ctx -> value, null, true, value);
+        }
+    }
+
+
+    private static final class Parser {
+
+        private final String source;
+
+        private final List<Token> tokens;
+
+        private int index;
+
+        Parser(String source) {
+            this.source = source;
+            this.tokens = new ExprLexer(source).tokenize();
+        }
+
+        CompiledExpression parse() {
+            List<CompiledExpression> statements = new ArrayList<>();
+            do {
+                if (peek().type == TokenType.EOF) {
+                    break;
+                }
+                statements.add(assignment().expression);
+            } while (accept(";"));
+            if (peek().type != TokenType.EOF) {
+                throw error("unexpected " + peek());
+            }
+            if (statements.isEmpty()) {
+                throw error("empty expression");
+            }
+            return sequence(statements);
+        }
+
+        private Operand assignment() {
+            Operand target = ternary();
+            if (!peek().is("=")) {
+                return target;
+            }
+            Token token = next();
+            if (target.assigner == null) {
+                throw ExprException.parseError(source, token.position, "the left side could not be assigned");
+            }
+            CompiledExpression value = assignment().expression;
+            Assigner assigner = target.assigner;
+            return Operand.of(ctx -> {
+                Object v = value.evaluate(ctx);
+                assigner.assign(ctx, v);
+                return v;
+            });
+        }
+
+        private Operand ternary() {
+            Operand condition = or();
+            if (!accept("?")) {
+                return condition;
+            }
+            CompiledExpression test = condition.expression;
+            if (accept(":")) {
+                // elvis, a ?: b
+                CompiledExpression fallback = ternary().expression;
+                return Operand.of(ctx -> {
+                    Object v = test.evaluate(ctx);
+                    return v != null ? v : fallback.evaluate(ctx);
+                });
+            }
+            CompiledExpression whenTrue = assignment().expression;
+            expect(":");
+            CompiledExpression whenFalse = ternary().expression;
+            if (condition.constant) {
+                return Operand.of(Operators.isTrue(condition.value) ? whenTrue : whenFalse);
+            }
+            return Operand.of(ctx -> Operators.isTrue(test.evaluate(ctx)) ? whenTrue.evaluate(ctx) : whenFalse.evaluate(ctx));
+        }
+
+        private Operand or() {
+            Operand left = and();
+            while (accept("||") || acceptKeyword("or")) {
+                CompiledExpression l = left.expression;
+                CompiledExpression r = and().expression;
+                left = Operand.of(ctx -> Operators.isTrue(l.evaluate(ctx)) || Operators.isTrue(r.evaluate(ctx)));
+            }
+            return left;
+        }
+
+        private Operand and() {
+            Operand left = equality();
+            while (accept("&&") || acceptKeyword("and")) {
+                CompiledExpression l = left.expression;
+                CompiledExpression r = equality().expression;
+                left = Operand.of(ctx -> Operators.isTrue(l.evaluate(ctx)) && Operators.isTrue(r.evaluate(ctx)));
+            }
+            return left;
+        }
+
+        private Operand equality() {
+            Operand left = relational();
+            while (true) {
+                if (accept("==")) {
+                    left = binary(left, relational(), Operators::isEqual);
+                } else if (accept("!=")) {
+                    left = binary(left, relational(), (l, r) -> !Operators.isEqual(l, r));
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Operand relational() {
+            Operand left = additive();
+            while (true) {
+                if (accept("<")) {
+                    left = binary(left, additive(), (l, r) -> Operators.compare(l, r) < 0);
+                } else if (accept("<=")) {
+                    left = binary(left, additive(), (l, r) -> Operators.compare(l, r) <= 0);
+                } else if (accept(">")) {
+                    left = binary(left, additive(), (l, r) -> Operators.compare(l, r) > 0);
+                } else if (accept(">=")) {
+                    left = binary(left, additive(), (l, r) -> Operators.compare(l, r) >= 0);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Operand additive() {
+            Operand left = multiplicative();
+            while (true) {
+                if (accept("+")) {
+                    left = binary(left, multiplicative(), Operators::add);
+                } else if (accept("-")) {
+                    left = binary(left, multiplicative(), Operators::subtract);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Operand multiplicative() {
+            Operand left = unary();
+            while (true) {
+                if (accept("*")) {
+                    left = binary(left, unary(), Operators::multiply);
+                } else if (accept("/")) {
+                    left = binary(left, unary(), Operators::divide);
+                } else if (accept("%")) {
+                    left = binary(left, unary(), Operators::remainder);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        private Operand unary() {
+            if (accept("!") || acceptKeyword("not")) {
+                Operand operand = unary();
+                CompiledExpression e = operand.expression;
+                return fold(Operand.of(ctx -> !Operators.isTrue(e.evaluate(ctx))), operand);
+            }
+            if (accept("-")) {
+                Operand operand = unary();
+                CompiledExpression e = operand.expression;
+                return fold(Operand.of(ctx -> Operators.negate(e.evaluate(ctx))), operand);
+            }
+            return postfix();
+        }
+
+        private Operand binary(Operand left, Operand right, BinaryOperator<Object> operator) {
+            CompiledExpression l = left.expression;
+            CompiledExpression r = right.expression;
+            return fold(Operand.of(ctx -> operator.apply(l.evaluate(ctx), r.evaluate(ctx))), left, right);
+        }
+
+        /**
+         * Evaluates the operand now if all its inputs are constants
+         */
+        private Operand fold(Operand operand, Operand... inputs) {
+            for (Operand input : inputs) {
+                if (!input.constant) {
+                    return operand;
+                }
+            }
+            try {
+                return Operand.constant(operand.expression.evaluate(null));
+            } catch (RuntimeException e) {
+                // fails on every evaluation, like 1 / 'a' or 1 / 0, reported when it is evaluated
+                return operand;
+            }
+        }
+
+        private Operand postfix() {
+            Operand operand = primary();
+            while (true) {
+                if (peek().is(".") || peek().is("?.")) {
+                    boolean nullSafe = next().is("?.");
+                    Token name = expectIdentifier();
+                    operand = peek().is("(") ? methodCall(operand, name.text, nullSafe)
+                            : property(operand, name.text, nullSafe);
+                } else if (accept("[")) {
+                    CompiledExpression target = operand.expression;
+                    CompiledExpression key = assignment().expression;
+                    expect("]");
+                    operand = Operand.assignable(ctx -> {
+                        Object t = target.evaluate(ctx);
+                        if (t == null) {
+                            throw new ExprException("could not index null");
+                        }
+                        return MemberAccess.getIndex(t, key.evaluate(ctx));
+                    }, (ctx, value) -> {
+                        Object t = target.evaluate(ctx);
+                        if (t == null) {
+                            throw new ExprException("could not index null");
+                        }
+                        MemberAccess.setIndex(t, key.evaluate(ctx), value);
+                    });
+                } else {
+                    return operand;
+                }
+            }
+        }
+
+        private Operand property(Operand operand, String name, boolean nullSafe) {
+            CompiledExpression target = operand.expression;
+            MemberAccess.PropertySite site = new MemberAccess.PropertySite(name);
+            return Operand.assignable(ctx -> {
+                Object t = target.evaluate(ctx);
+                if (t == null) {
+                    if (nullSafe) {
+                        return null;
+                    }
+                    throw new ExprException("could not read property " + name + " of null");
+                }
+                return site.get(t);
+            }, (ctx, value) -> {
+                Object t = target.evaluate(ctx);
+                if (t == null) {
+                    if (nullSafe) {
+                        return;
+                    }
+                    throw new ExprException("could not write property " + name + " of null");
+                }
+                site.set(t, value);
+            });
+        }
+
+        private Operand methodCall(Operand operand, String name, boolean nullSafe) {
+            CompiledExpression target = operand.expression;
+            CompiledExpression[] args = arguments();
+            MemberAccess.MethodSite site = new MemberAccess.MethodSite(name, args.length);
+            return Operand.of(ctx -> {
+                Object t = target.evaluate(ctx);
+                if (t == null) {
+                    if (nullSafe) {
+                        return null;
+                    }
+                    throw new ExprException("could not call method " + name + " of null");
+                }
+                return site.invoke(t, evaluateAll(args, ctx));
+            });
+        }
+
+        private Operand primary() {
+            Token token = next();
+            switch (token.type) {
+                case NUMBER:
+                case STRING:
+                    return Operand.constant(token.value);
+                case VARIABLE:
+                    return variable(token.text);
+                case IDENTIFIER:
+                    return identifier(token);
+                default:
+                    if (token.is("(")) {
+                        Operand operand = assignment();
+                        expect(")");
+                        return operand.constant ? operand : Operand.of(operand.expression);
+                    }
+                    throw ExprException.parseError(source, token.position, "unexpected " + token);
+            }
+        }
+
+        private Operand variable(String name) {
+            if (name.equals("root")) {
+                return Operand.of(ctx -> ctx);
+            }
+            return Operand.assignable(ctx -> ctx.get(name), (ctx, value) -> MemberAccess.putContext(ctx, name, value));
+        }
+
+        private Operand identifier(Token token) {
+            switch (token.text) {
+                case "true":
+                    return Operand.constant(Boolean.TRUE);
+                case "false":
+                    return Operand.constant(Boolean.FALSE);
+                case "null":
+                    return Operand.constant(null);
+                case "context":
+                    if (!peek().is("(")) {
+                        return Operand.of(DagContext::getContext);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if (!peek().is("(")) {
+                return variable(token.text);
+            }
+            if (token.text.equals("result") || token.text.equals("nodeResult")) {
+                return nodeResult(token);
+            }
+            // other functions are the methods of the root object, the DagContext
+            CompiledExpression[] args = arguments();
+            MemberAccess.MethodSite site = new MemberAccess.MethodSite(token.text, args.length);
+            return Operand.of(ctx -> site.invoke(ctx, evaluateAll(args, ctx)));
+        }
+
+        private Operand nodeResult(Token token) {
+            CompiledExpression[] args = arguments();
+            if (args.length != 1) {
+                throw ExprException.parseError(source, token.position, token.text + "() needs the node name");
+            }
+            CompiledExpression nodeName = args[0];
+            boolean valueOnly = token.text.equals("result");
+            return Operand.of(ctx -> {
+                NodeResult<?> nodeResult = ctx.getNodeResult(String.valueOf(nodeName.evaluate(ctx)));
+                if (!valueOnly) {
+                    return nodeResult;
+                }
+                return nodeResult == null ? null : nodeResult.getResult();
+            });
+        }
+
+        private CompiledExpression[] arguments() {
+            expect("(");
+            List<CompiledExpression> args = new ArrayList<>();
+            if (!accept(")")) {
+                do {
+                    args.add(assignment().expression);
+                } while (accept(","));
+                expect(")");
+            }
+            return args.toArray(new CompiledExpression[0]);
+        }
+
+        private static Object[] evaluateAll(CompiledExpression[] args, DagContext ctx) {
+            Object[] values = new Object[args.length];
+            for (int i = 0; i < args.length; i++) {
+                values[i] = args[i].evaluate(ctx);
+            }
+            return values;
+        }
+
+        private Token peek() {
+            return tokens.get(index);
+        }
+
+        private Token next() {
+            Token token = tokens.get(index);
+            if (token.type != TokenType.EOF) {
+                index++;
+            }
+            return token;
+        }
+
+        private boolean accept(String operator) {
+            if (peek().is(operator)) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            if (peek().isKeyword(keyword)) {
+                index++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String operator) {
+            if (!accept(operator)) {
+                throw error("'" + operator + "' expected but was " + peek());
+            }
+        }
+
+        private Token expectIdentifier() {
+            Token token = next();
+            if (token.type != TokenType.IDENTIFIER) {
+                throw ExprException.parseError(source, token.position, "name expected but was " + token);
+            }
+            return token;
+        }
+
+        private ExprException error(String message) {
+            return ExprException.parseError(source, peek().position, message);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.gloryjie.scheduler.expr;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.core.DagEngineException;
+
+import java.util.function.Predicate;
+
+@Slf4j
+public class ExprCondition implements Predicate<DagContext> {
+
+    private final CompiledExpression compiledExpression;
+    private final String expression;
+
+
+    public ExprCondition(String expression) {
+        this.expression = expression;
+        this.compiledExpression = ExprCompiler.compile(expression);
+    }
+
+
+    @Override
+    public boolean test(DagContext dagContext) {
+        try {
+            return Operators.isTrue(compiledExpression.evaluate(dagContext));
+        } catch (Exception e) {
+            log.info("Evaluate expression: {} err, dagContext: {}", expression, dagContext);
+            throw new DagEngineException("Failed to evaluate expression: " + expression, e);
+        }
+    }
+}
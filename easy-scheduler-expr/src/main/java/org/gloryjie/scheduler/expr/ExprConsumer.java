@@ -0,0 +1,33 @@
+package org.gloryjie.scheduler.expr;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.core.DagEngineException;
+
+import java.util.function.Consumer;
+
+@Slf4j
+public class ExprConsumer implements Consumer<DagContext> {
+
+    private final CompiledExpression compiledExpression;
+    private final String expression;
+
+
+    public ExprConsumer(String expression) {
+        this.expression = expression;
+        this.compiledExpression = ExprCompiler.compile(expression);
+    }
+
+
+    @Override
+    public void accept(DagContext dagContext) {
+        try {
+            // consumer not return value
+            compiledExpression.evaluate(dagContext);
+        } catch (Exception e) {
+            log.info("Execute expression: {} err, dagContext: {}", expression, dagContext);
+            throw new DagEngineException("Failed to Execute expression: " + expression, e);
+        }
+    }
+
+}
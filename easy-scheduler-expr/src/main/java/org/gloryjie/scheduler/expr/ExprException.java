@@ -0,0 +1,19 @@
+package org.gloryjie.scheduler.expr;
+
+/**
+ * Thrown when an expression could not be parsed or evaluated.
+ */
+public class ExprException extends RuntimeException {
+
+    public ExprException(String message) {
+        super(message);
+    }
+
+    public ExprException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    static ExprException parseError(String expression, int position, String message) {
+        return new ExprException(message + " at position " + position + ": " + expression);
+    }
+}
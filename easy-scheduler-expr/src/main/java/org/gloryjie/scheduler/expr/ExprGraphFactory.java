@@ -0,0 +1,37 @@
+package org.gloryjie.scheduler.expr;
+
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.reader.AbstractGraphFactory;
+import org.gloryjie.scheduler.reader.DagGraphReader;
+
+import javax.annotation.Nullable;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * GraphFactory compiling the conditions and the actions of the graphs with {@link ExprCompiler},
+ * without the Spring dependencies of the SpEL one. Invalid expressions fail when the graph is built.
+ */
+public class ExprGraphFactory extends AbstractGraphFactory {
+
+    public ExprGraphFactory() {
+        super();
+    }
+
+    public ExprGraphFactory(DagGraphReader reader) {
+        super(reader);
+    }
+
+    @Nullable
+    @Override
+    public Predicate<DagContext> createCondition(String condition) {
+        return new ExprCondition(condition);
+    }
+
+    @Nullable
+    @Override
+    public Consumer<DagContext> createConsumer(String action) {
+        return new ExprConsumer(action);
+    }
+
+}
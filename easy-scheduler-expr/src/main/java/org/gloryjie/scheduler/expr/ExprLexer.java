@@ -0,0 +1,174 @@
+package org.gloryjie.scheduler.expr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits an expression into tokens.
+ */
+final class ExprLexer {
+
+    enum TokenType {
+        NUMBER, STRING, IDENTIFIER, VARIABLE, OPERATOR, EOF
+    }
+
+
+    static final class Token {
+
+        final TokenType type;
+
+        final String text;
+
+        final Object value;
+
+        final int position;
+
+        Token(TokenType type, String text, Object value, int position) {
+            this.type = type;
+            this.text = text;
+            this.value = value;
+            this.position = position;
+        }
+
+        boolean is(String operator) {
+            return type == TokenType.OPERATOR && text.equals(operator);
+        }
+
+        boolean isKeyword(String keyword) {
+            return type == TokenType.IDENTIFIER && text.equals(keyword);
+        }
+
+        @Override
+        public String toString() {
+            return type == TokenType.EOF ? "end of expression" : "'" + text + "'";
+        }
+    }
+
+
+    /**
+     * Longest first, so "<=" is not read as "<" and "="
+     */
+    private static final String[] OPERATORS = {
+            "?.", "==", "!=", "<=", ">=", "&&", "||",
+            "(", ")", "[", "]", ",", ".", "?", ":", "<", ">", "!", "+", "-", "*", "/", "%", "=", ";"
+    };
+
+    private final String expression;
+
+    private int pos;
+
+    ExprLexer(String expression) {
+        this.expression = expression;
+    }
+
+    List<Token> tokenize() {
+        List<Token> tokens = new ArrayList<>();
+        while (true) {
+            skipWhitespace();
+            if (pos >= expression.length()) {
+                tokens.add(new Token(TokenType.EOF, "", null, pos));
+                return tokens;
+            }
+            tokens.add(nextToken());
+        }
+    }
+
+    private Token nextToken() {
+        int start = pos;
+        char c = expression.charAt(pos);
+        if (Character.isDigit(c)) {
+            return number(start);
+        }
+        if (c == '\'' || c == '"') {
+            return string(start, c);
+        }
+        if (c == '#') {
+            pos++;
+            if (pos >= expression.length() || !Character.isJavaIdentifierStart(expression.charAt(pos))) {
+                throw ExprException.parseError(expression, start, "variable name expected");
+            }
+            String name = identifier();
+            return new Token(TokenType.VARIABLE, name, null, start);
+        }
+        if (Character.isJavaIdentifierStart(c)) {
+            return new Token(TokenType.IDENTIFIER, identifier(), null, start);
+        }
+        for (String operator : OPERATORS) {
+            if (expression.startsWith(operator, pos)) {
+                // "?." followed by a digit is the ternary operator and a number, like "a ?.5 : 1"
+                if (operator.equals("?.") && pos + 2 < expression.length()
+                        && Character.isDigit(expression.charAt(pos + 2))) {
+                    continue;
+                }
+                pos += operator.length();
+                return new Token(TokenType.OPERATOR, operator, null, start);
+            }
+        }
+        throw ExprException.parseError(expression, start, "unexpected character '" + c + "'");
+    }
+
+    private String identifier() {
+        int start = pos;
+        while (pos < expression.length() && Character.isJavaIdentifierPart(expression.charAt(pos))) {
+            pos++;
+        }
+        return expression.substring(start, pos);
+    }
+
+    private Token number(int start) {
+        while (pos < expression.length() && Character.isDigit(expression.charAt(pos))) {
+            pos++;
+        }
+        boolean decimal = false;
+        if (pos + 1 < expression.length() && expression.charAt(pos) == '.'
+                && Character.isDigit(expression.charAt(pos + 1))) {
+            decimal = true;
+            pos++;
+            while (pos < expression.length() && Character.isDigit(expression.charAt(pos))) {
+                pos++;
+            }
+        }
+        String text = expression.substring(start, pos);
+        Object value;
+        try {
+            if (pos < expression.length() && (expression.charAt(pos) == 'L' || expression.charAt(pos) == 'l')
+                    && !decimal) {
+                pos++;
+                value = Long.parseLong(text);
+            } else if (decimal) {
+                value = Double.parseDouble(text);
+            } else {
+                long longValue = Long.parseLong(text);
+                value = longValue <= Integer.MAX_VALUE ? (Object) (int) longValue : (Object) longValue;
+            }
+        } catch (NumberFormatException e) {
+            throw ExprException.parseError(expression, start, "number out of range '" + text + "'");
+        }
+        return new Token(TokenType.NUMBER, text, value, start);
+    }
+
+    private Token string(int start, char quote) {
+        pos++;
+        StringBuilder sb = new StringBuilder();
+        while (pos < expression.length()) {
+            char c = expression.charAt(pos++);
+            if (c == quote) {
+                // a doubled quote is the quote itself, like 'it''s'
+                if (pos < expression.length() && expression.charAt(pos) == quote) {
+                    sb.append(quote);
+                    pos++;
+                    continue;
+                }
+                return new Token(TokenType.STRING, expression.substring(start, pos), sb.toString(), start);
+            }
+            sb.append(c);
+        }
+        throw ExprException.parseError(expression, start, "unterminated string");
+    }
+
+    private void skipWhitespace() {
+        while (pos < expression.length() && Character.isWhitespace(expression.charAt(pos))) {
+            pos++;
+        }
+    }
+}
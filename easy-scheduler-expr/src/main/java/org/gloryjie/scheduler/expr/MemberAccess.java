@@ -0,0 +1,394 @@
+package org.gloryjie.scheduler.expr;
+
+import org.gloryjie.scheduler.api.DagContext;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads and writes the properties, calls the methods and reads the indexes of the objects.
+ * <p>
+ * Members are resolved by reflection once per class and turned into MethodHandles,
+ * every property and method of an expression caches the member of the last class it has seen,
+ * so an expression always evaluated on the same types does no lookup.
+ */
+final class MemberAccess {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final MethodHandle MAP_GET;
+
+    private static final MethodHandle MAP_PUT;
+
+    private static final MethodHandle CONTEXT_GET;
+
+    private static final MethodHandle CONTEXT_PUT;
+
+    private static final MethodHandle ARRAY_LENGTH;
+
+    private static final ClassValue<Map<String, Property>> PROPERTIES = new ClassValue<Map<String, Property>>() {
+        @Override
+        protected Map<String, Property> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    static {
+        try {
+            MAP_GET = LOOKUP.findVirtual(Map.class, "get", MethodType.methodType(Object.class, Object.class));
+            MAP_PUT = LOOKUP.findVirtual(Map.class, "put",
+                    MethodType.methodType(Object.class, Object.class, Object.class));
+            CONTEXT_GET = LOOKUP.findVirtual(DagContext.class, "get", MethodType.methodType(Object.class, String.class));
+            CONTEXT_PUT = LOOKUP.findVirtual(DagContext.class, "put",
+                    MethodType.methodType(Object.class, String.class, Object.class));
+            // MethodHandles.arrayLength is Java 9+
+            ARRAY_LENGTH = LOOKUP.findStatic(Array.class, "getLength", MethodType.methodType(int.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private MemberAccess() {
+    }
+
+
+    /**
+     * A property of an expression, like {@code name} in {@code context.name}
+     */
+    static final class PropertySite {
+
+        private final String name;
+
+        private volatile Property cached;
+
+        PropertySite(String name) {
+            this.name = name;
+        }
+
+        Object get(Object target) {
+            Property property = property(target);
+            if (property.getter == null) {
+                throw new ExprException("property " + name + " of " + target.getClass().getName() + " is not readable");
+            }
+            try {
+                return (Object) property.getter.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new ExprException("read property " + name + " failed", t);
+            }
+        }
+
+        void set(Object target, Object value) {
+            if (target instanceof DagContext) {
+                putContext((DagContext) target, name, value);
+                return;
+            }
+            Property property = property(target);
+            if (property.setter == null) {
+                throw new ExprException("property " + name + " of " + target.getClass().getName() + " is not writable");
+            }
+            Object converted = Operators.convert(value, property.valueType);
+            try {
+                property.setter.invokeExact(target, converted);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new ExprException("write property " + name + " failed", t);
+            }
+        }
+
+        private Property property(Object target) {
+            Property property = cached;
+            if (property != null && property.type == target.getClass()) {
+                return property;
+            }
+            property = PROPERTIES.get(target.getClass()).computeIfAbsent(name, n -> resolveProperty(target.getClass(), n));
+            cached = property;
+            return property;
+        }
+    }
+
+
+    /**
+     * A method call of an expression, like {@code add('Python')} in {@code list.add('Python')}
+     */
+    static final class MethodSite {
+
+        private final String name;
+
+        private final int parameterCount;
+
+        private volatile Invoker cached;
+
+        MethodSite(String name, int parameterCount) {
+            this.name = name;
+            this.parameterCount = parameterCount;
+        }
+
+        Object invoke(Object target, Object[] args) {
+            Invoker invoker = cached;
+            if (invoker == null || invoker.type != target.getClass() || !invoker.accepts(args)) {
+                invoker = resolveMethod(target.getClass(), args);
+                cached = invoker;
+            }
+            Class<?>[] parameterTypes = invoker.parameterTypes;
+            for (int i = 0; i < args.length; i++) {
+                args[i] = Operators.convert(args[i], parameterTypes[i]);
+            }
+            try {
+                return (Object) invoker.handle.invokeExact(target, args);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new ExprException("call method " + name + " failed", t);
+            }
+        }
+
+        private Invoker resolveMethod(Class<?> type, Object[] args) {
+            Method best = null;
+            int bestScore = -1;
+            for (Method method : type.getMethods()) {
+                if (!method.getName().equals(name) || method.getParameterCount() != parameterCount
+                        || Modifier.isStatic(method.getModifiers()) || method.isBridge()) {
+                    continue;
+                }
+                int score = matchScore(method.getParameterTypes(), args);
+                if (score > bestScore) {
+                    best = method;
+                    bestScore = score;
+                }
+            }
+            if (best == null) {
+                throw new ExprException("method " + name + " with " + parameterCount + " parameters not found in "
+                        + type.getName());
+            }
+            Method method = accessibleMethod(best);
+            try {
+                MethodHandle handle = LOOKUP.unreflect(method)
+                        .asSpreader(Object[].class, parameterCount)
+                        .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+                return new Invoker(type, method.getParameterTypes(), handle);
+            } catch (IllegalAccessException e) {
+                throw new ExprException("method " + name + " of " + type.getName() + " is not accessible", e);
+            }
+        }
+
+        /**
+         * -1 if the arguments could not be passed, otherwise the number of arguments of the exact types
+         */
+        private static int matchScore(Class<?>[] parameterTypes, Object[] args) {
+            int score = 0;
+            for (int i = 0; i < parameterTypes.length; i++) {
+                if (!Operators.isAssignable(args[i], parameterTypes[i])) {
+                    return -1;
+                }
+                if (args[i] != null && parameterTypes[i].isInstance(args[i])) {
+                    score++;
+                }
+            }
+            return score;
+        }
+    }
+
+
+    static Object getIndex(Object target, Object index) {
+        if (target instanceof Map) {
+            return ((Map<?, ?>) target).get(index);
+        }
+        if (target instanceof List) {
+            return ((List<?>) target).get(toIndex(index));
+        }
+        if (target.getClass().isArray()) {
+            return Array.get(target, toIndex(index));
+        }
+        if (target instanceof DagContext && index instanceof String) {
+            return ((DagContext) target).get((String) index);
+        }
+        throw new ExprException("could not index " + target.getClass().getName());
+    }
+
+    @SuppressWarnings("unchecked")
+    static void setIndex(Object target, Object index, Object value) {
+        if (target instanceof Map) {
+            ((Map<Object, Object>) target).put(index, value);
+        } else if (target instanceof List) {
+            ((List<Object>) target).set(toIndex(index), value);
+        } else if (target.getClass().isArray()) {
+            Array.set(target, toIndex(index), Operators.convert(value, target.getClass().getComponentType()));
+        } else if (target instanceof DagContext && index instanceof String) {
+            putContext((DagContext) target, (String) index, value);
+        } else {
+            throw new ExprException("could not index " + target.getClass().getName());
+        }
+    }
+
+    /**
+     * DagContext does not accept null, a null value removes the key
+     */
+    static void putContext(DagContext dagContext, String key, Object value) {
+        if (value == null) {
+            dagContext.remove(key);
+        } else {
+            dagContext.put(key, value);
+        }
+    }
+
+    private static int toIndex(Object index) {
+        if (!(index instanceof Integer || index instanceof Long || index instanceof Short || index instanceof Byte)) {
+            throw new ExprException("integer index expected: " + index);
+        }
+        return ((Number) index).intValue();
+    }
+
+
+    private static final class Property {
+
+        final Class<?> type;
+
+        final MethodHandle getter;
+
+        final MethodHandle setter;
+
+        final Class<?> valueType;
+
+        Property(Class<?> type, MethodHandle getter, MethodHandle setter, Class<?> valueType) {
+            this.type = type;
+            this.getter = getter == null ? null : getter.asType(GETTER_TYPE);
+            this.setter = setter == null ? null : setter.asType(SETTER_TYPE);
+            this.valueType = valueType;
+        }
+    }
+
+
+    private static final class Invoker {
+
+        final Class<?> type;
+
+        final Class<?>[] parameterTypes;
+
+        final MethodHandle handle;
+
+        Invoker(Class<?> type, Class<?>[] parameterTypes, MethodHandle handle) {
+            this.type = type;
+            this.parameterTypes = parameterTypes;
+            this.handle = handle;
+        }
+
+        boolean accepts(Object[] args) {
+            for (int i = 0; i < args.length; i++) {
+                if (!Operators.isAssignable(args[i], parameterTypes[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+
+    private static Property resolveProperty(Class<?> type, String name) {
+        if (DagContext.class.isAssignableFrom(type)) {
+            return new Property(type, MethodHandles.insertArguments(CONTEXT_GET, 1, name),
+                    MethodHandles.insertArguments(CONTEXT_PUT, 1, name), Object.class);
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return new Property(type, MethodHandles.insertArguments(MAP_GET, 1, name),
+                    MethodHandles.insertArguments(MAP_PUT, 1, name), Object.class);
+        }
+        try {
+            if (type.isArray() && name.equals("length")) {
+                return new Property(type, ARRAY_LENGTH.asType(MethodType.methodType(int.class, type)), null, int.class);
+            }
+            String suffix = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            MethodHandle getter = null;
+            MethodHandle setter = null;
+            Class<?> valueType = null;
+            Method getMethod = findMethod(type, "get" + suffix, 0);
+            if (getMethod == null) {
+                getMethod = findMethod(type, "is" + suffix, 0);
+                if (getMethod != null && getMethod.getReturnType() != boolean.class) {
+                    getMethod = null;
+                }
+            }
+            if (getMethod != null) {
+                getter = LOOKUP.unreflect(getMethod);
+                valueType = getMethod.getReturnType();
+            }
+            Method setMethod = findMethod(type, "set" + suffix, 1);
+            if (setMethod != null && (valueType == null || setMethod.getParameterTypes()[0] == valueType)) {
+                setter = LOOKUP.unreflect(setMethod);
+                valueType = setMethod.getParameterTypes()[0];
+            }
+            if (getter == null && setter == null) {
+                Field field = type.getField(name);
+                if (Modifier.isStatic(field.getModifiers()) || !Modifier.isPublic(field.getDeclaringClass().getModifiers())) {
+                    throw new NoSuchFieldException(name);
+                }
+                getter = LOOKUP.unreflectGetter(field);
+                setter = Modifier.isFinal(field.getModifiers()) ? null : LOOKUP.unreflectSetter(field);
+                valueType = field.getType();
+            }
+            return new Property(type, getter, setter, valueType);
+        } catch (NoSuchFieldException e) {
+            throw new ExprException("property " + name + " not found in " + type.getName());
+        } catch (IllegalAccessException e) {
+            throw new ExprException("property " + name + " of " + type.getName() + " is not accessible", e);
+        }
+    }
+
+    private static Method findMethod(Class<?> type, String name, int parameterCount) {
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(name) && method.getParameterCount() == parameterCount
+                    && !Modifier.isStatic(method.getModifiers()) && !method.isBridge()) {
+                return accessibleMethod(method);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A public method of a non-public class, like the methods of Collections.unmodifiableList(),
+     * could only be called through the public class or interface declaring it.
+     */
+    private static Method accessibleMethod(Method method) {
+        if (Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+            return method;
+        }
+        Method found = findPublicDeclaration(method.getDeclaringClass(), method);
+        return found != null ? found : method;
+    }
+
+    private static Method findPublicDeclaration(Class<?> type, Method method) {
+        for (Class<?> interfaceType : type.getInterfaces()) {
+            Method found = declaredIn(interfaceType, method);
+            if (found != null) {
+                return found;
+            }
+        }
+        Class<?> superclass = type.getSuperclass();
+        return superclass == null ? null : declaredIn(superclass, method);
+    }
+
+    private static Method declaredIn(Class<?> type, Method method) {
+        if (Modifier.isPublic(type.getModifiers())) {
+            try {
+                return type.getMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+        return findPublicDeclaration(type, method);
+    }
+}
@@ -0,0 +1,241 @@
+package org.gloryjie.scheduler.expr;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Objects;
+
+/**
+ * Semantics of the operators.
+ * <p>
+ * Numbers of different types are compared and computed after promotion, like Java:
+ * int and smaller types give an int, long gives a long, float and double give a double.
+ * {@code null} is false in boolean operators and less than any other value, like SpEL.
+ */
+final class Operators {
+
+    private Operators() {
+    }
+
+    static boolean isTrue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new ExprException("boolean expected but was " + value.getClass().getName() + ": " + value);
+    }
+
+    static boolean isEqual(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return compareNumbers((Number) left, (Number) right) == 0;
+        }
+        if (left instanceof Character && right instanceof String || left instanceof String && right instanceof Character) {
+            return left.toString().equals(right.toString());
+        }
+        return Objects.equals(left, right);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static int compare(Object left, Object right) {
+        if (left instanceof Number && right instanceof Number) {
+            return compareNumbers((Number) left, (Number) right);
+        }
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : -1) : 1;
+        }
+        if (left instanceof Comparable && left.getClass().isInstance(right)) {
+            return ((Comparable) left).compareTo(right);
+        }
+        throw new ExprException("could not compare " + left.getClass().getName() + " with " + right.getClass().getName());
+    }
+
+    static Object add(Object left, Object right) {
+        if (left instanceof String || right instanceof String) {
+            return String.valueOf(left) + right;
+        }
+        switch (numberKind(left, right, "+")) {
+            case INT:
+                return ((Number) left).intValue() + ((Number) right).intValue();
+            case LONG:
+                return ((Number) left).longValue() + ((Number) right).longValue();
+            default:
+                return ((Number) left).doubleValue() + ((Number) right).doubleValue();
+        }
+    }
+
+    static Object subtract(Object left, Object right) {
+        switch (numberKind(left, right, "-")) {
+            case INT:
+                return ((Number) left).intValue() - ((Number) right).intValue();
+            case LONG:
+                return ((Number) left).longValue() - ((Number) right).longValue();
+            default:
+                return ((Number) left).doubleValue() - ((Number) right).doubleValue();
+        }
+    }
+
+    static Object multiply(Object left, Object right) {
+        switch (numberKind(left, right, "*")) {
+            case INT:
+                return ((Number) left).intValue() * ((Number) right).intValue();
+            case LONG:
+                return ((Number) left).longValue() * ((Number) right).longValue();
+            default:
+                return ((Number) left).doubleValue() * ((Number) right).doubleValue();
+        }
+    }
+
+    static Object divide(Object left, Object right) {
+        try {
+            switch (numberKind(left, right, "/")) {
+                case INT:
+                    return ((Number) left).intValue() / ((Number) right).intValue();
+                case LONG:
+                    return ((Number) left).longValue() / ((Number) right).longValue();
+                default:
+                    return ((Number) left).doubleValue() / ((Number) right).doubleValue();
+            }
+        } catch (ArithmeticException e) {
+            throw new ExprException("operator / failed: " + left + " / " + right, e);
+        }
+    }
+
+    static Object remainder(Object left, Object right) {
+        try {
+            switch (numberKind(left, right, "%")) {
+                case INT:
+                    return ((Number) left).intValue() % ((Number) right).intValue();
+                case LONG:
+                    return ((Number) left).longValue() % ((Number) right).longValue();
+                default:
+                    return ((Number) left).doubleValue() % ((Number) right).doubleValue();
+            }
+        } catch (ArithmeticException e) {
+            throw new ExprException("operator % failed: " + left + " % " + right, e);
+        }
+    }
+
+    static Object negate(Object value) {
+        switch (numberKind(value, 0, "-")) {
+            case INT:
+                return -((Number) value).intValue();
+            case LONG:
+                return -((Number) value).longValue();
+            default:
+                return -((Number) value).doubleValue();
+        }
+    }
+
+    /**
+     * Converts a value to the type of a parameter or a property, only numbers are converted.
+     */
+    static Object convert(Object value, Class<?> type) {
+        if (value == null) {
+            if (type.isPrimitive()) {
+                throw new ExprException("could not assign null to " + type.getName());
+            }
+            return null;
+        }
+        if (!(value instanceof Number) || type.isInstance(value)) {
+            return value;
+        }
+        Number number = (Number) value;
+        if (type == int.class || type == Integer.class) {
+            return number.intValue();
+        }
+        if (type == long.class || type == Long.class) {
+            return number.longValue();
+        }
+        if (type == double.class || type == Double.class) {
+            return number.doubleValue();
+        }
+        if (type == float.class || type == Float.class) {
+            return number.floatValue();
+        }
+        if (type == short.class || type == Short.class) {
+            return number.shortValue();
+        }
+        if (type == byte.class || type == Byte.class) {
+            return number.byteValue();
+        }
+        return value;
+    }
+
+    /**
+     * Returns true if the value can be passed as a parameter of the type, maybe after {@link #convert}.
+     */
+    static boolean isAssignable(Object value, Class<?> type) {
+        if (value == null) {
+            return !type.isPrimitive();
+        }
+        if (type.isInstance(value)) {
+            return true;
+        }
+        Class<?> boxed = box(type);
+        if (boxed.isInstance(value)) {
+            return true;
+        }
+        return value instanceof Number && Number.class.isAssignableFrom(boxed);
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == float.class) {
+            return Float.class;
+        }
+        if (type == char.class) {
+            return Character.class;
+        }
+        if (type == short.class) {
+            return Short.class;
+        }
+        if (type == byte.class) {
+            return Byte.class;
+        }
+        return Void.class;
+    }
+
+    private static int compareNumbers(Number left, Number right) {
+        if (left instanceof BigDecimal || right instanceof BigDecimal
+                || left instanceof BigInteger || right instanceof BigInteger) {
+            return new BigDecimal(left.toString()).compareTo(new BigDecimal(right.toString()));
+        }
+        if (isIntegral(left) && isIntegral(right)) {
+            return Long.compare(left.longValue(), right.longValue());
+        }
+        return Double.compare(left.doubleValue(), right.doubleValue());
+    }
+
+    private enum NumberKind {
+        INT, LONG, DOUBLE
+    }
+
+    private static NumberKind numberKind(Object left, Object right, String operator) {
+        if (!(left instanceof Number) || !(right instanceof Number)) {
+            throw new ExprException("operator " + operator + " needs numbers: " + left + ", " + right);
+        }
+        if (left instanceof Long || right instanceof Long) {
+            return isIntegral(left) && isIntegral(right) ? NumberKind.LONG : NumberKind.DOUBLE;
+        }
+        return isIntegral(left) && isIntegral(right) ? NumberKind.INT : NumberKind.DOUBLE;
+    }
+
+    private static boolean isIntegral(Object value) {
+        return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+    }
+}
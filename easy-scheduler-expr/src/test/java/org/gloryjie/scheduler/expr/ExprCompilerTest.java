@@ -0,0 +1,105 @@
+package org.gloryjie.scheduler.expr;
+
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.core.MapDagContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExprCompilerTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "1 + 2 * 3 == 7",
+            "(1 + 2) * 3 == 9",
+            "7 / 2 == 3 && 7 % 2 == 1 && 7.0 / 2 == 3.5",
+            "2L * 3 == 6 && -2 < 1",
+            "'a' + 1 == 'a1'",
+            "!(1 > 2) and not false or false",
+            "null == null && null != 1",
+            "(1 > 2 ? 'x' : 'y') == 'y'",
+            "(null ?: 'fallback') == 'fallback'",
+            "#{ 1 == 1 }",
+    })
+    public void literalTest(String expression) {
+        assertEquals(Boolean.TRUE, ExprCompiler.compile(expression).evaluate(new MapDagContext(null)));
+    }
+
+    @Test
+    public void stringLiteralTest() {
+        assertEquals("it's", ExprCompiler.compile("'it''s'").evaluate(null));
+        assertEquals("it's", ExprCompiler.compile("\"it's\"").evaluate(null));
+        assertEquals(Boolean.TRUE, ExprCompiler.compile("null < 1 && !(null > 1)").evaluate(null));
+    }
+
+    @Test
+    public void contextAccessTest() {
+        OrderContext order = new OrderContext();
+        order.setUid(7);
+        order.setItems(new ArrayList<>(Arrays.asList("apple", "pear")));
+        DagContext dagContext = new MapDagContext(order);
+        Map<String, Object> prices = new HashMap<>();
+        prices.put("apple", 3);
+        dagContext.put("prices", prices);
+        dagContext.put("limit", 10L);
+
+        assertEquals(7, eval("context.uid", dagContext));
+        assertEquals(2, eval("context.items.size()", dagContext));
+        assertEquals("pear", eval("context.items[1]", dagContext));
+        assertEquals(3, eval("#prices['apple']", dagContext));
+        assertEquals(3, eval("prices.apple", dagContext));
+        assertEquals(Boolean.TRUE, eval("context.uid < #limit", dagContext));
+        assertSame(dagContext, eval("#root", dagContext));
+
+        // null-safe navigation
+        assertNull(eval("#missing?.name", dagContext));
+        assertNull(eval("#missing?.name?.length()", dagContext));
+        assertThrows(ExprException.class, () -> eval("#missing.name", dagContext));
+        assertNull(eval("result('A')", dagContext));
+    }
+
+    @Test
+    public void assignmentTest() {
+        OrderContext order = new OrderContext();
+        order.setItems(new ArrayList<>(Collections.singletonList("apple")));
+        DagContext dagContext = new MapDagContext(order);
+
+        // numbers are converted to the type of the property
+        eval("context.total = 5; context.uid = context.total + 1L; context.paid = true", dagContext);
+        assertEquals(5, order.getTotal());
+        assertEquals(6, order.getUid());
+        assertTrue(order.isPaid());
+
+        eval("#{ #count = context.items.size() } #{ context.items[0] = 'pear' } #{ put('key', 'value') }", dagContext);
+        assertEquals(1, dagContext.get("count"));
+        assertEquals("pear", order.getItems().get(0));
+        assertEquals("value", dagContext.get("key"));
+
+        // read only list, the method is called through the public interface
+        dagContext.put("list", Collections.unmodifiableList(Arrays.asList(1, 2)));
+        assertEquals(2, eval("#list.size()", dagContext));
+    }
+
+    @Test
+    public void invalidExpressionTest() {
+        for (String expression : Arrays.asList("", "1 +", "(1", "'open", "1 = 2", "a b", "#{ 1 } text", "#{ 1",
+                "99999999999999999999", "1 + 99999999999999999999L")) {
+            assertThrows(ExprException.class, () -> ExprCompiler.compile(expression), expression);
+        }
+        DagContext dagContext = new MapDagContext(new OrderContext());
+        assertThrows(ExprException.class, () -> eval("context.unknown", dagContext));
+        assertThrows(ExprException.class, () -> eval("1 && true", dagContext));
+        assertThrows(ExprException.class, () -> eval("'a' < 1", dagContext));
+        // constants failing on evaluation are not folded
+        assertThrows(ExprException.class, () -> eval("1 / 0", dagContext));
+        assertThrows(ExprException.class, () -> eval("5L % 0", dagContext));
+    }
+
+    private static Object eval(String expression, DagContext dagContext) {
+        return ExprCompiler.compile(expression).evaluate(dagContext);
+    }
+}
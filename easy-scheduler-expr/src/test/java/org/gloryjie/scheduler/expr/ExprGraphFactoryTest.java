@@ -0,0 +1,65 @@
+package org.gloryjie.scheduler.expr;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.io.FileUtils;
+import org.gloryjie.scheduler.api.*;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.DefaultNodeHandler;
+import org.gloryjie.scheduler.core.SingleExcutorSelector;
+import org.gloryjie.scheduler.reader.config.DagGraphConfigType;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExprGraphFactoryTest {
+
+    private static final DagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(2));
+
+    @Test
+    public void createExprGraphTest() throws Exception {
+        DagGraph dagGraph = createGraph();
+
+        OrderContext orderContext = new OrderContext();
+        orderContext.setUid(7);
+        DagResult dagResult = dagEngine.fire(dagGraph, orderContext);
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+
+        assertEquals(20, orderContext.getTotal());
+        assertEquals(Lists.newArrayList("apple", "pear", "done"), orderContext.getItems());
+    }
+
+    @Test
+    public void conditionNotMatchTest() throws Exception {
+        DagGraph dagGraph = createGraph();
+
+        // node A is skipped, so are the conditions reading its result
+        OrderContext orderContext = new OrderContext();
+        DagResult dagResult = dagEngine.fire(dagGraph, orderContext);
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        assertNull(orderContext.getItems());
+        assertEquals(0, orderContext.getTotal());
+    }
+
+    @Test
+    public void invalidExpressionTest() {
+        ExprGraphFactory factory = new ExprGraphFactory();
+        // invalid expressions fail when the graph is built, not when it runs
+        assertThrows(ExprException.class, () -> factory.createCondition("#{ context.uid > }"));
+        assertThrows(ExprException.class, () -> factory.createConsumer("#{ 1 = 2 }"));
+    }
+
+    private static DagGraph createGraph() throws Exception {
+        ExprGraphFactory factory = new ExprGraphFactory();
+        factory.registerHandler(DefaultNodeHandler.builder().handlerName("loadItemsHandler")
+                .action((dagNode, dagContext) -> Lists.newArrayList("apple", "pear")).build());
+        File file = new File("src/test/resources/graph.json");
+        String cnt = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+        List<DagGraph> graphList = factory.createConfigGraph(DagGraphConfigType.JSON, cnt);
+        assertEquals(1, graphList.size());
+        return graphList.get(0);
+    }
+}
@@ -0,0 +1,18 @@
+package org.gloryjie.scheduler.expr;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class OrderContext {
+
+    private Integer uid;
+
+    private List<String> items;
+
+    private long total;
+
+    private boolean paid;
+
+}
@@ -4,7 +4,6 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
-import org.apache.commons.lang3.reflect.MethodUtils;
 import org.gloryjie.scheduler.api.DagContext;
 import org.gloryjie.scheduler.api.DagGraph;
 import org.gloryjie.scheduler.api.DagNode;
@@ -91,7 +90,7 @@ public abstract class AbstractGraphFactory implements DagGraphFactory {
                             + definition.getInitMethod() + "]");
                 }
                 try {
-                    MethodUtils.invokeMethod(context, initMethod);
+                    MethodInvoker.invoke(context, initMethod);
                 } catch (Exception e) {
                     throw new DagEngineException("Failed to execute init method["
                             + definition.getInitMethod() + "]", e);
@@ -108,7 +107,7 @@ public abstract class AbstractGraphFactory implements DagGraphFactory {
                             + definition.getInitMethod() + "]");
                 }
                 try {
-                    MethodUtils.invokeMethod(context, method);
+                    MethodInvoker.invoke(context, method);
                 } catch (Exception e) {
                     throw new DagEngineException("Failed to execute end method["
                             + definition.getInitMethod() + "]", e);
@@ -0,0 +1,160 @@
+package org.gloryjie.scheduler.reader;
+
+import org.apache.commons.lang3.reflect.MethodUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Invokes a method through a MethodHandle resolved once, instead of looking the method up by reflection
+ * on every invocation.
+ * <p>
+ * The methods called by name on the user context, like the param converters, the return converters,
+ * the init methods and the end methods, are resolved once per context class by {@link #find(Class, String, int)}.
+ * The exceptions thrown by the method are rethrown as they are, not wrapped in an InvocationTargetException.
+ */
+public final class MethodInvoker {
+
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    private static final MethodInvoker OVERLOADED = new MethodInvoker(null, null);
+
+    /**
+     * Class -> method name -> invoker, per parameter count, {@link #OVERLOADED} if it could not be chosen by name
+     */
+    private static final ClassValue<Map<String, MethodInvoker>> NO_ARG_METHODS = methodCache();
+
+    private static final ClassValue<Map<String, MethodInvoker>> ONE_ARG_METHODS = methodCache();
+
+    private final Method method;
+
+    private final MethodHandle handle;
+
+    private MethodInvoker(Method method, MethodHandle handle) {
+        this.method = method;
+        this.handle = handle;
+    }
+
+    /**
+     * Creates the invoker of a method.
+     *
+     * @param method the method, it is made accessible if it is not a public method of a public class
+     * @return the invoker
+     * @throws IllegalArgumentException if the method could not be accessed
+     */
+    public static MethodInvoker of(Method method) {
+        try {
+            if (!Modifier.isPublic(method.getModifiers())
+                    || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+                method.setAccessible(true);
+            }
+            MethodHandle handle = MethodHandles.lookup().unreflect(method)
+                    .asSpreader(Object[].class, method.getParameterCount());
+            if (Modifier.isStatic(method.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return new MethodInvoker(method, handle.asType(INVOKER_TYPE));
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("could not access method: " + method, e);
+        }
+    }
+
+    /**
+     * Finds the public method of a class by name and parameter count, the result is cached per class.
+     *
+     * @param type           the class
+     * @param methodName     the method name
+     * @param parameterCount 0 or 1
+     * @return the invoker, or null if there are several methods of the name and count
+     * @throws NoSuchMethodException if there is no such method
+     */
+    public static MethodInvoker find(Class<?> type, String methodName, int parameterCount) throws NoSuchMethodException {
+        if (parameterCount != 0 && parameterCount != 1) {
+            throw new IllegalArgumentException("parameterCount must be 0 or 1: " + parameterCount);
+        }
+        Map<String, MethodInvoker> methods = (parameterCount == 0 ? NO_ARG_METHODS : ONE_ARG_METHODS).get(type);
+        MethodInvoker invoker = methods.get(methodName);
+        if (invoker == null) {
+            invoker = resolve(type, methodName, parameterCount);
+            methods.put(methodName, invoker);
+        }
+        return invoker == OVERLOADED ? null : invoker;
+    }
+
+    /**
+     * Invokes a method of the target by name, through the cached invoker if the method is not overloaded.
+     *
+     * @param target     the target
+     * @param methodName the method name
+     * @param args       no argument or one argument
+     * @return the result of the method
+     * @throws Exception the exception thrown by the method, or NoSuchMethodException
+     */
+    public static Object invoke(Object target, String methodName, Object... args) throws Exception {
+        MethodInvoker invoker = find(target.getClass(), methodName, args.length);
+        if (invoker != null) {
+            return invoker.invoke(target, args);
+        }
+        // overloaded, chosen by the types of the arguments like before
+        return MethodUtils.invokeMethod(target, methodName, args);
+    }
+
+    /**
+     * Invokes the method.
+     *
+     * @param target the target, ignored if the method is static
+     * @param args   the arguments
+     * @return the result of the method, null if it returns void
+     * @throws Exception the exception thrown by the method
+     */
+    public Object invoke(Object target, Object... args) throws Exception {
+        try {
+            return (Object) handle.invokeExact(target, args);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    public Method getMethod() {
+        return method;
+    }
+
+    private static MethodInvoker resolve(Class<?> type, String methodName, int parameterCount)
+            throws NoSuchMethodException {
+        Method found = null;
+        for (Method method : type.getMethods()) {
+            if (method.getName().equals(methodName) && method.getParameterCount() == parameterCount
+                    && !method.isBridge()) {
+                if (found != null) {
+                    return OVERLOADED;
+                }
+                found = method;
+            }
+        }
+        // a public method declared by a non-public class, like the JDK implementation classes,
+        // is called through the public interface or superclass declaring it
+        Method accessible = found == null ? null : MethodUtils.getAccessibleMethod(found);
+        if (accessible == null) {
+            throw new NoSuchMethodException("No such accessible method: " + methodName + "() on object: "
+                    + type.getName());
+        }
+        return of(accessible);
+    }
+
+    private static ClassValue<Map<String, MethodInvoker>> methodCache() {
+        return new ClassValue<Map<String, MethodInvoker>>() {
+            @Override
+            protected Map<String, MethodInvoker> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+    }
+}
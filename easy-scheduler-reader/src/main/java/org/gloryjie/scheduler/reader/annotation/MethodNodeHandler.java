@@ -12,4 +12,21 @@ public @interface MethodNodeHandler {
 
     long timeout() default 0;
 
+    /**
+     * TTL in milliseconds of the cached results, the results of equal method arguments are shared by all the runs.
+     * 0 disables the cache.
+     */
+    long cacheTtl() default 0;
+
+    /**
+     * Max number of cached results, the least recently used ones are evicted first
+     */
+    long cacheMaxSize() default 1024;
+
+    /**
+     * Whether the nodes of a dag run calling the method with equal arguments share one invocation,
+     * only enable it for methods without side effects
+     */
+    boolean shareInRun() default false;
+
 }
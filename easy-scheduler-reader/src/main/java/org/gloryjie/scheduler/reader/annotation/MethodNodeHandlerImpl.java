@@ -3,20 +3,43 @@ package org.gloryjie.scheduler.reader.annotation;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.reflect.FieldUtils;
-import org.apache.commons.lang3.reflect.MethodUtils;
 import org.gloryjie.scheduler.api.DagContext;
 import org.gloryjie.scheduler.api.DagNode;
 import org.gloryjie.scheduler.api.NodeHandler;
 import org.gloryjie.scheduler.core.DagEngineException;
+import org.gloryjie.scheduler.core.cache.CacheKey;
+import org.gloryjie.scheduler.core.cache.NodeResultCache;
 import org.gloryjie.scheduler.reader.AbstractGraphFactory;
 import org.gloryjie.scheduler.reader.DagNodeDefinition;
+import org.gloryjie.scheduler.reader.MethodInvoker;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class MethodNodeHandlerImpl implements NodeHandler<Object> {
 
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * Class -> field name -> getter of the field, empty if the class has no such field
+     */
+    private static final ClassValue<Map<String, Optional<MethodHandle>>> FIELD_GETTERS =
+            new ClassValue<Map<String, Optional<MethodHandle>>>() {
+                @Override
+                protected Map<String, Optional<MethodHandle>> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
 
     private final Object bean;
 
@@ -24,11 +47,45 @@ public class MethodNodeHandlerImpl implements NodeHandler<Object> {
 
     private final MethodNodeHandler annotation;
 
+    private final MethodInvoker invoker;
+
+    /**
+     * Where the arguments are read from, resolved once from the parameters of the method
+     */
+    private final ParamBinding[] paramBindings;
+
+    /**
+     * Cache of the method results, null if the cache is disabled
+     */
+    private final NodeResultCache cache;
+
 
     public MethodNodeHandlerImpl(Object bean, Method method, MethodNodeHandler annotation) {
         this.bean = bean;
         this.method = method;
         this.annotation = annotation;
+        this.invoker = MethodInvoker.of(method);
+        this.paramBindings = paramBindings(method);
+        this.cache = annotation.cacheTtl() > 0 ? NodeResultCache.builder()
+                .expireAfterWrite(annotation.cacheTtl(), TimeUnit.MILLISECONDS)
+                .maximumSize(annotation.cacheMaxSize())
+                .build() : null;
+    }
+
+
+    /**
+     * Creates the handler of the annotated method.
+     *
+     * @param bean       the bean of the method
+     * @param method     the method
+     * @param annotation the annotation of the method
+     * @return a {@link RunSharedMethodNodeHandler} if the invocations are shared in a run, or a MethodNodeHandlerImpl
+     */
+    public static MethodNodeHandlerImpl of(Object bean, Method method, MethodNodeHandler annotation) {
+        if (annotation.shareInRun()) {
+            return new RunSharedMethodNodeHandler(bean, method, annotation);
+        }
+        return new MethodNodeHandlerImpl(bean, method, annotation);
     }
 
 
@@ -39,58 +96,79 @@ public class MethodNodeHandlerImpl implements NodeHandler<Object> {
 
 
     @Override
-    public Object execute(DagNode dagNode, DagContext dagContext) {
-
-        Object[] methodArg = null;
+    public Object execute(DagNode<Object> dagNode, DagContext dagContext) {
+        Object[] methodArg = resolveMethodArg(dagNode, dagContext);
 
         try {
-            methodArg = readMethodArg(dagNode, dagContext);
+            Object invokeResult = invokeMethod(methodArg);
+            return converterInvokeResult(dagNode, dagContext, invokeResult);
         } catch (Exception e) {
-            String msg = String.format("NodeHandler[%s] failed to read method[%s] args", handlerName(), method.getName());
-            throw new DagEngineException(msg, e);
+            throw invokeFailed(e);
         }
+    }
 
+    @Override
+    public Long timeout() {
+        return annotation.timeout();
+    }
+
+    /**
+     * Returns the cache of the method results.
+     *
+     * @return the cache, or null if the cache is disabled
+     */
+    public NodeResultCache getCache() {
+        return cache;
+    }
+
+
+    protected Object[] resolveMethodArg(DagNode dagNode, DagContext dagContext) {
         try {
-            Object invokeResult = MethodUtils.invokeMethod(bean, method.getName(), methodArg);
-            return converterInvokeResult(dagNode, dagContext, invokeResult);
+            return readMethodArg(dagNode, dagContext);
         } catch (Exception e) {
-            String msg = String.format("Failed to invoke method: %s", method.getName());
+            String msg = String.format("NodeHandler[%s] failed to read method[%s] args", handlerName(), method.getName());
             throw new DagEngineException(msg, e);
         }
     }
 
-    @Override
-    public Long timeout() {
-        return annotation.timeout();
+    protected DagEngineException invokeFailed(Exception e) {
+        String msg = String.format("Failed to invoke method: %s", method.getName());
+        return new DagEngineException(msg, e);
+    }
+
+    protected Object invokeMethod(Object[] methodArg) throws Exception {
+        if (cache == null) {
+            return invoker.invoke(bean, methodArg);
+        }
+        return cache.get(CacheKey.of(handlerName(), methodArg), () -> invoker.invoke(bean, methodArg));
     }
 
 
-    private Object converterInvokeResult(DagNode dagNode, DagContext dagContext, Object result) throws Exception {
+    protected Object converterInvokeResult(DagNode dagNode, DagContext dagContext, Object result) throws Exception {
         Object value = dagNode.getAttribute(AbstractGraphFactory.NODE_DEFINITION_ATTRIBUTE);
         Object context = dagContext.getContext();
         if (value instanceof DagNodeDefinition && context != null) {
             DagNodeDefinition nodeDefinition = ((DagNodeDefinition) value);
             if (StringUtils.isNotEmpty(nodeDefinition.getRetConverter())) {
                 String retConverterMethod = nodeDefinition.getRetConverter();
-                return MethodUtils.invokeMethod(context, retConverterMethod, result);
+                return MethodInvoker.invoke(context, retConverterMethod, result);
             }
         }
         return result;
     }
 
     private Object[] readMethodArg(DagNode dagNode, DagContext dagContext) throws Exception {
-        Parameter[] parameters = method.getParameters();
-        if (parameters == null || parameters.length == 0) {
+        if (paramBindings.length == 0) {
             return ArrayUtils.EMPTY_OBJECT_ARRAY;
         }
 
-        Object[] args = new Object[parameters.length];
+        Object[] args = new Object[paramBindings.length];
         Object value = dagNode.getAttribute(AbstractGraphFactory.NODE_DEFINITION_ATTRIBUTE);
         Object context = dagContext.getContext();
         if (value instanceof DagNodeDefinition && context != null) {
             DagNodeDefinition nodeDefinition = ((DagNodeDefinition) value);
             if (StringUtils.isNotEmpty(nodeDefinition.getParamConverter())) {
-                Object paramConverterResult = MethodUtils.invokeMethod(context, nodeDefinition.getParamConverter());
+                Object paramConverterResult = MethodInvoker.invoke(context, nodeDefinition.getParamConverter());
                 if (paramConverterResult instanceof Object[]) {
                     args = (Object[]) paramConverterResult;
                 } else {
@@ -103,19 +181,11 @@ public class MethodNodeHandlerImpl implements NodeHandler<Object> {
         }
 
         // If no param converter is specified, read arguments from ContextParam annotation or parameter name
-        for (int i = 0; i < parameters.length; i++) {
-            Parameter parameter = parameters[i];
-            ContextParam contextParam = parameter.getAnnotation(ContextParam.class);
-            Object arg = null;
-
-            if (contextParam != null) {
-                String paramName = contextParam.value();
-                arg = readValueByName(paramName, dagContext);
-                if (arg == null && contextParam.required()) {
-                    throw new DagEngineException(String.format("could not get param[%s] from context", paramName));
-                }
-            } else {
-                arg = readValueByName(parameter.getName(), dagContext);
+        for (int i = 0; i < paramBindings.length; i++) {
+            ParamBinding binding = paramBindings[i];
+            Object arg = readValueByName(binding.name, dagContext);
+            if (arg == null && binding.required) {
+                throw new DagEngineException(String.format("could not get param[%s] from context", binding.name));
             }
             args[i] = arg;
         }
@@ -130,9 +200,9 @@ public class MethodNodeHandlerImpl implements NodeHandler<Object> {
 
         // read from user context first
         if (userContext != null) {
-            Field field = FieldUtils.getField(userContext.getClass(), name, true);
-            if (field != null) {
-                value = FieldUtils.readField(field, userContext, true);
+            Optional<MethodHandle> getter = fieldGetter(userContext.getClass(), name);
+            if (getter.isPresent()) {
+                value = readField(getter.get(), userContext);
             }
         }
 
@@ -144,5 +214,61 @@ public class MethodNodeHandlerImpl implements NodeHandler<Object> {
         return value;
     }
 
+    private static Object readField(MethodHandle getter, Object target) throws Exception {
+        try {
+            return (Object) getter.invokeExact(target);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new UndeclaredThrowableException(t);
+        }
+    }
+
+    private static Optional<MethodHandle> fieldGetter(Class<?> type, String name) {
+        Map<String, Optional<MethodHandle>> getters = FIELD_GETTERS.get(type);
+        Optional<MethodHandle> getter = getters.get(name);
+        if (getter == null) {
+            getter = Optional.ofNullable(FieldUtils.getField(type, name, true)).map(MethodNodeHandlerImpl::getterOf);
+            getters.put(name, getter);
+        }
+        return getter;
+    }
+
+    private static MethodHandle getterOf(Field field) {
+        try {
+            MethodHandle getter = MethodHandles.lookup().unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                getter = MethodHandles.dropArguments(getter, 0, Object.class);
+            }
+            return getter.asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            throw new DagEngineException("could not access field: " + field, e);
+        }
+    }
+
+    private static ParamBinding[] paramBindings(Method method) {
+        Parameter[] parameters = method.getParameters();
+        ParamBinding[] bindings = new ParamBinding[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            ContextParam contextParam = parameters[i].getAnnotation(ContextParam.class);
+            bindings[i] = contextParam != null
+                    ? new ParamBinding(contextParam.value(), contextParam.required())
+                    : new ParamBinding(parameters[i].getName(), false);
+        }
+        return bindings;
+    }
+
+    private static final class ParamBinding {
+
+        private final String name;
+
+        private final boolean required;
+
+        private ParamBinding(String name, boolean required) {
+            this.name = name;
+            this.required = required;
+        }
+    }
+
 
 }
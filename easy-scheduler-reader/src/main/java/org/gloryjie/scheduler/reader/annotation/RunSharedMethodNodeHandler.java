@@ -0,0 +1,79 @@
+package org.gloryjie.scheduler.reader.annotation;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gloryjie.scheduler.api.AsyncNodeHandler;
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.api.DagNode;
+import org.gloryjie.scheduler.core.cache.CacheKey;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * MethodNodeHandler whose invocations are shared by the nodes of a dag run.
+ * <p>
+ * The key of an invocation is the handler name plus the method arguments read by the node.
+ * The first node invokes the method, the other nodes with the same key complete from its result,
+ * a node arriving while the invocation is in flight does not hold a thread of the engine.
+ * The return converter of each node is still applied to the shared result.
+ * <p>
+ * The invocations of a run are kept by the handler, weakly keyed by the identity of the context of the run,
+ * so they are not visible in the context and are collected with it.
+ */
+public class RunSharedMethodNodeHandler extends MethodNodeHandlerImpl implements AsyncNodeHandler<Object> {
+
+    /**
+     * Context of a run -> invocations of the run
+     */
+    private final Cache<DagContext, ConcurrentMap<CacheKey, CompletableFuture<Object>>> runCalls =
+            CacheBuilder.newBuilder().weakKeys().build();
+
+    public RunSharedMethodNodeHandler(Object bean, Method method, MethodNodeHandler annotation) {
+        super(bean, method, annotation);
+    }
+
+    @Override
+    public Object execute(DagNode<Object> dagNode, DagContext dagContext) {
+        return AsyncNodeHandler.super.execute(dagNode, dagContext);
+    }
+
+    @Override
+    public CompletionStage<Object> executeAsync(DagNode<Object> dagNode, DagContext dagContext) {
+        Object[] methodArg = resolveMethodArg(dagNode, dagContext);
+
+        ConcurrentMap<CacheKey, CompletableFuture<Object>> calls = runCalls(dagContext);
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> shared = calls.putIfAbsent(CacheKey.of(handlerName(), methodArg), call);
+        if (shared == null) {
+            try {
+                call.complete(invokeMethod(methodArg));
+            } catch (Exception e) {
+                call.completeExceptionally(invokeFailed(e));
+            }
+            shared = call;
+        }
+
+        return shared.thenApply(result -> {
+            try {
+                return converterInvokeResult(dagNode, dagContext, result);
+            } catch (Exception e) {
+                throw new CompletionException(invokeFailed(e));
+            }
+        });
+    }
+
+    private ConcurrentMap<CacheKey, CompletableFuture<Object>> runCalls(DagContext dagContext) {
+        try {
+            return runCalls.get(dagContext, ConcurrentHashMap::new);
+        } catch (ExecutionException e) {
+            // never thrown by the constructor of the map
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.gloryjie.scheduler.reader;
+
+import org.gloryjie.scheduler.api.*;
+import org.gloryjie.scheduler.core.*;
+import org.gloryjie.scheduler.reader.annotation.ContextParam;
+import org.gloryjie.scheduler.reader.annotation.MethodNodeHandler;
+import org.gloryjie.scheduler.reader.annotation.MethodNodeHandlerImpl;
+import org.gloryjie.scheduler.reader.annotation.RunSharedMethodNodeHandler;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MethodNodeHandlerImplTest {
+
+    @Test
+    public void cachedMethodTest() throws Exception {
+        DictService dictService = new DictService();
+        MethodNodeHandlerImpl handler = newHandler(dictService, "getDict");
+        DagNode<Object> dagNode = DefaultDagNode.builder().nodeName("dict").handler(handler).build();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("dict-zh", handler.execute(dagNode, newContext("zh")));
+            assertEquals("dict-en", handler.execute(dagNode, newContext("en")));
+        }
+
+        assertEquals(2, dictService.calls.get());
+        assertEquals(4, handler.getCache().getStats().getHitCount());
+        assertEquals(2, handler.getCache().getStats().getMissCount());
+    }
+
+    @Test
+    public void notCachedMethodTest() throws Exception {
+        DictService dictService = new DictService();
+        MethodNodeHandlerImpl handler = newHandler(dictService, "getDictNoCache");
+        DagNode<Object> dagNode = DefaultDagNode.builder().nodeName("dict").handler(handler).build();
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals("dict-zh", handler.execute(dagNode, newContext("zh")));
+        }
+        assertEquals(3, dictService.calls.get());
+        assertNull(handler.getCache());
+    }
+
+    @Test
+    public void shareInRunTest() throws Exception {
+        DictService dictService = new DictService();
+        MethodNodeHandlerImpl handler = newHandler(dictService, "getSharedDict");
+        assertInstanceOf(RunSharedMethodNodeHandler.class, handler);
+
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A").handler(handler).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B").handler(handler).build();
+        DagNode<Object> cNode = DefaultDagNode.builder().nodeName("C").handler(handler).dependOn("A").build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("sharedDictGraph")
+                .addNodes(aNode, bNode, cNode).build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine(new SingleExcutorSelector(4));
+        for (String lang : Arrays.asList("zh", "zh", "en")) {
+            DagResult dagResult = dagEngine.fire(dagGraph, new DictQuery(lang));
+            assertEquals(DagState.SUCCEED, dagResult.getState());
+        }
+        // shared within a run only
+        assertEquals(3, dictService.calls.get());
+
+        // nodes without a dag run do not share anything
+        handler.execute(aNode, newContext("zh"));
+        handler.execute(aNode, newContext("zh"));
+        assertEquals(5, dictService.calls.get());
+
+        // the invocations of a run are not kept in its context
+        DagContext dagContext = newContext("en");
+        handler.execute(aNode, dagContext);
+        handler.execute(bNode, dagContext);
+        assertEquals(6, dictService.calls.get());
+        assertEquals(Collections.singleton("lang"), dagContext.asMap().keySet());
+    }
+
+    @Test
+    public void contextParamTest() throws Exception {
+        DictService dictService = new DictService();
+        MethodNodeHandlerImpl handler = newHandler(dictService, "getDictNoCache");
+        DagNode<Object> dagNode = DefaultDagNode.builder().nodeName("dict").handler(handler).build();
+
+        // the private field of the user context first, then the dag context
+        DagContext dagContext = new ConcurrentDagContext(new DictQuery("zh"));
+        dagContext.put("lang", "en");
+        assertEquals("dict-zh", handler.execute(dagNode, dagContext));
+        assertEquals("dict-en", handler.execute(dagNode, newContext("en")));
+        assertEquals("dict-fr", handler.execute(dagNode, new ConcurrentDagContext(new DictQuery("fr"))));
+
+        DagEngineException e = assertThrows(DagEngineException.class,
+                () -> handler.execute(dagNode, new ConcurrentDagContext(null)));
+        assertTrue(e.getCause().getMessage().contains("lang"));
+    }
+
+    @Test
+    public void nonPublicClassMethodTest() throws Exception {
+        // size() is declared by a non-public class of java.util, it is called through a public interface
+        Object list = Collections.unmodifiableList(Arrays.asList(1, 2, 3));
+        assertEquals(3, MethodInvoker.invoke(list, "size"));
+        assertEquals(3, MethodInvoker.invoke(list, "size"));
+        Class<?> declaringClass = MethodInvoker.find(list.getClass(), "size", 0).getMethod().getDeclaringClass();
+        assertTrue(java.lang.reflect.Modifier.isPublic(declaringClass.getModifiers()), declaringClass.getName());
+    }
+
+    @Test
+    public void invokeExceptionTest() throws Exception {
+        DictService dictService = new DictService();
+        MethodNodeHandlerImpl handler = newHandler(dictService, "getDictNoCache");
+        DagNode<Object> dagNode = DefaultDagNode.builder().nodeName("dict").handler(handler).build();
+
+        DagEngineException e = assertThrows(DagEngineException.class,
+                () -> handler.execute(dagNode, newContext("")));
+        // thrown by the method, not wrapped in an InvocationTargetException
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    private static MethodNodeHandlerImpl newHandler(Object bean, String methodName) throws Exception {
+        Method method = bean.getClass().getMethod(methodName, String.class);
+        return MethodNodeHandlerImpl.of(bean, method, method.getAnnotation(MethodNodeHandler.class));
+    }
+
+    private static DagContext newContext(String lang) {
+        DagContext dagContext = new ConcurrentDagContext(null);
+        dagContext.put("lang", lang);
+        return dagContext;
+    }
+
+
+    public static class DictQuery {
+
+        private final String lang;
+
+        DictQuery(String lang) {
+            this.lang = lang;
+        }
+    }
+
+
+    public static class DictService {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @MethodNodeHandler(value = "getDict", cacheTtl = 60000)
+        public String getDict(@ContextParam("lang") String lang) {
+            calls.incrementAndGet();
+            return "dict-" + lang;
+        }
+
+        @MethodNodeHandler(value = "getSharedDict", shareInRun = true)
+        public String getSharedDict(@ContextParam("lang") String lang) {
+            calls.incrementAndGet();
+            return "dict-" + lang;
+        }
+
+        @MethodNodeHandler("getDictNoCache")
+        public String getDictNoCache(@ContextParam("lang") String lang) {
+            calls.incrementAndGet();
+            if (lang.isEmpty()) {
+                throw new IllegalArgumentException("empty lang");
+            }
+            return "dict-" + lang;
+        }
+    }
+}
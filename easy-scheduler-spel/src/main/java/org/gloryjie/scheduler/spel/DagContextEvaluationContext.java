@@ -0,0 +1,120 @@
+package org.gloryjie.scheduler.spel;
+
+import org.gloryjie.scheduler.api.DagContext;
+import org.springframework.expression.*;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * EvaluationContext of one evaluation against a {@link DagContext}.
+ * <p>
+ * The variables are read from the live DagContext instead of a copy of it, and the resolvers, accessors
+ * and converters are delegated to a shared context created once by {@link #sharedContext(BeanResolver)},
+ * so an evaluation only allocates this small object.
+ * Variables assigned by the expression are local to the evaluation, they are not written to the DagContext.
+ */
+public class DagContextEvaluationContext implements EvaluationContext {
+
+    private final EvaluationContext sharedContext;
+
+    private final DagContext dagContext;
+
+    private final TypedValue rootObject;
+
+    private Map<String, Object> localVariables;
+
+    public DagContextEvaluationContext(EvaluationContext sharedContext, DagContext dagContext) {
+        this.sharedContext = sharedContext;
+        this.dagContext = dagContext;
+        this.rootObject = new TypedValue(dagContext);
+    }
+
+    /**
+     * Creates the context shared by the evaluations, it must not be modified after that.
+     *
+     * @param beanResolver the bean resolver, nullable
+     * @return the shared context
+     */
+    public static StandardEvaluationContext sharedContext(@Nullable BeanResolver beanResolver) {
+        StandardEvaluationContext context = new StandardEvaluationContext();
+        List<PropertyAccessor> accessors = new ArrayList<>(context.getPropertyAccessors());
+        accessors.add(0, new DagContextPropertyAccessor());
+        context.setPropertyAccessors(accessors);
+        if (beanResolver != null) {
+            context.setBeanResolver(beanResolver);
+        }
+        // StandardEvaluationContext creates the defaults lazily, create them before it is shared by threads
+        context.getConstructorResolvers();
+        context.getMethodResolvers();
+        context.getTypeLocator();
+        return context;
+    }
+
+    @Override
+    public TypedValue getRootObject() {
+        return rootObject;
+    }
+
+    @Override
+    public List<PropertyAccessor> getPropertyAccessors() {
+        return sharedContext.getPropertyAccessors();
+    }
+
+    @Override
+    public List<ConstructorResolver> getConstructorResolvers() {
+        return sharedContext.getConstructorResolvers();
+    }
+
+    @Override
+    public List<MethodResolver> getMethodResolvers() {
+        return sharedContext.getMethodResolvers();
+    }
+
+    @Override
+    @Nullable
+    public BeanResolver getBeanResolver() {
+        return sharedContext.getBeanResolver();
+    }
+
+    @Override
+    public TypeLocator getTypeLocator() {
+        return sharedContext.getTypeLocator();
+    }
+
+    @Override
+    public TypeConverter getTypeConverter() {
+        return sharedContext.getTypeConverter();
+    }
+
+    @Override
+    public TypeComparator getTypeComparator() {
+        return sharedContext.getTypeComparator();
+    }
+
+    @Override
+    public OperatorOverloader getOperatorOverloader() {
+        return sharedContext.getOperatorOverloader();
+    }
+
+    @Override
+    public void setVariable(String name, @Nullable Object value) {
+        if (localVariables == null) {
+            localVariables = new HashMap<>();
+        }
+        localVariables.put(name, value);
+    }
+
+    @Override
+    @Nullable
+    public Object lookupVariable(String name) {
+        if (localVariables != null && localVariables.containsKey(name)) {
+            return localVariables.get(name);
+        }
+        return dagContext.get(name);
+    }
+}
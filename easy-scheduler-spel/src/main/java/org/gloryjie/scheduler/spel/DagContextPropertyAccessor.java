@@ -0,0 +1,45 @@
+package org.gloryjie.scheduler.spel;
+
+import org.gloryjie.scheduler.api.DagContext;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.PropertyAccessor;
+import org.springframework.expression.TypedValue;
+
+/**
+ * PropertyAccessor reading the values of a {@link DagContext} as its properties,
+ * so {@code course} on the root object is the same as the variable {@code #course}.
+ * <p>
+ * Only the keys present in the context are readable, the other properties,
+ * like {@code context} or {@code cancellationToken}, are left to the reflective accessor.
+ */
+public class DagContextPropertyAccessor implements PropertyAccessor {
+
+    private static final Class<?>[] TARGET_CLASSES = {DagContext.class};
+
+    @Override
+    public Class<?>[] getSpecificTargetClasses() {
+        return TARGET_CLASSES;
+    }
+
+    @Override
+    public boolean canRead(EvaluationContext context, Object target, String name) {
+        return target instanceof DagContext && ((DagContext) target).get(name) != null;
+    }
+
+    @Override
+    public TypedValue read(EvaluationContext context, Object target, String name) {
+        // the accessor is cached by the expression, a key removed since then reads null
+        Object value = ((DagContext) target).get(name);
+        return value == null ? TypedValue.NULL : new TypedValue(value);
+    }
+
+    @Override
+    public boolean canWrite(EvaluationContext context, Object target, String name) {
+        return false;
+    }
+
+    @Override
+    public void write(EvaluationContext context, Object target, String name, Object newValue) {
+        throw new UnsupportedOperationException("DagContext property is read only: " + name);
+    }
+}
@@ -0,0 +1,59 @@
+package org.gloryjie.scheduler.spel;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelMessage;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import javax.annotation.Nullable;
+
+/**
+ * Expression compiled by the SpEL compiler, falling back to interpretation when the compiled code fails.
+ * <p>
+ * In {@link SpelCompilerMode#IMMEDIATE} mode SpEL throws when the compiled code fails, for example when the
+ * type of a value changes between runs. The expression is then parsed again without compiling and
+ * the interpreted one is used from now on. {@link SpelCompilerMode#MIXED} mode falls back by itself.
+ */
+@Slf4j
+class FallbackSpelExpression {
+
+    private static final SpelExpressionParser INTERPRETER_PARSER =
+            new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.OFF, null));
+
+    private final String expressionString;
+
+    private final ParserContext parserContext;
+
+    private volatile Expression expression;
+
+    FallbackSpelExpression(String expressionString, ParserContext parserContext, Expression expression) {
+        this.expressionString = expressionString;
+        this.parserContext = parserContext;
+        this.expression = expression;
+    }
+
+    FallbackSpelExpression(String expressionString, ParserContext parserContext) {
+        this(expressionString, parserContext, INTERPRETER_PARSER.parseExpression(expressionString, parserContext));
+    }
+
+    @Nullable
+    <T> T getValue(EvaluationContext context, @Nullable Class<T> type) {
+        Expression current = expression;
+        try {
+            return current.getValue(context, type);
+        } catch (SpelEvaluationException e) {
+            if (e.getMessageCode() != SpelMessage.EXCEPTION_RUNNING_COMPILED_EXPRESSION) {
+                throw e;
+            }
+            log.warn("Compiled expression: {} failed, fall back to interpretation", expressionString, e);
+            Expression interpreted = INTERPRETER_PARSER.parseExpression(expressionString, parserContext);
+            expression = interpreted;
+            return interpreted.getValue(context, type);
+        }
+    }
+}
@@ -4,39 +4,50 @@ import lombok.extern.slf4j.Slf4j;
 import org.gloryjie.scheduler.api.DagContext;
 import org.gloryjie.scheduler.core.DagEngineException;
 import org.springframework.expression.BeanResolver;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.ParserContext;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import java.util.function.Predicate;
 
 @Slf4j
 public class SpelCondition implements Predicate<DagContext> {
 
-    private final ExpressionParser parser = new SpelExpressionParser();
-    private final Expression compiledExpression;
-    private BeanResolver beanResolver;
+    private final FallbackSpelExpression compiledExpression;
+    private final EvaluationContext sharedContext;
     private final String expression;
 
 
     public SpelCondition(String expression, ParserContext parserContext, BeanResolver beanResolver) {
         this.expression = expression;
-        compiledExpression = parser.parseExpression(expression, parserContext);
-        this.beanResolver = beanResolver;
+        this.compiledExpression = new FallbackSpelExpression(expression, parserContext);
+        this.sharedContext = DagContextEvaluationContext.sharedContext(beanResolver);
+    }
+
+    /**
+     * Creates a condition of a parsed expression.
+     *
+     * @param expression       the expression string
+     * @param parsedExpression the expression parsed from the string, maybe compiled by the SpEL compiler
+     * @param parserContext    the parser context of the expression
+     * @param sharedContext    the context shared by the evaluations, see {@link DagContextEvaluationContext}
+     */
+    public SpelCondition(String expression, Expression parsedExpression, ParserContext parserContext,
+                         EvaluationContext sharedContext) {
+        this(expression, new FallbackSpelExpression(expression, parserContext, parsedExpression), sharedContext);
+    }
+
+    SpelCondition(String expression, FallbackSpelExpression compiledExpression, EvaluationContext sharedContext) {
+        this.expression = expression;
+        this.compiledExpression = compiledExpression;
+        this.sharedContext = sharedContext;
     }
 
 
     @Override
     public boolean test(DagContext dagContext) {
         try {
-            StandardEvaluationContext context = new StandardEvaluationContext();
-            context.setRootObject(dagContext);
-            context.setVariables(dagContext.asMap());
-            if (beanResolver != null) {
-                context.setBeanResolver(beanResolver);
-            }
+            EvaluationContext context = new DagContextEvaluationContext(sharedContext, dagContext);
             Boolean value = compiledExpression.getValue(context, Boolean.class);
             return value != null && value;
         }catch (Exception e){
@@ -44,4 +55,4 @@ public class SpelCondition implements Predicate<DagContext> {
             throw new DagEngineException("Failed to evaluate expression: " + expression, e);
         }
     }
-}
\ No newline at end of file
+}
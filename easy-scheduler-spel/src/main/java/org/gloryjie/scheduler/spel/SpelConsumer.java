@@ -4,41 +4,52 @@ import lombok.extern.slf4j.Slf4j;
 import org.gloryjie.scheduler.api.DagContext;
 import org.gloryjie.scheduler.core.DagEngineException;
 import org.springframework.expression.BeanResolver;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
-import org.springframework.expression.ExpressionParser;
 import org.springframework.expression.ParserContext;
-import org.springframework.expression.spel.standard.SpelExpressionParser;
-import org.springframework.expression.spel.support.StandardEvaluationContext;
 
 import java.util.function.Consumer;
 
 @Slf4j
 public class SpelConsumer implements Consumer<DagContext> {
 
-    private final ExpressionParser parser = new SpelExpressionParser();
-    private final Expression compiledExpression;
-    private final BeanResolver beanResolver;
+    private final FallbackSpelExpression compiledExpression;
+    private final EvaluationContext sharedContext;
     private final String expression;
 
 
     public SpelConsumer(String expression, ParserContext parserContext, BeanResolver beanResolver) {
         this.expression = expression;
-        compiledExpression = parser.parseExpression(expression, parserContext);
-        this.beanResolver = beanResolver;
+        this.compiledExpression = new FallbackSpelExpression(expression, parserContext);
+        this.sharedContext = DagContextEvaluationContext.sharedContext(beanResolver);
+    }
+
+    /**
+     * Creates a consumer of a parsed expression.
+     *
+     * @param expression       the expression string
+     * @param parsedExpression the expression parsed from the string, maybe compiled by the SpEL compiler
+     * @param parserContext    the parser context of the expression
+     * @param sharedContext    the context shared by the evaluations, see {@link DagContextEvaluationContext}
+     */
+    public SpelConsumer(String expression, Expression parsedExpression, ParserContext parserContext,
+                        EvaluationContext sharedContext) {
+        this(expression, new FallbackSpelExpression(expression, parserContext, parsedExpression), sharedContext);
+    }
+
+    SpelConsumer(String expression, FallbackSpelExpression compiledExpression, EvaluationContext sharedContext) {
+        this.expression = expression;
+        this.compiledExpression = compiledExpression;
+        this.sharedContext = sharedContext;
     }
 
 
     @Override
     public void accept(DagContext dagContext) {
         try {
-            StandardEvaluationContext context = new StandardEvaluationContext();
-            context.setRootObject(dagContext);
-            context.setVariables(dagContext.asMap());
-            if (beanResolver != null) {
-                context.setBeanResolver(beanResolver);
-            }
+            EvaluationContext context = new DagContextEvaluationContext(sharedContext, dagContext);
             // consumer not return value
-            compiledExpression.getValue(context);
+            compiledExpression.getValue(context, null);
         } catch (Exception e) {
             log.info("Execute expression: {} err, dagContext: {}", expression, dagContext);
             throw new DagEngineException("Failed to Execute expression: " + expression, e);
@@ -1,54 +1,183 @@
 package org.gloryjie.scheduler.spel;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import lombok.extern.slf4j.Slf4j;
 import org.gloryjie.scheduler.api.DagContext;
 import org.gloryjie.scheduler.reader.AbstractGraphFactory;
 import org.gloryjie.scheduler.reader.DagGraphReader;
 import org.springframework.expression.BeanResolver;
+import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.ParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
 
 import javax.annotation.Nullable;
+import java.util.Objects;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+/**
+ * GraphFactory creating the conditions and the consumers of the graphs from SpEL expressions.
+ * <p>
+ * The parsed expressions are interned in a bounded cache keyed by the expression string and the parser context,
+ * so the same expression in many graphs, or in a graph reloaded many times, is parsed and compiled once.
+ */
 @Slf4j
 public class SpelGraphFactory extends AbstractGraphFactory {
 
+    public static final long DEFAULT_EXPRESSION_CACHE_SIZE = 10000;
+
     private BeanResolver beanResolver;
     private final ParserContext parserContext;
+    /**
+     * Resolvers and accessors shared by the evaluations of all the expressions of the factory
+     */
+    private final EvaluationContext sharedContext;
+    private volatile SpelExpressionParser parser = newParser(SpelCompilerMode.OFF);
+    private volatile long expressionCacheSize = DEFAULT_EXPRESSION_CACHE_SIZE;
+    private volatile Cache<ExpressionKey, FallbackSpelExpression> expressionCache =
+            newExpressionCache(DEFAULT_EXPRESSION_CACHE_SIZE);
 
     public SpelGraphFactory() {
         super();
         parserContext = ParserContext.TEMPLATE_EXPRESSION;
+        sharedContext = DagContextEvaluationContext.sharedContext(null);
     }
 
     public SpelGraphFactory(DagGraphReader reader) {
         super(reader);
         parserContext = ParserContext.TEMPLATE_EXPRESSION;
+        sharedContext = DagContextEvaluationContext.sharedContext(null);
     }
 
     public SpelGraphFactory(DagGraphReader reader, BeanResolver beanResolver) {
         super(reader);
         this.beanResolver = beanResolver;
         this.parserContext = ParserContext.TEMPLATE_EXPRESSION;
+        this.sharedContext = DagContextEvaluationContext.sharedContext(beanResolver);
     }
 
     public SpelGraphFactory(DagGraphReader reader, BeanResolver beanResolver, ParserContext parserContext) {
         super(reader);
         this.parserContext = parserContext;
         this.beanResolver = beanResolver;
+        this.sharedContext = DagContextEvaluationContext.sharedContext(beanResolver);
+    }
+
+    /**
+     * Sets the SpEL compiler mode of the expressions created after that, default is {@link SpelCompilerMode#OFF}.
+     * <p>
+     * With {@link SpelCompilerMode#IMMEDIATE} or {@link SpelCompilerMode#MIXED}, an expression is compiled to
+     * bytecode after it is interpreted, it falls back to interpretation if the compiled code fails.
+     *
+     * @param compilerMode the compiler mode
+     */
+    public void setCompilerMode(SpelCompilerMode compilerMode) {
+        Objects.requireNonNull(compilerMode, "compilerMode must not be null");
+        this.parser = newParser(compilerMode);
+        // the cached expressions are parsed in the previous mode
+        this.expressionCache = newExpressionCache(expressionCacheSize);
+    }
+
+    /**
+     * Sets the max number of cached expressions, the least recently used ones are evicted first.
+     * The cached expressions are cleared.
+     *
+     * @param maximumSize the max number of expressions, 0 to disable the cache
+     */
+    public void setExpressionCacheSize(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("maximumSize must not be negative: " + maximumSize);
+        }
+        this.expressionCacheSize = maximumSize;
+        this.expressionCache = newExpressionCache(maximumSize);
+    }
+
+    /**
+     * Returns the number of distinct expressions in the cache.
+     *
+     * @return the number of cached expressions
+     */
+    public long getCachedExpressionCount() {
+        return expressionCache.size();
+    }
+
+    /**
+     * Returns how many times a condition or a consumer reused a cached expression instead of parsing it.
+     *
+     * @return the number of shared expressions
+     */
+    public long getSharedExpressionCount() {
+        return expressionCache.stats().hitCount();
     }
 
     @Nullable
     @Override
     public Predicate<DagContext> createCondition(String condition) {
-        return new SpelCondition(condition, parserContext, beanResolver);
+        return new SpelCondition(condition, getExpression(condition), sharedContext);
     }
 
     @Nullable
     @Override
     public Consumer<DagContext> createConsumer(String action) {
-        return new SpelConsumer(action, parserContext, beanResolver);
+        return new SpelConsumer(action, getExpression(action), sharedContext);
+    }
+
+    private FallbackSpelExpression getExpression(String expressionString) {
+        Cache<ExpressionKey, FallbackSpelExpression> cache = expressionCache;
+        ExpressionKey key = new ExpressionKey(expressionString, parserContext);
+        FallbackSpelExpression expression = cache.getIfPresent(key);
+        if (expression != null) {
+            return expression;
+        }
+        // parse outside of the cache, the expression of a concurrent parse is kept if any
+        expression = new FallbackSpelExpression(expressionString, parserContext,
+                parser.parseExpression(expressionString, parserContext));
+        FallbackSpelExpression existing = cache.asMap().putIfAbsent(key, expression);
+        return existing != null ? existing : expression;
     }
 
+    private static Cache<ExpressionKey, FallbackSpelExpression> newExpressionCache(long maximumSize) {
+        return CacheBuilder.newBuilder().maximumSize(maximumSize).recordStats().build();
+    }
+
+    private static SpelExpressionParser newParser(SpelCompilerMode compilerMode) {
+        // null class loader, the compiled classes are loaded by a child of the thread context class loader
+        return new SpelExpressionParser(new SpelParserConfiguration(compilerMode, null));
+    }
+
+
+    /**
+     * ParserContext does not implement equals, the contexts are compared by identity
+     */
+    private static final class ExpressionKey {
+
+        private final String expressionString;
+
+        private final ParserContext parserContext;
+
+        ExpressionKey(String expressionString, ParserContext parserContext) {
+            this.expressionString = expressionString;
+            this.parserContext = parserContext;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ExpressionKey)) {
+                return false;
+            }
+            ExpressionKey other = (ExpressionKey) o;
+            return parserContext == other.parserContext && expressionString.equals(other.expressionString);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(parserContext) + expressionString.hashCode();
+        }
+    }
 }
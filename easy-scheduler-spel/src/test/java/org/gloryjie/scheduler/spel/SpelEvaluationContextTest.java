@@ -0,0 +1,88 @@
+package org.gloryjie.scheduler.spel;
+
+import org.gloryjie.scheduler.api.DagContext;
+import org.gloryjie.scheduler.core.MapDagContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParserContext;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpelEvaluationContextTest {
+
+    @Test
+    public void readLiveContextTest() {
+        SpelGraphFactory spelGraphFactory = new SpelGraphFactory();
+        DagContext dagContext = new MapDagContext(null) {
+            @Override
+            public Map<String, Object> asMap() {
+                throw new UnsupportedOperationException("context must not be copied");
+            }
+        };
+        dagContext.put("course", "java");
+        dagContext.put("score", 99);
+
+        Predicate<DagContext> variable = spelGraphFactory.createCondition("#{#course == 'java' && #score > 60}");
+        Predicate<DagContext> property = spelGraphFactory.createCondition("#{course == 'java' && score > 60}");
+        assertTrue(variable.test(dagContext));
+        assertTrue(property.test(dagContext));
+
+        // the values are read on every evaluation, not when the condition is created
+        dagContext.put("score", 10);
+        assertFalse(variable.test(dagContext));
+        assertFalse(property.test(dagContext));
+
+        // assigned variables stay in the evaluation
+        Consumer<DagContext> consumer = spelGraphFactory.createConsumer("#{#course = 'go'}");
+        consumer.accept(dagContext);
+        assertEquals("java", dagContext.get("course"));
+    }
+
+    @Test
+    public void compiledConditionTest() {
+        for (SpelCompilerMode mode : new SpelCompilerMode[]{SpelCompilerMode.IMMEDIATE, SpelCompilerMode.MIXED}) {
+            SpelGraphFactory spelGraphFactory = new SpelGraphFactory();
+            spelGraphFactory.setCompilerMode(mode);
+            Predicate<DagContext> predicate = spelGraphFactory.createCondition("#{#score > 60}");
+            DagContext dagContext = new MapDagContext(null);
+            for (int i = 0; i < 200; i++) {
+                dagContext.put("score", i);
+                assertEquals(i > 60, predicate.test(dagContext));
+            }
+        }
+    }
+
+    @Test
+    public void compiledFailFallbackTest() {
+        SpelExpressionParser parser = new SpelExpressionParser(
+                new SpelParserConfiguration(SpelCompilerMode.IMMEDIATE, null));
+        String expressionString = "#{#value.toString() == 'abc'}";
+        Expression expression = parser.parseExpression(expressionString, ParserContext.TEMPLATE_EXPRESSION);
+        Expression plain = parser.parseExpression(expressionString, ParserContext.TEMPLATE_EXPRESSION);
+        FallbackSpelExpression fallback = new FallbackSpelExpression(expressionString,
+                ParserContext.TEMPLATE_EXPRESSION, expression);
+
+        DagContext dagContext = new MapDagContext(null);
+        dagContext.put("value", "abc");
+        DagContextEvaluationContext context = new DagContextEvaluationContext(
+                DagContextEvaluationContext.sharedContext(null), dagContext);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(Boolean.TRUE, fallback.getValue(context, Boolean.class));
+            assertEquals(Boolean.TRUE, plain.getValue(context, Boolean.class));
+        }
+
+        // the compiled code casts the value to String
+        dagContext.put("value", new StringBuilder("abc"));
+        assertThrows(SpelEvaluationException.class, () -> plain.getValue(context, Boolean.class));
+        assertEquals(Boolean.TRUE, fallback.getValue(context, Boolean.class));
+        assertEquals(Boolean.TRUE, fallback.getValue(context, Boolean.class));
+    }
+}
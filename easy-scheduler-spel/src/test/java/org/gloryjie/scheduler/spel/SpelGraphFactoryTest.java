@@ -7,6 +7,7 @@ import org.gloryjie.scheduler.api.*;
 import org.gloryjie.scheduler.core.ConcurrentDagEngine;
 import org.gloryjie.scheduler.core.DefaultNodeHandler;
 import org.gloryjie.scheduler.reader.config.DagGraphConfigType;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -79,7 +80,38 @@ public class SpelGraphFactoryTest {
     }
 
 
+    @Test
+    public void sharedExpressionCacheTest() throws Exception {
+        SpelGraphFactory spelGraphFactory = createSpelGraphFactory();
+        File file = new File("src/test/resources/graph.json");
+        String cnt = FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+
+        spelGraphFactory.createConfigGraph(DagGraphConfigType.JSON, cnt);
+        // node A and node B have the same condition
+        assertEquals(3, spelGraphFactory.getCachedExpressionCount());
+        assertEquals(1, spelGraphFactory.getSharedExpressionCount());
+
+        // reloading the graph parses nothing
+        spelGraphFactory.createConfigGraph(DagGraphConfigType.JSON, cnt);
+        assertEquals(3, spelGraphFactory.getCachedExpressionCount());
+        assertEquals(5, spelGraphFactory.getSharedExpressionCount());
+
+        spelGraphFactory.setExpressionCacheSize(1);
+        spelGraphFactory.createCondition("#{#a == 1}");
+        spelGraphFactory.createCondition("#{#b == 1}");
+        assertEquals(1, spelGraphFactory.getCachedExpressionCount());
+    }
+
+
     static Stream<Arguments> fileTypeAndReaderProvider() {
+        SpelGraphFactory spelGraphFactory = createSpelGraphFactory();
+        return Stream.of(
+                Arguments.of(DagGraphConfigType.JSON, spelGraphFactory),
+                Arguments.of(DagGraphConfigType.YAML, spelGraphFactory)
+        );
+    }
+
+    static SpelGraphFactory createSpelGraphFactory() {
         SpelGraphFactory spelGraphFactory = new SpelGraphFactory();
         UserService userService = new UserService();
 
@@ -91,11 +123,7 @@ public class SpelGraphFactoryTest {
 
         spelGraphFactory.registerHandler(DefaultNodeHandler.builder().handlerName("getUserCourseScoreHandler")
                 .action(userService::getCourseScoreList).build());
-
-        return Stream.of(
-                Arguments.of(DagGraphConfigType.JSON, spelGraphFactory),
-                Arguments.of(DagGraphConfigType.YAML, spelGraphFactory)
-        );
+        return spelGraphFactory;
     }
 
 
@@ -150,7 +150,7 @@ public class EasySchedulerBootProcessor implements SmartInitializingSingleton,
             for (Map.Entry<Method, MethodNodeHandler> entry : methodMap.entrySet()) {
                 Method method = entry.getKey();
                 MethodNodeHandler annotation = entry.getValue();
-                MethodNodeHandlerImpl handler = new MethodNodeHandlerImpl(target, method, annotation);
+                MethodNodeHandlerImpl handler = MethodNodeHandlerImpl.of(target, method, annotation);
                 for (DynamicDagEngine dynamicDagEngine : dynamicDagEngineList) {
                     dynamicDagEngine.registerHandler(handler);
                 }
@@ -0,0 +1,72 @@
+package org.gloryjie.scheduler.virtualthread;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gloryjie.scheduler.api.DagGraph;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.timer.DagTimer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Engine giving every dag run its own virtual thread executor, which is shut down when the dag is done.
+ * <p>
+ * It has the semantics of a structured task scope with the shutdown on failure policy:
+ * the nodes of a run are forked in the scope of the run, and once the dag fails, times out or is interrupted,
+ * the sibling nodes still running are interrupted and no node outlives its run.
+ * {@code StructuredTaskScope} is still a preview API in Java 21, so the scope is built on
+ * {@link Executors#newThreadPerTaskExecutor(ThreadFactory)} and {@link ExecutorService#shutdownNow()},
+ * which needs no preview flag at compile or run time.
+ * <p>
+ * The dag is often done on one of the threads of its run, which is interrupted by the shutdown too.
+ * Its interrupt status is cleared, so the callbacks of the run do not see an interrupt meant for the nodes.
+ */
+@Slf4j
+public class StructuredDagEngine extends ConcurrentDagEngine {
+
+    /**
+     * The executor of the run of the current thread, only set on the threads of the runs
+     */
+    private static final ThreadLocal<ExecutorService> RUN_EXECUTOR = new ThreadLocal<>();
+
+    private final ThreadFactory threadFactory;
+
+    public StructuredDagEngine() {
+        super(null);
+        this.threadFactory = newThreadFactory();
+    }
+
+    public StructuredDagEngine(DagTimer dagTimer) {
+        super(null, dagTimer);
+        this.threadFactory = newThreadFactory();
+    }
+
+    private static ThreadFactory newThreadFactory() {
+        return Thread.ofVirtual()
+                .name("easy-scheduler-structured-", 0)
+                .uncaughtExceptionHandler((t, e) -> log.error("easy-scheduler thread error", e))
+                .factory();
+    }
+
+    @Override
+    protected ExecutorService selectExecutor(DagGraph dagGraph) {
+        ExecutorService[] executor = new ExecutorService[1];
+        // a thread runs a single task of a single run
+        executor[0] = Executors.newThreadPerTaskExecutor(task -> threadFactory.newThread(() -> {
+            RUN_EXECUTOR.set(executor[0]);
+            task.run();
+        }));
+        return executor[0];
+    }
+
+    @Override
+    protected void releaseExecutor(DagGraph dagGraph, ExecutorService executorService) {
+        // interrupt the nodes still running, the nodes not started yet are never run
+        executorService.shutdownNow();
+        if (RUN_EXECUTOR.get() == executorService) {
+            // the current thread is one of the run, it goes on completing the dag
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package org.gloryjie.scheduler.virtualthread;
+
+import lombok.extern.slf4j.Slf4j;
+import org.gloryjie.scheduler.api.ExecutorSelector;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * ExecutorSelector running every node in a new virtual thread.
+ * <p>
+ * A node blocking on I/O only parks its virtual thread, so thousands of blocking nodes
+ * could run at the same time without sizing a thread pool.
+ */
+@Slf4j
+public class VirtualThreadExecutorSelector implements ExecutorSelector {
+
+    private final ExecutorService executorService;
+
+    public VirtualThreadExecutorSelector() {
+        this("easy-scheduler-vt-");
+    }
+
+    /**
+     * @param threadNamePrefix the prefix of the virtual thread names, followed by a counter
+     */
+    public VirtualThreadExecutorSelector(String threadNamePrefix) {
+        executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual()
+                .name(threadNamePrefix, 0)
+                .uncaughtExceptionHandler((t, e) -> log.error("easy-scheduler thread error", e))
+                .factory());
+    }
+
+    @Override
+    public ExecutorService select(String graphName) {
+        return executorService;
+    }
+}
@@ -0,0 +1,140 @@
+package org.gloryjie.scheduler.virtualthread;
+
+import org.gloryjie.scheduler.api.*;
+import org.gloryjie.scheduler.core.ConcurrentDagEngine;
+import org.gloryjie.scheduler.core.DagGraphBuilder;
+import org.gloryjie.scheduler.core.DefaultDagNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StructuredDagEngineTest {
+
+    @Test
+    public void runOnVirtualThreadTest() {
+        AtomicBoolean virtual = new AtomicBoolean();
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A")
+                .handler((node, context) -> {
+                    virtual.set(Thread.currentThread().isVirtual());
+                    return "A";
+                }).build();
+        DagGraph dagGraph = new DagGraphBuilder().graphName("virtualGraph").addNodes(aNode).build();
+
+        DagEngine dagEngine = new ConcurrentDagEngine(new VirtualThreadExecutorSelector());
+        DagResult dagResult = dagEngine.fire(dagGraph, null);
+
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        assertTrue(virtual.get());
+    }
+
+    @Test
+    public void thousandsOfBlockingNodesTest() {
+        List<DagNode<?>> nodes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            nodes.add(DefaultDagNode.builder().nodeName("N" + i)
+                    .handler((node, context) -> {
+                        try {
+                            TimeUnit.MILLISECONDS.sleep(100);
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                        return null;
+                    }).build());
+        }
+        DagGraph dagGraph = new DagGraphBuilder().graphName("blockingGraph")
+                .addNodes(nodes.toArray(new DagNode[0])).build();
+
+        DagResult dagResult = new StructuredDagEngine().fire(dagGraph, null, 5000L);
+
+        assertEquals(DagState.SUCCEED, dagResult.getState());
+        // all the nodes block at the same time
+        assertTrue(dagResult.getCostTime() < 2000, "cost time: " + dagResult.getCostTime());
+    }
+
+    @Test
+    public void interruptSiblingsOnFailureTest() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        DagGraph dagGraph = buildFailFastGraph(interrupted, () -> {
+            throw new IllegalStateException("A failed");
+        });
+
+        DagResult dagResult = new StructuredDagEngine().fire(dagGraph, null);
+
+        assertEquals(DagState.FAILED, dagResult.getState());
+        assertEquals(NodeState.FAILED, dagResult.getNodeStateMap().get("A"));
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void interruptSiblingsOnTimeoutTest() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        DagGraph dagGraph = buildFailFastGraph(interrupted, () -> null);
+
+        DagResult dagResult = new StructuredDagEngine().fire(dagGraph, null, 100L);
+
+        assertEquals(DagState.TIMEOUT, dagResult.getState());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void callbacksNotInterruptedTest() throws Exception {
+        StructuredDagEngine dagEngine = new StructuredDagEngine();
+        for (boolean fail : new boolean[]{false, true}) {
+            CountDownLatch attached = new CountDownLatch(1);
+            DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A")
+                    .handler((node, context) -> {
+                        try {
+                            attached.await();
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                        if (fail) {
+                            throw new IllegalStateException("A failed");
+                        }
+                        return "A";
+                    }).build();
+            DagGraph dagGraph = new DagGraphBuilder().graphName("callbackGraph").addNodes(aNode).build();
+
+            // the dag is done on the thread of A, which runs the callback
+            CompletableFuture<Boolean> interrupted = dagEngine.fireAsync(dagGraph, null)
+                    .thenApply(dagResult -> Thread.currentThread().isVirtual() && Thread.interrupted());
+            attached.countDown();
+            assertFalse(interrupted.get(5, TimeUnit.SECONDS), "fail: " + fail);
+        }
+    }
+
+    /**
+     * A runs the action once B is running, B blocks until it is interrupted
+     */
+    private DagGraph buildFailFastGraph(CountDownLatch interrupted, Supplier<Object> action) {
+        CountDownLatch bStarted = new CountDownLatch(1);
+        DagNode<Object> aNode = DefaultDagNode.builder().nodeName("A")
+                .handler((node, context) -> {
+                    try {
+                        bStarted.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return action.get();
+                }).build();
+        DagNode<Object> bNode = DefaultDagNode.builder().nodeName("B")
+                .handler((node, context) -> {
+                    bStarted.countDown();
+                    try {
+                        TimeUnit.SECONDS.sleep(10);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return null;
+                }).build();
+        return new DagGraphBuilder().graphName("failFastGraph").addNodes(aNode, bNode).build();
+    }
+}